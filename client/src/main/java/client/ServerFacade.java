@@ -19,6 +19,10 @@ public class ServerFacade {
     private final String serverString;
     private final Gson gson = new Gson();
     private final HttpClient client = HttpClient.newHttpClient();
+    private volatile CachedGameList cachedGameList;
+
+    private record CachedGameList(String etag, ListGamesResult result) {
+    }
 
     private String mapErrorMessage(String rawMessage) {
         String userFriendlyMessage;
@@ -40,6 +44,14 @@ public class ServerFacade {
     }
 
     private <T> T makeRequest(String method, String path, Object body, String authToken, Class<T> responseClass) throws Exception {
+        var response = send(method, path, body, authToken, null);
+        if(responseClass != null && !response.body().isEmpty()) {
+            return gson.fromJson(response.body(), responseClass);
+        }
+        return null;
+    }
+
+    private HttpResponse<String> send(String method, String path, Object body, String authToken, String ifNoneMatch) throws Exception {
         var url = URI.create(serverString + path);
         var requestBuilder = HttpRequest.newBuilder()
                 .uri(url)
@@ -48,6 +60,9 @@ public class ServerFacade {
         if (authToken != null) {
             requestBuilder.header("Authorization", authToken);
         }
+        if (ifNoneMatch != null) {
+            requestBuilder.header("If-None-Match", ifNoneMatch);
+        }
 
         if(body != null){
             requestBuilder.method(method, HttpRequest.BodyPublishers.ofString(gson.toJson(body)));
@@ -75,11 +90,7 @@ public class ServerFacade {
                 }
                 throw new Exception(userFriendlyMessage);
             }
-
-            if(responseClass != null && !response.body().isEmpty()) {
-                return gson.fromJson(response.body(), responseClass);
-            }
-            return null;
+            return response;
         } catch (IOException e) {
             // Handle connection failures (server down, network issues)
             throw new Exception("Unable to connect to the server. Please check if the server is running and try again.");
@@ -128,9 +139,21 @@ public class ServerFacade {
         return makeRequest("POST", path, body, authToken, CreateGameResult.class);
     }
 
+    /**
+     * Asks for the list with the tag of the last one and reuses it when the server says
+     * nothing has changed
+     */
     public ListGamesResult listGames(String authToken) throws Exception {
         var path = "/game";
-        return makeRequest("GET", path, null, authToken, ListGamesResult.class);
+        var cached = cachedGameList;
+        var response = send("GET", path, null, authToken, cached == null ? null : cached.etag());
+        if (response.statusCode() == 304 && cached != null) {
+            return cached.result();
+        }
+        var result = gson.fromJson(response.body(), ListGamesResult.class);
+        var etag = response.headers().firstValue("ETag");
+        cachedGameList = etag.map(tag -> new CachedGameList(tag, result)).orElse(null);
+        return result;
     }
 
     public void joinGame(int gameID, String playerColor, String authToken) throws Exception {
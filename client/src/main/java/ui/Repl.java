@@ -193,11 +193,12 @@ public class Repl implements ServerMessageObserver{
                 var game = currentGameList.get(gameNum - 1);
                 server.joinGame(game.gameID(), tokens[2].toUpperCase(), authToken);
 
+                // Listings carry no board, so set this before the LOAD_GAME reply can replace it
+                this.activeGame = game;
+                this.playerColor = tokens[2].toUpperCase();
                 ws = new WebSocketFacade(serverUrl, this);
                 ws.joinGame(authToken, game.gameID());
 
-                this.activeGame = game;
-                this.playerColor = tokens[2].toUpperCase();
                 this.state = State.GAMEPLAY;
 
                 yield "Joined game as " + tokens[2];
@@ -217,11 +218,11 @@ public class Repl implements ServerMessageObserver{
                 }
                 var game = currentGameList.get(gameNum - 1);
 
+                this.activeGame = game;
+                this.playerColor = null;
                 ws = new WebSocketFacade(serverUrl, this);
                 ws.joinGame(authToken, game.gameID());
 
-                this.activeGame = game;
-                this.playerColor = null;
                 this.state = State.GAMEPLAY;
 
                 yield "Observing game";
@@ -334,6 +335,9 @@ public class Repl implements ServerMessageObserver{
     }
 
         private String drawBoard(ChessGame game, String perspective, Set<ChessPosition> highlights) {
+        if (game == null) {
+            return "Waiting for the board from the server...";
+        }
         var board = game.getBoard();
         boolean isWhitePerspective = perspective == null || perspective.equalsIgnoreCase("WHITE");
         StringBuilder sb = new StringBuilder();
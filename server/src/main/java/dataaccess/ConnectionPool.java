@@ -0,0 +1,279 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections.
+ * <p>
+ * Connections handed out by {@link #borrow()} go back to the pool when closed, so callers
+ * keep using try-with-resources exactly as they would with a fresh connection. Idle
+ * connections are checked with {@link Connection#isValid(int)} before reuse and retired once
+ * they pass the idle timeout or the maximum lifetime.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool limits. Timeouts of zero or less disable that limit.
+     */
+    public record Settings(int maxSize, long connectionTimeoutMillis, long idleTimeoutMillis,
+                           long maxLifetimeMillis, int validationTimeoutSeconds) {
+        public Settings {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Pool size must be at least 1");
+            }
+        }
+    }
+
+    /**
+     * A point-in-time view of pool usage
+     */
+    public record Stats(int active, int idle, int maxSize, long borrowed, long timeouts,
+                        double averageWaitMillis, double maxWaitMillis) {
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final Semaphore permits;
+    // Most recently returned connections sit at the head so the tail ages out first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if no idle connection is usable
+     *
+     * @return a connection that returns itself to the pool when closed
+     * @throws SQLTransientConnectionException if none becomes available within the timeout
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        acquirePermit();
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeUsableIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create());
+            }
+            active.incrementAndGet();
+            borrowed.increment();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats stats() {
+        long count = borrowed.sum();
+        double averageWait = count == 0 ? 0 : totalWaitNanos.sum() / 1e6 / count;
+        return new Stats(active.get(), idle.size(), settings.maxSize(), count, timeouts.sum(),
+                averageWait, maxWaitNanos.get() / 1e6);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        try {
+            long timeout = settings.connectionTimeoutMillis();
+            if (timeout <= 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + timeout + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    private PooledConnection takeUsableIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (!pooled.isExpired(System.nanoTime()) && pooled.isValid()) {
+                return pooled;
+            }
+            pooled.closePhysical();
+        }
+        return null;
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.isExpired(System.nanoTime()) || !pooled.reset()) {
+                pooled.closePhysical();
+            } else {
+                pooled.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+            evictStaleTail();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictStaleTail() {
+        PooledConnection oldest = idle.peekLast();
+        if (oldest != null && oldest.isExpired(System.nanoTime()) && idle.removeLastOccurrence(oldest)) {
+            oldest.closePhysical();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * One physical connection and its bookkeeping
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long createdNanos = System.nanoTime();
+        private volatile long lastUsedNanos = createdNanos;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+        private boolean isExpired(long now) {
+            long lifetime = settings.maxLifetimeMillis();
+            long idleTimeout = settings.idleTimeoutMillis();
+            return (lifetime > 0 && now - createdNanos > TimeUnit.MILLISECONDS.toNanos(lifetime)) ||
+                    (idleTimeout > 0 && now - lastUsedNanos > TimeUnit.MILLISECONDS.toNanos(idleTimeout));
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(settings.validationTimeoutSeconds());
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Undoes anything a borrower left behind so the next borrower starts clean
+         *
+         * @return false if the connection is unusable and should be discarded
+         */
+        private boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Already broken, nothing more to release
+            }
+        }
+    }
+
+    /**
+     * The handle a borrower sees. Closing it returns the connection instead of closing it,
+     * and any use after that fails rather than touching a connection someone else now holds.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned = false;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + pooled.physical;
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package dataaccess;
 
+import dataaccess.auth.CachingAuthDAO;
+import dataaccess.game.SqlGameDAO;
+import dataaccess.game.WriteBehindGameDAO;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.*;
 import java.util.Properties;
 
@@ -8,6 +14,17 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static boolean statementCache;
+    private static String statementCacheSize;
+    private static String statementCacheSqlLimit;
+    private static ConnectionPool pool;
+    private static boolean eventSourcedGames;
+    private static int snapshotInterval;
+    private static WriteBehindGameDAO.Settings writeBehindSettings;
+    private static CachingAuthDAO.Settings authCacheSettings;
+    private static IoExecutor.Settings ioSettings;
+    // The connection of the transaction running on this thread, if any
+    private static final ThreadLocal<Connection> transaction = new ThreadLocal<>();
 
     /*
      * Load the database information for the db.properties file.
@@ -30,23 +47,28 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Borrows a connection from the pool with the catalog already set based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * be short-lived, and you must close the connection when you are done with it,
+     * which hands it back to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
+     * Inside {@link #inTransaction} this returns the transaction's connection instead, so the
+     * same code takes part in the transaction without changes.
      */
     static Connection getConnection() throws DataAccessException {
+        Connection joined = transaction.get();
+        if (joined != null) {
+            return joined;
+        }
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.borrow();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
@@ -57,6 +79,86 @@ public class DatabaseManager {
         return getConnection();
     }
 
+    /**
+     * Runs work on one pooled connection in one transaction. DAO calls the work makes on this
+     * thread borrow that connection, and their own commits, rollbacks and closes are left to
+     * this method. Called again from inside the work, it just runs the work.
+     */
+    public static <T> T inTransaction(IoExecutor.Call<T> work) throws DataAccessException {
+        if (transaction.get() != null) {
+            return work.call();
+        }
+        try (var conn = getConnection()) {
+            conn.setAutoCommit(false);
+            transaction.set(joined(conn));
+            try {
+                T result = work.call();
+                conn.commit();
+                return result;
+            } catch (DataAccessException | SQLException | RuntimeException e) {
+                rollback(conn);
+                throw e;
+            } finally {
+                transaction.remove();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to commit transaction", e);
+        }
+    }
+
+    /**
+     * Runs work with the DAO calls it makes on this thread using the given connection instead
+     * of a pooled one, so benchmarks can compare connection settings through the real DAOs
+     */
+    static <T> T onConnection(Connection conn, IoExecutor.Call<T> work) throws DataAccessException {
+        transaction.set(joined(conn));
+        try {
+            return work.call();
+        } finally {
+            transaction.remove();
+        }
+    }
+
+    /**
+     * @return a unit of work that runs in a database transaction
+     */
+    public static UnitOfWork unitOfWork() {
+        return new UnitOfWork() {
+            @Override
+            public <T> T run(IoExecutor.Call<T> work) throws DataAccessException {
+                return inTransaction(work);
+            }
+        };
+    }
+
+    /**
+     * Wraps a transaction's connection for the DAOs, which close it and may manage their own
+     * transactions on it. Those calls are ignored; the pool resets auto-commit on return.
+     */
+    private static Connection joined(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close", "commit", "rollback", "setAutoCommit" -> null;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> {
+                        try {
+                            yield method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    private static void rollback(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException ignored) {
+            // The pool rolls back or discards the connection when it comes back
+        }
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -70,6 +172,74 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * @return current connection pool usage, for metrics
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool.stats();
+    }
+
+    /**
+     * @return true if db.gameStorage asks for games to be stored as move logs
+     */
+    public static boolean useEventSourcedGames() {
+        return eventSourcedGames;
+    }
+
+    /**
+     * @return how many plies an event-sourced game goes between snapshots
+     */
+    public static int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * @return when to flush buffered game writes, or null if games are written straight through
+     */
+    public static WriteBehindGameDAO.Settings getWriteBehindSettings() {
+        return writeBehindSettings;
+    }
+
+    /**
+     * @return limits for the in-memory auth token cache, or null if tokens are not cached
+     */
+    public static CachingAuthDAO.Settings getAuthCacheSettings() {
+        return authCacheSettings;
+    }
+
+    /**
+     * @return how many data access calls run and wait at once off the request threads
+     */
+    public static IoExecutor.Settings getIoSettings() {
+        return ioSettings;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        return openConnection(statementCache);
+    }
+
+    /**
+     * Opens a physical connection outside the pool.
+     * <p>
+     * With the statement cache on, the driver prepares each statement on the server once per
+     * connection and keeps it when the DAO closes it, so a pooled connection only ships the
+     * parameters for SQL it has already run.
+     */
+    static Connection openConnection(boolean cacheStatements) throws SQLException {
+        var info = new Properties();
+        info.setProperty("user", dbUsername);
+        info.setProperty("password", dbPassword);
+        if (cacheStatements) {
+            info.setProperty("useServerPrepStmts", "true");
+            info.setProperty("cachePrepStmts", "true");
+            info.setProperty("prepStmtCacheSize", statementCacheSize);
+            info.setProperty("prepStmtCacheSqlLimit", statementCacheSqlLimit);
+        }
+        var conn = DriverManager.getConnection(connectionUrl, info);
+        conn.setCatalog(databaseName);
+        return conn;
+    }
+
     private static void loadProperties(Properties props) {
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
@@ -78,6 +248,48 @@ public class DatabaseManager {
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
         connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+
+        // The DAOs only use a handful of statements, so a small cache holds all of them
+        statementCache = Boolean.parseBoolean(props.getProperty("db.statementCache", "true"));
+        statementCacheSize = props.getProperty("db.statementCacheSize", "64");
+        statementCacheSqlLimit = props.getProperty("db.statementCacheSqlLimit", "2048");
+
+        // "table" rewrites each game's row per move, "events" appends to a move log
+        var gameStorage = props.getProperty("db.gameStorage", "table");
+        if (!gameStorage.equals("table") && !gameStorage.equals("events")) {
+            throw new IllegalArgumentException("db.gameStorage must be table or events, not " + gameStorage);
+        }
+        eventSourcedGames = gameStorage.equals("events");
+        snapshotInterval = Integer.parseInt(props.getProperty("db.snapshotInterval", "20"));
+
+        // Buffering game writes trades a bounded window of unsaved moves for move latency
+        if (Boolean.parseBoolean(props.getProperty("db.writeBehind.enabled", "false"))) {
+            writeBehindSettings = new WriteBehindGameDAO.Settings(
+                    Long.parseLong(props.getProperty("db.writeBehind.flushIntervalMs", "200")),
+                    Integer.parseInt(props.getProperty("db.writeBehind.flushEveryMoves", "10")),
+                    Boolean.parseBoolean(props.getProperty("db.writeBehind.flushOnGameEnd", "true")));
+        }
+
+        // A TTL of 0 turns the auth cache off, e.g. when several servers share the database
+        var authCacheTtl = Long.parseLong(props.getProperty("db.authCache.ttlMs", "60000"));
+        if (authCacheTtl > 0) {
+            authCacheSettings = new CachingAuthDAO.Settings(authCacheTtl,
+                    Integer.parseInt(props.getProperty("db.authCache.maxSize", "10000")));
+        }
+
+        // Pool sizing is optional in db.properties; these defaults suit a single server
+        var poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.connectionTimeoutMs", "5000")),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", "600000")),
+                Long.parseLong(props.getProperty("db.pool.maxLifetimeMs", "1800000")),
+                Integer.parseInt(props.getProperty("db.pool.validationTimeoutSec", "2")));
+        pool = new ConnectionPool(DatabaseManager::openConnection, poolSettings);
+
+        // Each running call holds a connection, so by default there is one thread per connection
+        ioSettings = new IoExecutor.Settings(
+                Integer.parseInt(props.getProperty("db.io.threads", Integer.toString(poolSettings.maxSize()))),
+                Integer.parseInt(props.getProperty("db.io.queueCapacity", "1000")));
     }
 
     public static void createTables() throws DataAccessException {
@@ -94,11 +306,31 @@ public class DatabaseManager {
             var authTableStatement = "CREATE TABLE IF NOT EXISTS auth (" +
                     "auth_token VARCHAR(100) PRIMARY KEY," +
                     "username VARCHAR(50) NOT NULL," +
+                    "last_used BIGINT NOT NULL DEFAULT 0," +
                     "FOREIGN KEY (username) REFERENCES users(username) ON DELETE CASCADE" +
                     ")";
             try (var statement = conn.prepareStatement(authTableStatement)) {
                 statement.executeUpdate();
             }
+            addColumnIfMissing(conn, "auth", "last_used", "BIGINT NOT NULL DEFAULT 0");
+            // The sweeper deletes by age; the per-user cap finds a user's oldest sessions
+            addIndexIfMissing(conn, "auth", "idx_auth_last_used", "(last_used)");
+            addIndexIfMissing(conn, "auth", "idx_auth_user_last_used", "(username, last_used)");
+            // Sessions from before expiry existed start their clock now rather than expiring at once
+            try (var statement = conn.prepareStatement("UPDATE auth SET last_used = ? WHERE last_used = 0")) {
+                statement.setLong(1, System.currentTimeMillis());
+                statement.executeUpdate();
+            }
+
+            // Logged-out signed tokens; rows go once their tokens have expired
+            var revokedTableStatement = "CREATE TABLE IF NOT EXISTS revoked_tokens (" +
+                    "token_id VARCHAR(32) PRIMARY KEY," +
+                    "expires_at BIGINT NOT NULL," +
+                    "INDEX idx_revoked_expires_at (expires_at)" +
+                    ")";
+            try (var statement = conn.prepareStatement(revokedTableStatement)) {
+                statement.executeUpdate();
+            }
 
             var gamesTableStatement = "CREATE TABLE IF NOT EXISTS games (" +
                     "game_id INT AUTO_INCREMENT PRIMARY KEY," +
@@ -106,14 +338,92 @@ public class DatabaseManager {
                     "black_username VARCHAR(50)," +
                     "game_name VARCHAR(100) NOT NULL," +
                     "game_state TEXT," +
+                    "game_blob VARBINARY(64)," +
+                    "finished BOOLEAN NOT NULL DEFAULT FALSE," +
+                    "version INT NOT NULL DEFAULT 0," +
                     "FOREIGN KEY (white_username) REFERENCES users(username) ON DELETE SET NULL," +
                     "FOREIGN KEY (black_username) REFERENCES users(username) ON DELETE SET NULL" +
                     ")";
             try (var statement = conn.prepareStatement(gamesTableStatement)) {
                 statement.executeUpdate();
             }
+            // Tables created by earlier versions need the newer columns added
+            addColumnIfMissing(conn, "games", "game_blob", "VARBINARY(64)");
+            boolean finishedAdded = addColumnIfMissing(conn, "games", "finished", "BOOLEAN NOT NULL DEFAULT FALSE");
+            addColumnIfMissing(conn, "games", "version", "INT NOT NULL DEFAULT 0");
+            // Listings page by game_id within a status; the player filters use the foreign key indexes
+            addIndexIfMissing(conn, "games", "idx_games_finished", "(finished, game_id)");
+
+            var movesTableStatement = "CREATE TABLE IF NOT EXISTS game_moves (" +
+                    "game_id INT NOT NULL," +
+                    "ply INT NOT NULL," +
+                    "move SMALLINT NOT NULL," +
+                    "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)," +
+                    "PRIMARY KEY (game_id, ply)," +
+                    "FOREIGN KEY (game_id) REFERENCES games(game_id) ON DELETE CASCADE" +
+                    ")";
+            try (var statement = conn.prepareStatement(movesTableStatement)) {
+                statement.executeUpdate();
+            }
+
+            var snapshotsTableStatement = "CREATE TABLE IF NOT EXISTS game_snapshots (" +
+                    "game_id INT NOT NULL," +
+                    "ply INT NOT NULL," +
+                    "state VARBINARY(64) NOT NULL," +
+                    "PRIMARY KEY (game_id, ply)," +
+                    "FOREIGN KEY (game_id) REFERENCES games(game_id) ON DELETE CASCADE" +
+                    ")";
+            try (var statement = conn.prepareStatement(snapshotsTableStatement)) {
+                statement.executeUpdate();
+            }
+            // Once the snapshots table exists, since event-sourced games keep their state there
+            if (finishedAdded) {
+                SqlGameDAO.backfillFinished(conn);
+            }
         } catch (SQLException e) {
             throw new DataAccessException("failed to create tables", e);
         }
     }
+
+    /**
+     * @return whether the column was added
+     */
+    private static boolean addColumnIfMissing(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        var exists = "SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = ? AND table_name = ? AND column_name = ?";
+        try (var statement = conn.prepareStatement(exists)) {
+            statement.setString(1, databaseName);
+            statement.setString(2, table);
+            statement.setString(3, column);
+            try (var resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return false;
+                }
+            }
+        }
+        try (var statement = conn.prepareStatement("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition)) {
+            statement.executeUpdate();
+        }
+        return true;
+    }
+
+    private static void addIndexIfMissing(Connection conn, String table, String index, String columns)
+            throws SQLException {
+        var exists = "SELECT 1 FROM information_schema.statistics " +
+                "WHERE table_schema = ? AND table_name = ? AND index_name = ?";
+        try (var statement = conn.prepareStatement(exists)) {
+            statement.setString(1, databaseName);
+            statement.setString(2, table);
+            statement.setString(3, index);
+            try (var resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return;
+                }
+            }
+        }
+        try (var statement = conn.prepareStatement("CREATE INDEX " + index + " ON " + table + " " + columns)) {
+            statement.executeUpdate();
+        }
+    }
 }
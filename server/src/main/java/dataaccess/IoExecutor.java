@@ -0,0 +1,156 @@
+package dataaccess;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs blocking data access calls on a bounded pool of threads so callers get a
+ * {@link CompletableFuture} back instead of waiting.
+ * <p>
+ * At most {@link Settings#queueCapacity()} calls wait for a thread. Past that, calls fail
+ * straight away rather than piling up behind a slow database. Stages chained onto a returned
+ * future run on the pool thread that completed it, so keep them short.
+ * <p>
+ * {@link #direct()} runs every call on the caller's thread, for stores that never block.
+ * With virtual threads, the pool still caps how many calls run at once; only the threads
+ * waiting on the store get cheaper.
+ */
+public class IoExecutor implements AutoCloseable {
+
+    /**
+     * Pool limits
+     *
+     * @param threads       calls run at once; more than the connection pool size only adds waiting
+     * @param queueCapacity calls allowed to wait for a thread
+     */
+    public record Settings(int threads, int queueCapacity) {
+        public Settings {
+            if (threads < 1) {
+                throw new IllegalArgumentException("I/O executor needs at least 1 thread");
+            }
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("I/O queue capacity cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * A point-in-time view of executor usage
+     */
+    public record Stats(int threads, int active, int queued, long completed, long rejected) {
+    }
+
+    /**
+     * A data access call that produces a value
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws DataAccessException;
+    }
+
+    /**
+     * A data access call with nothing to return
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws DataAccessException;
+    }
+
+    public static final String BUSY_MESSAGE = "Server is too busy, try again";
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public IoExecutor(Settings settings) {
+        this(settings, false);
+    }
+
+    public IoExecutor(Settings settings, boolean virtualThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        BlockingQueue<Runnable> queue = settings.queueCapacity() == 0
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(settings.queueCapacity());
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("data-io-", 1).factory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "data-io-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 60, TimeUnit.SECONDS, queue, threads);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private IoExecutor() {
+        executor = null;
+    }
+
+    /**
+     * @return an executor that runs calls on the caller's thread and never rejects them
+     */
+    public static IoExecutor direct() {
+        return new IoExecutor();
+    }
+
+    public <T> CompletableFuture<T> supply(Call<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (executor == null) {
+            complete(future, call);
+            return future;
+        }
+        try {
+            executor.execute(() -> complete(future, call));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(new DataAccessException(BUSY_MESSAGE));
+        }
+        return future;
+    }
+
+    public CompletableFuture<Void> run(Action action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public Stats stats() {
+        if (executor == null) {
+            return new Stats(0, 0, 0, 0, rejected.sum());
+        }
+        return new Stats(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                executor.getCompletedTaskCount(), rejected.sum());
+    }
+
+    /**
+     * Stops taking calls and waits briefly for running ones to finish
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, Call<T> call) {
+        try {
+            future.complete(call.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package dataaccess;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An embedded store that keeps its data in memory and every change in an append-only log file.
+ * <p>
+ * Each DAO registers a {@link Table} holding its own in-memory index, then makes changes
+ * through {@link #write}. A change is applied to memory and queued under one store lock, so
+ * the log order always matches the order changes were made. A single writer thread takes
+ * everything queued, writes it with one call and, with {@link Settings#syncWrites()} on,
+ * forces it to disk once for the whole batch. Writers wait until their batch is written, so
+ * many concurrent writers share one sync. Readers go straight to the tables' maps and never
+ * wait on the log; they can see a change a moment before it is durable.
+ * <p>
+ * Once the log has grown past {@link Settings#compactAfterBytes()} and past the size of the
+ * last snapshot, the writer replaces it with a snapshot of the current state. At startup the
+ * log is replayed into the tables; a record cut short by a crash is dropped.
+ * <p>
+ * If the log cannot be written, the store stops accepting changes, since memory and disk no
+ * longer agree.
+ */
+public class LogStore implements AutoCloseable {
+
+    /**
+     * Where the log lives and how hard to work at keeping it
+     *
+     * @param syncWrites        force each batch to disk before acknowledging it
+     * @param compactAfterBytes how much the log may grow before compacting, or 0 never to compact
+     */
+    public record Settings(Path directory, boolean syncWrites, long compactAfterBytes) {
+        public Settings {
+            if (compactAfterBytes < 0) {
+                throw new IllegalArgumentException("Compaction threshold cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * A point-in-time view of log activity
+     */
+    public record Stats(long logBytes, long records, long commits, long compactions) {
+    }
+
+    /**
+     * The body of one log record, after the table ID
+     */
+    @FunctionalInterface
+    public interface Record {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * The in-memory state one DAO keeps in the store
+     */
+    public interface Table {
+        /**
+         * Applies one record while the log is replayed at startup
+         */
+        void replay(DataInputStream in) throws IOException;
+
+        /**
+         * Adds records that rebuild the table's current state. Called under the store lock.
+         */
+        void snapshot(List<Record> records);
+    }
+
+    /**
+     * A change to a table, run under the store lock
+     */
+    @FunctionalInterface
+    public interface Change {
+        /**
+         * @return the record to log, or null if nothing changed
+         */
+        Record apply() throws DataAccessException;
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogStore.class);
+
+    private static final String LOG_FILE = "chess.log";
+    private static final String COMPACT_FILE = "chess.log.compact";
+    private static final String LOCK_FILE = "chess.lock";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Settings settings;
+    private final Path logPath;
+    private final Map<Byte, Table> tables = new HashMap<>();
+    // A lock rather than a monitor, so virtual threads waiting for it release their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    // Guarded by lock
+    private final ArrayDeque<PendingWrite> queue = new ArrayDeque<>();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    // Only touched by the writer thread once the store is open
+    private FileChannel log;
+    private long snapshotBytes;
+    private volatile long logBytes;
+    private FileChannel lockChannel;
+    private FileLock fileLock;
+    private Thread writer;
+    private boolean closed = false;
+    private volatile IOException failure;
+
+    public LogStore(Settings settings) {
+        this.settings = settings;
+        this.logPath = settings.directory().resolve(LOG_FILE);
+    }
+
+    /**
+     * Adds a table before the store is opened
+     */
+    public void register(byte tableID, Table table) {
+        if (writer != null) {
+            throw new IllegalStateException("Tables must be registered before the store is opened");
+        }
+        if (tables.putIfAbsent(tableID, table) != null) {
+            throw new IllegalArgumentException("Table " + tableID + " is already registered");
+        }
+    }
+
+    /**
+     * Replays the log into the registered tables and starts accepting changes
+     */
+    public void open() throws DataAccessException {
+        try {
+            Files.createDirectories(settings.directory());
+            lockChannel = FileChannel.open(settings.directory().resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                fileLock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // Another store in this process already holds it
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                lockChannel.close();
+                throw new DataAccessException("Log directory " + settings.directory() + " is in use by another server");
+            }
+            // Left over from a compaction that never finished; the old log is still complete
+            Files.deleteIfExists(settings.directory().resolve(COMPACT_FILE));
+
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long valid = replay();
+            if (valid < log.size()) {
+                LOG.warn("Dropping {} bytes of incomplete log at {}", log.size() - valid, logPath);
+                log.truncate(valid);
+            }
+            log.position(valid);
+            logBytes = valid;
+            snapshotBytes = valid;
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to open log " + logPath, e);
+        }
+        writer = new Thread(this::writeLoop, "log-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Applies a change and waits until it is in the log
+     *
+     * @return whether anything was logged
+     */
+    public boolean write(byte tableID, Change change) throws DataAccessException {
+        PendingWrite pending;
+        lock.lock();
+        try {
+            if (closed || writer == null) {
+                throw new DataAccessException("Log store is not open");
+            }
+            if (failure != null) {
+                throw new DataAccessException("Log store stopped after a write failed", failure);
+            }
+            Record record = change.apply();
+            if (record == null) {
+                return false;
+            }
+            try {
+                pending = new PendingWrite(frame(tableID, record));
+            } catch (IOException e) {
+                throw new DataAccessException("Failed to encode log record", e);
+            }
+            queue.add(pending);
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        pending.await();
+        return true;
+    }
+
+    public Stats stats() {
+        return new Stats(logBytes, records.sum(), commits.sum(), compactions.sum());
+    }
+
+    /**
+     * Writes everything queued and releases the log
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (writer != null) {
+                writer.join();
+            }
+            if (log != null) {
+                log.force(true);
+                log.close();
+            }
+            if (fileLock != null) {
+                fileLock.release();
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to close log {}", logPath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * @return the length of the log up to the last complete record
+     */
+    private long replay() throws IOException, DataAccessException {
+        long valid = 0;
+        var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.position(0)), 1 << 16));
+        byte[] header = new byte[HEADER_BYTES];
+        while (true) {
+            try {
+                in.readFully(header);
+            } catch (EOFException e) {
+                return valid;
+            }
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            int length = headerBuffer.getInt();
+            int checksum = headerBuffer.getInt();
+            if (length < 1 || length > MAX_RECORD_BYTES) {
+                return valid;
+            }
+            byte[] body = new byte[length];
+            try {
+                in.readFully(body);
+            } catch (EOFException e) {
+                return valid;
+            }
+            var crc = new CRC32C();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                return valid;
+            }
+            Table table = tables.get(body[0]);
+            if (table == null) {
+                throw new DataAccessException("Log " + logPath + " has records for unknown table " + body[0]);
+            }
+            table.replay(new DataInputStream(new ByteArrayInputStream(body, 1, length - 1)));
+            valid += HEADER_BYTES + length;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<PendingWrite> batch;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    // Only close() stops the writer, so queued writes are never stranded
+                    queued.awaitUninterruptibly();
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(queue);
+                queue.clear();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                append(batch);
+            } catch (IOException e) {
+                fail(batch, e);
+                return;
+            }
+            if (settings.compactAfterBytes() > 0 &&
+                    logBytes - snapshotBytes > Math.max(settings.compactAfterBytes(), snapshotBytes)) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    fail(List.of(), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void append(List<PendingWrite> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i).bytes);
+            total += buffers[i].remaining();
+        }
+        long written = 0;
+        while (written < total) {
+            written += log.write(buffers);
+        }
+        if (settings.syncWrites()) {
+            log.force(false);
+        }
+        logBytes += total;
+        records.add(batch.size());
+        commits.increment();
+        for (PendingWrite pending : batch) {
+            pending.complete(null);
+        }
+    }
+
+    /**
+     * Replaces the log with one record per live entry. Writes queued while the snapshot is
+     * taken are already part of it, so they are acknowledged once the new log is in place.
+     */
+    private void compact() throws IOException {
+        var snapshot = new ByteArrayOutputStream();
+        List<PendingWrite> covered;
+        lock.lock();
+        try {
+            for (var entry : tables.entrySet()) {
+                List<Record> tableRecords = new ArrayList<>();
+                entry.getValue().snapshot(tableRecords);
+                for (Record record : tableRecords) {
+                    snapshot.write(frame(entry.getKey(), record));
+                }
+            }
+            covered = new ArrayList<>(queue);
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        Path compactPath = settings.directory().resolve(COMPACT_FILE);
+        try {
+            try (var out = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot.toByteArray());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(compactPath, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The old log is untouched, so keep using it and try again after more writes
+            LOG.warn("Failed to compact log {}", logPath, e);
+            Files.deleteIfExists(compactPath);
+            snapshotBytes = logBytes;
+            append(covered);
+            return;
+        }
+        syncDirectory();
+        log.close();
+        log = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        log.position(log.size());
+        logBytes = log.size();
+        snapshotBytes = logBytes;
+        compactions.increment();
+        for (PendingWrite pending : covered) {
+            pending.complete(null);
+        }
+    }
+
+    private void syncDirectory() {
+        // Makes the rename durable; not every platform can open a directory, so this is best effort
+        try (var directory = FileChannel.open(settings.directory(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // The rename is still atomic, only its durability is up to the OS
+        }
+    }
+
+    private void fail(List<PendingWrite> batch, IOException e) {
+        LOG.error("Log store {} stopped", logPath, e);
+        List<PendingWrite> stranded;
+        lock.lock();
+        try {
+            failure = e;
+            stranded = new ArrayList<>(queue);
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (PendingWrite pending : batch) {
+            pending.complete(e);
+        }
+        for (PendingWrite pending : stranded) {
+            pending.complete(e);
+        }
+    }
+
+    /**
+     * Lays out a record as its body length, a CRC32C of the body, then the body: the table
+     * ID followed by the table's own fields
+     */
+    private static byte[] frame(byte tableID, Record record) throws IOException {
+        var bytes = new ByteArrayOutputStream(64);
+        var out = new DataOutputStream(bytes);
+        out.writeLong(0);
+        out.writeByte(tableID);
+        record.writeTo(out);
+        byte[] framed = bytes.toByteArray();
+        int length = framed.length - HEADER_BYTES;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IOException("Log record is too large: " + length + " bytes");
+        }
+        var crc = new CRC32C();
+        crc.update(framed, HEADER_BYTES, length);
+        ByteBuffer.wrap(framed).putInt(0, length).putInt(4, (int) crc.getValue());
+        return framed;
+    }
+
+    /**
+     * One framed record waiting for the writer
+     */
+    private static final class PendingWrite {
+        private final byte[] bytes;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IOException error;
+
+        private PendingWrite(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void complete(IOException error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        private void await() throws DataAccessException {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // The change is already in memory, so wait for the log to catch up regardless
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (error != null) {
+                throw new DataAccessException("Failed to write to the log", error);
+            }
+        }
+    }
+}
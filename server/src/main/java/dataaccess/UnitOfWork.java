@@ -0,0 +1,24 @@
+package dataaccess;
+
+/**
+ * Runs several data access calls as one operation.
+ * <p>
+ * For the database, every DAO call the work makes on the calling thread shares one connection
+ * and one transaction, committed when the work returns and rolled back if it throws. Work
+ * started inside other work joins the outer transaction. Run the work on a single thread,
+ * e.g. inside one {@link IoExecutor#supply} call, since the connection is tied to the thread.
+ */
+public interface UnitOfWork {
+
+    /**
+     * For stores whose calls are each atomic and need no connection; runs the work as is
+     */
+    UnitOfWork NONE = new UnitOfWork() {
+        @Override
+        public <T> T run(IoExecutor.Call<T> work) throws DataAccessException {
+            return work.call();
+        }
+    };
+
+    <T> T run(IoExecutor.Call<T> work) throws DataAccessException;
+}
@@ -0,0 +1,36 @@
+package dataaccess.auth;
+
+import dataaccess.IoExecutor;
+import model.AuthData;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs {@link AuthDAO} calls on an {@link IoExecutor}, so a slow store holds an I/O thread
+ * rather than the request thread
+ */
+public class AsyncAuthDAO {
+    private final AuthDAO authDAO;
+    private final IoExecutor io;
+
+    public AsyncAuthDAO(AuthDAO authDAO, IoExecutor io) {
+        this.authDAO = authDAO;
+        this.io = io;
+    }
+
+    public CompletableFuture<Void> clear() {
+        return io.run(authDAO::clear);
+    }
+
+    public CompletableFuture<Void> createAuth(AuthData auth) {
+        return io.run(() -> authDAO.createAuth(auth));
+    }
+
+    public CompletableFuture<AuthData> getAuth(String authToken) {
+        return io.supply(() -> authDAO.getAuth(authToken));
+    }
+
+    public CompletableFuture<Void> deleteAuth(String authToken) {
+        return io.run(() -> authDAO.deleteAuth(authToken));
+    }
+}
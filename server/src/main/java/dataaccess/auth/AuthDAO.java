@@ -3,9 +3,26 @@ package dataaccess.auth;
 import dataaccess.DataAccessException;
 import model.AuthData;
 
+import java.util.UUID;
+
 public interface AuthDAO {
     void clear() throws DataAccessException;
     void createAuth(AuthData auth) throws DataAccessException;
     AuthData getAuth(String authToken) throws DataAccessException;
     void deleteAuth(String authToken) throws DataAccessException;
+
+    /**
+     * Deletes at most limit sessions last used before the cutoff, so a sweep can work
+     * through a backlog in small steps
+     *
+     * @return how many sessions were deleted
+     */
+    int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException;
+
+    /**
+     * Makes a token for a new session of the user, to save with {@link #createAuth}
+     */
+    default String newToken(String username) {
+        return UUID.randomUUID().toString();
+    }
 }
@@ -0,0 +1,126 @@
+package dataaccess.auth;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import dataaccess.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes expired sessions in the background so the auth store stops growing with every login.
+ * <p>
+ * Each sweep deletes in batches of {@link Settings#batchSize()} and pauses between them, so a
+ * large backlog, e.g. after a long outage, never holds locks for long or crowds out logins.
+ */
+public class AuthSweeper implements AutoCloseable {
+
+    /**
+     * @param intervalMillis how often to sweep
+     * @param batchSize      the most sessions one delete removes
+     * @param pauseMillis    how long to wait between batches of one sweep
+     */
+    public record Settings(long intervalMillis, int batchSize, long pauseMillis) {
+        public Settings {
+            if (intervalMillis <= 0 || batchSize < 1 || pauseMillis < 0) {
+                throw new IllegalArgumentException("Invalid auth sweeper settings");
+            }
+        }
+
+        /**
+         * Reads chess.auth.sweepMs (default a minute), chess.auth.sweepBatch (default 500) and
+         * chess.auth.sweepPauseMs (default 10), or their CHESS_AUTH_* environment variables
+         */
+        public static Settings fromEnvironment() {
+            return new Settings(
+                    TokenPolicy.setting("chess.auth.sweepMs", "CHESS_AUTH_SWEEP_MS", 60_000),
+                    (int) TokenPolicy.setting("chess.auth.sweepBatch", "CHESS_AUTH_SWEEP_BATCH", 500),
+                    TokenPolicy.setting("chess.auth.sweepPauseMs", "CHESS_AUTH_SWEEP_PAUSE_MS", 10));
+        }
+    }
+
+    /**
+     * A point-in-time view of sweeping
+     */
+    public record Stats(long sweeps, long deleted, long failedSweeps) {
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuthSweeper.class);
+
+    private final AuthDAO authDAO;
+    private final TokenPolicy policy;
+    private final Settings settings;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auth-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder failedSweeps = new LongAdder();
+
+    public AuthSweeper(AuthDAO authDAO, TokenPolicy policy, Settings settings) {
+        this.authDAO = authDAO;
+        this.policy = policy;
+        this.settings = settings;
+    }
+
+    /**
+     * Starts sweeping every interval; does nothing if tokens never expire
+     */
+    public void start() {
+        if (policy.expires()) {
+            sweeper.scheduleWithFixedDelay(this::sweep, settings.intervalMillis(), settings.intervalMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Deletes every session that had expired when the sweep began
+     *
+     * @return how many sessions were deleted
+     */
+    public int sweepOnce() throws DataAccessException {
+        if (!policy.expires()) {
+            return 0;
+        }
+        long cutoff = policy.expiryCutoff(System.currentTimeMillis());
+        int total = 0;
+        while (true) {
+            int batch = authDAO.deleteExpiredAuths(cutoff, settings.batchSize());
+            total += batch;
+            deleted.add(batch);
+            if (batch < settings.batchSize()) {
+                break;
+            }
+            try {
+                Thread.sleep(settings.pauseMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        sweeps.increment();
+        return total;
+    }
+
+    private void sweep() {
+        try {
+            sweepOnce();
+        } catch (DataAccessException | RuntimeException e) {
+            failedSweeps.increment();
+            LOG.warn("Failed to sweep expired sessions", e);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(sweeps.sum(), deleted.sum(), failedSweeps.sum());
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,168 @@
+package dataaccess.auth;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import dataaccess.DataAccessException;
+import model.AuthData;
+
+/**
+ * Keeps recently used auth tokens in memory in front of another {@link AuthDAO}.
+ * <p>
+ * A cached token is answered with one map lookup. Entries live for at most the TTL, and
+ * the cache stays near its maximum size. When it fills up, one sweep trims it to 90% of
+ * the maximum, so the scan is paid once per batch of inserts rather than on every one.
+ * {@link #deleteAuth} and {@link #clear} remove entries before they return, so a logged-out
+ * token stops working on this server immediately. Tokens deleted by another server stay
+ * valid here until their entry expires. Unknown tokens are not cached, so a token created
+ * elsewhere is found on first use.
+ */
+public class CachingAuthDAO implements AuthDAO {
+
+    /**
+     * Cache limits
+     */
+    public record Settings(long ttlMillis, int maxSize) {
+        public Settings {
+            if (ttlMillis <= 0 || maxSize < 1) {
+                throw new IllegalArgumentException("Auth cache needs a positive TTL and size");
+            }
+        }
+    }
+
+    /**
+     * A point-in-time view of cache usage
+     */
+    public record Stats(int size, long hits, long misses, long evictions, long sweeps) {
+    }
+
+    private record Entry(AuthData auth, long expiresAtNanos) {
+    }
+
+    private final AuthDAO delegate;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final int trimmedSize;
+    // Only one inserter sweeps at a time; the others insert without waiting for it
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a lookup that raced a logout does not re-cache the token
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder sweeps = new LongAdder();
+
+    public CachingAuthDAO(AuthDAO delegate, Settings settings) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(settings.ttlMillis());
+        this.maxSize = settings.maxSize();
+        this.trimmedSize = maxSize - Math.max(1, maxSize / 10);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try {
+            delegate.clear();
+        } finally {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        long generation = invalidations.get();
+        delegate.createAuth(auth);
+        // A new session is usually used straight away, so start it warm
+        cache(auth, generation);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return delegate.getAuth(null);
+        }
+        Entry entry = entries.get(authToken);
+        if (entry != null) {
+            if (System.nanoTime() - entry.expiresAtNanos() < 0) {
+                hits.increment();
+                return entry.auth();
+            }
+            entries.remove(authToken, entry);
+        }
+
+        misses.increment();
+        long generation = invalidations.get();
+        AuthData auth = delegate.getAuth(authToken);
+        if (auth != null) {
+            cache(auth, generation);
+        }
+        return auth;
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        try {
+            delegate.deleteAuth(authToken);
+        } finally {
+            invalidations.incrementAndGet();
+            if (authToken != null) {
+                entries.remove(authToken);
+            }
+        }
+    }
+
+    /**
+     * Expired tokens are not looked up from the cache; entries never outlive the cache TTL anyway
+     */
+    @Override
+    public int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException {
+        return delegate.deleteExpiredAuths(usedBeforeMillis, limit);
+    }
+
+    @Override
+    public String newToken(String username) {
+        return delegate.newToken(username);
+    }
+
+    public Stats stats() {
+        return new Stats(entries.size(), hits.sum(), misses.sum(), evictions.sum(), sweeps.sum());
+    }
+
+    private void cache(AuthData auth, long generation) {
+        if (entries.size() >= maxSize && sweeping.compareAndSet(false, true)) {
+            try {
+                makeRoom();
+            } finally {
+                sweeping.set(false);
+            }
+        }
+        entries.put(auth.authToken(), new Entry(auth, System.nanoTime() + ttlNanos));
+        // An invalidation between reading the store and caching could have been for this
+        // token, so back the entry out rather than risk reviving a deleted token
+        if (invalidations.get() != generation) {
+            entries.remove(auth.authToken());
+        }
+    }
+
+    /**
+     * Drops expired entries, then arbitrary ones until the cache is back down to its trimmed size
+     */
+    private void makeRoom() {
+        sweeps.increment();
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos() >= 0);
+        Iterator<String> tokens = entries.keySet().iterator();
+        while (entries.size() > trimmedSize && tokens.hasNext()) {
+            tokens.next();
+            tokens.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+import dataaccess.LogStore;
+import model.AuthData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps sessions in memory and logs every change to a {@link LogStore}, so logins survive
+ * a restart. Sessions expire and are capped by a {@link TokenPolicy}; a login that ends
+ * older sessions logs them in the same record, so replay sees the cap applied atomically.
+ */
+public class FileAuthDAO implements AuthDAO {
+    static final byte TABLE = 2;
+
+    // Written by versions without expiry; replayed sessions start their clock at startup
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte LOGIN = 4;
+    private static final byte TOUCH = 5;
+    private static final byte EXPIRE = 6;
+
+    private final LogStore store;
+    private final TokenPolicy policy;
+    private final SessionTable sessions = new SessionTable();
+
+    /**
+     * Registers the auth table with sessions that last until logout; call before the store is opened
+     */
+    public FileAuthDAO(LogStore store) {
+        this(store, TokenPolicy.UNLIMITED);
+    }
+
+    /**
+     * Registers the auth table; call before the store is opened
+     */
+    public FileAuthDAO(LogStore store, TokenPolicy policy) {
+        this.store = store;
+        this.policy = policy;
+        store.register(TABLE, new AuthTable());
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.write(TABLE, () -> {
+            sessions.clear();
+            return out -> out.writeByte(CLEAR);
+        });
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        store.write(TABLE, () -> {
+            long now = System.currentTimeMillis();
+            if (!sessions.add(auth, now)) {
+                throw new DataAccessException("Failed to create auth");
+            }
+            List<String> ended = sessions.overCap(auth.username(), policy.maxPerUser(), auth.authToken());
+            ended.forEach(sessions::remove);
+            return out -> {
+                out.writeByte(LOGIN);
+                writeSession(out, auth, now);
+                writeTokens(out, ended);
+            };
+        });
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return null;
+        }
+        SessionTable.Session session = sessions.get(authToken);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (policy.isExpired(session.lastUsed(), now)) {
+            return null;
+        }
+        if (policy.needsRefresh(session.lastUsed(), now)) {
+            store.write(TABLE, () -> sessions.touch(authToken, now) ? out -> {
+                out.writeByte(TOUCH);
+                LogStore.writeString(out, authToken);
+                out.writeLong(now);
+            } : null);
+        }
+        return session.auth();
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return;
+        }
+        store.write(TABLE, () -> sessions.remove(authToken) ? out -> {
+            out.writeByte(DELETE);
+            LogStore.writeString(out, authToken);
+        } : null);
+    }
+
+    @Override
+    public int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException {
+        List<String> expired = new ArrayList<>();
+        store.write(TABLE, () -> {
+            for (String token : sessions.usedBefore(usedBeforeMillis, limit)) {
+                if (sessions.removeIfUsedBefore(token, usedBeforeMillis)) {
+                    expired.add(token);
+                }
+            }
+            return expired.isEmpty() ? null : out -> {
+                out.writeByte(EXPIRE);
+                writeTokens(out, expired);
+            };
+        });
+        return expired.size();
+    }
+
+    private static void writeSession(DataOutputStream out, AuthData auth, long lastUsed) throws IOException {
+        LogStore.writeString(out, auth.authToken());
+        LogStore.writeString(out, auth.username());
+        out.writeLong(lastUsed);
+    }
+
+    private static void writeTokens(DataOutputStream out, List<String> tokens) throws IOException {
+        out.writeInt(tokens.size());
+        for (String token : tokens) {
+            LogStore.writeString(out, token);
+        }
+    }
+
+    private static List<String> readTokens(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(LogStore.readString(in));
+        }
+        return tokens;
+    }
+
+    private class AuthTable implements LogStore.Table {
+        @Override
+        public void replay(DataInputStream in) throws IOException {
+            switch (in.readByte()) {
+                case PUT -> sessions.put(new AuthData(LogStore.readString(in), LogStore.readString(in)),
+                        System.currentTimeMillis());
+                case LOGIN -> {
+                    var auth = new AuthData(LogStore.readString(in), LogStore.readString(in));
+                    sessions.put(auth, in.readLong());
+                    readTokens(in).forEach(sessions::remove);
+                }
+                case TOUCH -> sessions.touch(LogStore.readString(in), in.readLong());
+                case DELETE -> sessions.remove(LogStore.readString(in));
+                case EXPIRE -> readTokens(in).forEach(sessions::remove);
+                case CLEAR -> sessions.clear();
+                default -> throw new IOException("Unknown auth record");
+            }
+        }
+
+        @Override
+        public void snapshot(List<LogStore.Record> records) {
+            for (SessionTable.Session session : sessions.sessions()) {
+                records.add(out -> {
+                    out.writeByte(LOGIN);
+                    writeSession(out, session.auth(), session.lastUsed());
+                    writeTokens(out, List.of());
+                });
+            }
+        }
+    }
+}
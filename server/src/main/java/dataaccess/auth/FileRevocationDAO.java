@@ -0,0 +1,98 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+import dataaccess.LogStore;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps revoked token IDs in memory and logs every change to a {@link LogStore}, so logouts
+ * stay in force across a restart
+ */
+public class FileRevocationDAO implements RevocationDAO {
+    static final byte TABLE = 4;
+
+    private static final byte REVOKE = 1;
+    private static final byte CLEAR = 2;
+    private static final byte EXPIRE = 3;
+
+    private final LogStore store;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the revocation table; call before the store is opened
+     */
+    public FileRevocationDAO(LogStore store) {
+        this.store = store;
+        store.register(TABLE, new RevocationTable());
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.write(TABLE, () -> {
+            revoked.clear();
+            return out -> out.writeByte(CLEAR);
+        });
+    }
+
+    @Override
+    public void revoke(String tokenId, long expiresAtMillis) throws DataAccessException {
+        store.write(TABLE, () -> {
+            revoked.put(tokenId, expiresAtMillis);
+            return revocation(tokenId, expiresAtMillis);
+        });
+    }
+
+    @Override
+    public Map<String, Long> activeRevocations(long nowMillis) throws DataAccessException {
+        Map<String, Long> active = new HashMap<>();
+        revoked.forEach((tokenId, expiresAt) -> {
+            if (expiresAt > nowMillis) {
+                active.put(tokenId, expiresAt);
+            }
+        });
+        return active;
+    }
+
+    @Override
+    public void deleteExpiredRevocations(long nowMillis) throws DataAccessException {
+        // Logged as the cutoff, so replay drops exactly what was dropped here
+        store.write(TABLE, () -> revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis) ? out -> {
+            out.writeByte(EXPIRE);
+            out.writeLong(nowMillis);
+        } : null);
+    }
+
+    private static LogStore.Record revocation(String tokenId, long expiresAtMillis) {
+        return out -> {
+            out.writeByte(REVOKE);
+            LogStore.writeString(out, tokenId);
+            out.writeLong(expiresAtMillis);
+        };
+    }
+
+    private class RevocationTable implements LogStore.Table {
+        @Override
+        public void replay(DataInputStream in) throws IOException {
+            switch (in.readByte()) {
+                case REVOKE -> revoked.put(LogStore.readString(in), in.readLong());
+                case CLEAR -> revoked.clear();
+                case EXPIRE -> {
+                    long cutoff = in.readLong();
+                    revoked.values().removeIf(expiresAt -> expiresAt <= cutoff);
+                }
+                default -> throw new IOException("Unknown revocation record");
+            }
+        }
+
+        @Override
+        public void snapshot(List<LogStore.Record> records) {
+            revoked.forEach((tokenId, expiresAt) -> records.add(revocation(tokenId, expiresAt)));
+        }
+    }
+}
@@ -2,34 +2,71 @@ package dataaccess.auth;
 
 import dataaccess.DataAccessException;
 import model.AuthData;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * Keeps sessions in process memory, expiring and capping them by a {@link TokenPolicy}
+ */
 public class MemoryAuthDAO implements AuthDAO {
-    private final List<AuthData> auths = new ArrayList<>();
+    private final SessionTable sessions = new SessionTable();
+    private final TokenPolicy policy;
+
+    public MemoryAuthDAO() {
+        this(TokenPolicy.UNLIMITED);
+    }
+
+    public MemoryAuthDAO(TokenPolicy policy) {
+        this.policy = policy;
+    }
 
     @Override
     public void clear() throws DataAccessException {
-        auths.clear();
+        sessions.clear();
     }
 
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
-        auths.add(auth);
+        if (!sessions.add(auth, System.currentTimeMillis())) {
+            throw new DataAccessException("Failed to create auth");
+        }
+        for (String token : sessions.overCap(auth.username(), policy.maxPerUser(), auth.authToken())) {
+            sessions.remove(token);
+        }
     }
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        for (AuthData auth : auths) {
-            if (auth.authToken().equals(authToken)) {
-                return auth;
-            }
+        if (authToken == null) {
+            return null;
+        }
+        SessionTable.Session session = sessions.get(authToken);
+        if (session == null) {
+            return null;
         }
-        return null;
+        long now = System.currentTimeMillis();
+        if (policy.isExpired(session.lastUsed(), now)) {
+            return null;
+        }
+        if (policy.needsRefresh(session.lastUsed(), now)) {
+            sessions.touch(authToken, now);
+        }
+        return session.auth();
     }
 
     @Override
     public void deleteAuth(String authToken) throws DataAccessException {
-        auths.removeIf(auth -> auth.authToken().equals(authToken));
+        if (authToken != null) {
+            sessions.remove(authToken);
+        }
+    }
+
+    @Override
+    public int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException {
+        int deleted = 0;
+        for (String token : sessions.usedBefore(usedBeforeMillis, limit)) {
+            if (sessions.removeIfUsedBefore(token, usedBeforeMillis)) {
+                deleted++;
+            }
+        }
+        return deleted;
     }
 }
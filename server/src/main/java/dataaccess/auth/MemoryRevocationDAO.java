@@ -0,0 +1,37 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemoryRevocationDAO implements RevocationDAO {
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    @Override
+    public void clear() throws DataAccessException {
+        revoked.clear();
+    }
+
+    @Override
+    public void revoke(String tokenId, long expiresAtMillis) throws DataAccessException {
+        revoked.put(tokenId, expiresAtMillis);
+    }
+
+    @Override
+    public Map<String, Long> activeRevocations(long nowMillis) throws DataAccessException {
+        Map<String, Long> active = new HashMap<>();
+        revoked.forEach((tokenId, expiresAt) -> {
+            if (expiresAt > nowMillis) {
+                active.put(tokenId, expiresAt);
+            }
+        });
+        return active;
+    }
+
+    @Override
+    public void deleteExpiredRevocations(long nowMillis) throws DataAccessException {
+        revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+    }
+}
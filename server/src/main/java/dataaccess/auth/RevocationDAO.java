@@ -0,0 +1,25 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+
+import java.util.Map;
+
+/**
+ * Signed tokens that were logged out before they expired. Entries only need to outlive
+ * their tokens, so the set stays as small as the logouts within one token lifetime.
+ */
+public interface RevocationDAO {
+    void clear() throws DataAccessException;
+
+    void revoke(String tokenId, long expiresAtMillis) throws DataAccessException;
+
+    /**
+     * @return when each revoked token that has not expired yet expires, by token ID
+     */
+    Map<String, Long> activeRevocations(long nowMillis) throws DataAccessException;
+
+    /**
+     * Forgets revocations whose tokens have expired and would be rejected anyway
+     */
+    void deleteExpiredRevocations(long nowMillis) throws DataAccessException;
+}
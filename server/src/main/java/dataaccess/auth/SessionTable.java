@@ -0,0 +1,129 @@
+package dataaccess.auth;
+
+import model.AuthData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The sessions the memory and file stores keep in memory, indexed by token and by user.
+ * Lookups go straight to the maps; changes are serialized so both indexes stay in step.
+ */
+class SessionTable {
+
+    record Session(AuthData auth, long lastUsed) {
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+
+    Session get(String authToken) {
+        return sessions.get(authToken);
+    }
+
+    /**
+     * @return false if the token is already in use
+     */
+    synchronized boolean add(AuthData auth, long lastUsed) {
+        if (sessions.containsKey(auth.authToken())) {
+            return false;
+        }
+        put(auth, lastUsed);
+        return true;
+    }
+
+    synchronized void put(AuthData auth, long lastUsed) {
+        Session previous = sessions.put(auth.authToken(), new Session(auth, lastUsed));
+        if (previous == null) {
+            tokensByUser.computeIfAbsent(auth.username(), user -> ConcurrentHashMap.newKeySet()).add(auth.authToken());
+        }
+    }
+
+    /**
+     * @return whether the token was found
+     */
+    synchronized boolean touch(String authToken, long lastUsed) {
+        Session session = sessions.get(authToken);
+        if (session == null) {
+            return false;
+        }
+        sessions.put(authToken, new Session(session.auth(), Math.max(session.lastUsed(), lastUsed)));
+        return true;
+    }
+
+    synchronized boolean remove(String authToken) {
+        Session session = sessions.remove(authToken);
+        if (session == null) {
+            return false;
+        }
+        Set<String> tokens = tokensByUser.get(session.auth().username());
+        if (tokens != null) {
+            tokens.remove(authToken);
+            if (tokens.isEmpty()) {
+                tokensByUser.remove(session.auth().username());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the session only if it has not been used since the cutoff, so a sweep cannot
+     * end a session that was refreshed after the sweep found it
+     */
+    synchronized boolean removeIfUsedBefore(String authToken, long cutoff) {
+        Session session = sessions.get(authToken);
+        return session != null && session.lastUsed() < cutoff && remove(authToken);
+    }
+
+    synchronized void clear() {
+        sessions.clear();
+        tokensByUser.clear();
+    }
+
+    /**
+     * @return the user's sessions past the newest max, apart from the one to keep
+     */
+    synchronized List<String> overCap(String username, int max, String keep) {
+        Set<String> tokens = tokensByUser.get(username);
+        if (max <= 0 || tokens == null || tokens.size() <= max) {
+            return List.of();
+        }
+        List<Session> others = new ArrayList<>();
+        for (String token : tokens) {
+            Session session = sessions.get(token);
+            if (session != null && !token.equals(keep)) {
+                others.add(session);
+            }
+        }
+        others.sort(Comparator.comparingLong(Session::lastUsed).reversed());
+        List<String> extra = new ArrayList<>();
+        for (Session session : others.subList(Math.min(others.size(), max - 1), others.size())) {
+            extra.add(session.auth().authToken());
+        }
+        return extra;
+    }
+
+    /**
+     * @return at most limit tokens last used before the cutoff
+     */
+    List<String> usedBefore(long cutoff, int limit) {
+        List<String> expired = new ArrayList<>();
+        for (Session session : sessions.values()) {
+            if (expired.size() >= limit) {
+                break;
+            }
+            if (session.lastUsed() < cutoff) {
+                expired.add(session.auth().authToken());
+            }
+        }
+        return expired;
+    }
+
+    Iterable<Session> sessions() {
+        return sessions.values();
+    }
+}
@@ -0,0 +1,164 @@
+package dataaccess.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import dataaccess.DataAccessException;
+import model.AuthData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Issues signed tokens and checks them in memory, in front of another {@link AuthDAO} that
+ * keeps handling the UUID tokens issued before signing was turned on.
+ * <p>
+ * A signed token is valid if its signature and expiry check out and it has not been
+ * revoked, so looking one up takes no I/O. Logging out revokes the token in a
+ * {@link RevocationDAO}; revocations are kept in memory and reloaded every
+ * {@link TokenSigner.Settings#revocationSyncMillis()}, so a logout on another server takes
+ * effect here within that interval. A logout on this server takes effect immediately.
+ * <p>
+ * Signed tokens do not slide and are not counted against the per-user cap; they last their
+ * full TTL unless revoked. {@link #clear} rejects every signed token issued before it, on
+ * this server and until it restarts.
+ */
+public class SignedAuthDAO implements AuthDAO, AutoCloseable {
+
+    /**
+     * A point-in-time view of token checks
+     *
+     * @param stored lookups of unsigned tokens handed to the stored sessions
+     */
+    public record Stats(long verified, long rejected, long stored, int revoked, long failedSyncs) {
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(SignedAuthDAO.class);
+
+    private final AuthDAO delegate;
+    private final TokenSigner signer;
+    private final RevocationDAO revocations;
+    private final long syncIntervalMillis;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile long notBeforeMillis = 0;
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "revocation-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder failedSyncs = new LongAdder();
+
+    /**
+     * Loads the current revocations; call {@link #start()} to keep them in sync
+     */
+    public SignedAuthDAO(AuthDAO delegate, TokenSigner signer, RevocationDAO revocations,
+                         TokenSigner.Settings settings) throws DataAccessException {
+        this.delegate = delegate;
+        this.signer = signer;
+        this.revocations = revocations;
+        this.syncIntervalMillis = settings.revocationSyncMillis();
+        sync();
+    }
+
+    public void start() {
+        syncer.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (DataAccessException | RuntimeException e) {
+                // Keep using what was loaded; logouts made here are already in it
+                failedSyncs.increment();
+                LOG.warn("Failed to load revoked tokens", e);
+            }
+        }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String newToken(String username) {
+        return signer.sign(username, System.currentTimeMillis());
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        // A signed token carries everything needed to check it, so there is nothing to store
+        if (!TokenSigner.isSigned(auth.authToken())) {
+            delegate.createAuth(auth);
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (!TokenSigner.isSigned(authToken)) {
+            stored.increment();
+            return delegate.getAuth(authToken);
+        }
+        TokenSigner.Claims claims = signer.verify(authToken, System.currentTimeMillis());
+        if (claims == null || claims.issuedAtMillis() < notBeforeMillis || revoked.containsKey(claims.tokenId())) {
+            rejected.increment();
+            return null;
+        }
+        verified.increment();
+        return new AuthData(authToken, claims.username());
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (!TokenSigner.isSigned(authToken)) {
+            delegate.deleteAuth(authToken);
+            return;
+        }
+        TokenSigner.Claims claims = signer.verify(authToken, System.currentTimeMillis());
+        if (claims == null) {
+            return;
+        }
+        revocations.revoke(claims.tokenId(), claims.expiresAtMillis());
+        revoked.put(claims.tokenId(), claims.expiresAtMillis());
+    }
+
+    /**
+     * Also forgets revocations of tokens that have since expired
+     */
+    @Override
+    public int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException {
+        long now = System.currentTimeMillis();
+        revocations.deleteExpiredRevocations(now);
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        return delegate.deleteExpiredAuths(usedBeforeMillis, limit);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try {
+            delegate.clear();
+            revocations.clear();
+            revoked.clear();
+        } finally {
+            // Tokens only carry the millisecond they were issued in, so reject the whole
+            // millisecond of the clear and wait for it to pass. Every token issued after this
+            // returns is then accepted, and every one issued before it started is not.
+            long clearedAt = System.currentTimeMillis();
+            notBeforeMillis = clearedAt + 1;
+            while (System.currentTimeMillis() <= clearedAt) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(verified.sum(), rejected.sum(), stored.sum(), revoked.size(), failedSyncs.sum());
+    }
+
+    @Override
+    public void close() {
+        syncer.shutdownNow();
+    }
+
+    private void sync() throws DataAccessException {
+        revoked.putAll(revocations.activeRevocations(System.currentTimeMillis()));
+    }
+}
@@ -1,14 +1,28 @@
 package dataaccess.auth;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
 import model.AuthData;
-import model.UserData;
 
+/**
+ * Keeps sessions in the auth table, expiring and capping them by a {@link TokenPolicy}.
+ * Expired rows are left for {@link AuthSweeper} to delete; lookups just ignore them.
+ */
 public class SqlAuthDAO implements AuthDAO {
 
+    private final TokenPolicy policy;
+
+    public SqlAuthDAO() {
+        this(TokenPolicy.UNLIMITED);
+    }
+
+    public SqlAuthDAO(TokenPolicy policy) {
+        this.policy = policy;
+    }
+
     @Override
     public void clear() throws DataAccessException {
         var sql = "DELETE FROM auth";
@@ -22,18 +36,33 @@ public class SqlAuthDAO implements AuthDAO {
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        var sql = "SELECT auth_token, username FROM auth WHERE auth_token = ?";
+        var sql = "SELECT auth_token, username, last_used FROM auth WHERE auth_token = ?";
         try (var conn = DatabaseManager.getPublicConnection();
             var statement = conn.prepareStatement(sql)) {
             statement.setString(1, authToken);
             var resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new AuthData(
-                    resultSet.getString("auth_token"),
-                    resultSet.getString("username")
-                );
+            if (!resultSet.next()) {
+                return null;
             }
-            return null;
+            long lastUsed = resultSet.getLong("last_used");
+            long now = System.currentTimeMillis();
+            if (policy.isExpired(lastUsed, now)) {
+                return null;
+            }
+            if (policy.needsRefresh(lastUsed, now)) {
+                // Only the first use after the row went stale writes; the rest see the new time
+                try (var touch = conn.prepareStatement(
+                        "UPDATE auth SET last_used = ? WHERE auth_token = ? AND last_used < ?")) {
+                    touch.setLong(1, now);
+                    touch.setString(2, authToken);
+                    touch.setLong(3, now);
+                    touch.executeUpdate();
+                }
+            }
+            return new AuthData(
+                resultSet.getString("auth_token"),
+                resultSet.getString("username")
+            );
         } catch (SQLException e) {
             throw new DataAccessException("Failed to get user", e);
         }
@@ -41,15 +70,37 @@ public class SqlAuthDAO implements AuthDAO {
 
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
-        var sql = "INSERT INTO auth (auth_token, username) VALUES (?, ?)";
+        var sql = "INSERT INTO auth (auth_token, username, last_used) VALUES (?, ?, ?)";
         try (var conn = DatabaseManager.getPublicConnection();
             var statement = conn.prepareStatement(sql)){
             statement.setString(1, auth.authToken());
             statement.setString(2, auth.username());
+            statement.setLong(3, System.currentTimeMillis());
             statement.executeUpdate();
+            if (policy.maxPerUser() > 0) {
+                endOldestSessions(conn, auth);
+            }
         } catch (SQLException e) {
             throw new DataAccessException("Failed to create auth", e);
-        };
+        }
+    }
+
+    /**
+     * Deletes the user's sessions beyond the cap, least recently used first, keeping the new one
+     */
+    private void endOldestSessions(Connection conn, AuthData auth) throws SQLException {
+        // MySQL cannot LIMIT a subquery under IN directly, hence the derived table
+        var sql = "DELETE FROM auth WHERE username = ? AND auth_token <> ? AND auth_token NOT IN (" +
+                "SELECT auth_token FROM (SELECT auth_token FROM auth WHERE username = ? AND auth_token <> ? " +
+                "ORDER BY last_used DESC LIMIT ?) AS newest)";
+        try (var statement = conn.prepareStatement(sql)) {
+            statement.setString(1, auth.username());
+            statement.setString(2, auth.authToken());
+            statement.setString(3, auth.username());
+            statement.setString(4, auth.authToken());
+            statement.setInt(5, policy.maxPerUser() - 1);
+            statement.executeUpdate();
+        }
     }
 
     @Override
@@ -64,4 +115,21 @@ public class SqlAuthDAO implements AuthDAO {
         }
     }
 
+    /**
+     * Deletes through the last_used index, a few rows per statement, so each delete holds
+     * its row locks only briefly
+     */
+    @Override
+    public int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException {
+        var sql = "DELETE FROM auth WHERE last_used < ? ORDER BY last_used LIMIT ?";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setLong(1, usedBeforeMillis);
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to delete expired auth", e);
+        }
+    }
+
 }
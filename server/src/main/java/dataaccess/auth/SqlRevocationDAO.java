@@ -0,0 +1,68 @@
+package dataaccess.auth;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
+
+/**
+ * Keeps revoked token IDs in the revoked_tokens table, shared by every server on the database
+ */
+public class SqlRevocationDAO implements RevocationDAO {
+
+    @Override
+    public void clear() throws DataAccessException {
+        var sql = "DELETE FROM revoked_tokens";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to clear revoked tokens", e);
+        }
+    }
+
+    @Override
+    public void revoke(String tokenId, long expiresAtMillis) throws DataAccessException {
+        // Logging out twice is harmless, so a repeat just keeps the row
+        var sql = "INSERT IGNORE INTO revoked_tokens (token_id, expires_at) VALUES (?, ?)";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setString(1, tokenId);
+            statement.setLong(2, expiresAtMillis);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to revoke token", e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> activeRevocations(long nowMillis) throws DataAccessException {
+        var sql = "SELECT token_id, expires_at FROM revoked_tokens WHERE expires_at > ?";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setLong(1, nowMillis);
+            var resultSet = statement.executeQuery();
+            Map<String, Long> active = new HashMap<>();
+            while (resultSet.next()) {
+                active.put(resultSet.getString("token_id"), resultSet.getLong("expires_at"));
+            }
+            return active;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to load revoked tokens", e);
+        }
+    }
+
+    @Override
+    public void deleteExpiredRevocations(long nowMillis) throws DataAccessException {
+        var sql = "DELETE FROM revoked_tokens WHERE expires_at <= ?";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setLong(1, nowMillis);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to delete expired revocations", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dataaccess.auth;
+
+/**
+ * How long sessions last and how many one user may hold.
+ * <p>
+ * A token expires once it has gone unused for the TTL, so active users stay logged in.
+ * Recording every use would turn each authenticated request into a write, so a token's
+ * last-used time is only written again once it is older than {@link #refreshAfterMillis()}.
+ * A token can therefore expire up to that long before its TTL from its true last use.
+ *
+ * @param ttlMillis          how long an unused token stays valid, or 0 to never expire
+ * @param refreshAfterMillis how stale a token's last-used time may get before a use records it
+ * @param maxPerUser         the most tokens one user may hold, or 0 for no cap; a new login
+ *                           past the cap ends that user's least recently used sessions
+ */
+public record TokenPolicy(long ttlMillis, long refreshAfterMillis, int maxPerUser) {
+
+    /**
+     * Tokens that last until logout, with no cap
+     */
+    public static final TokenPolicy UNLIMITED = new TokenPolicy(0, 0, 0);
+
+    private static final long DEFAULT_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_REFRESH_AFTER_MILLIS = 5 * 60 * 1000L;
+    private static final int DEFAULT_MAX_PER_USER = 50;
+
+    public TokenPolicy {
+        if (ttlMillis < 0 || refreshAfterMillis < 0 || maxPerUser < 0) {
+            throw new IllegalArgumentException("Token policy values cannot be negative");
+        }
+        if (ttlMillis > 0 && refreshAfterMillis >= ttlMillis) {
+            throw new IllegalArgumentException("Tokens must be refreshed more often than they expire");
+        }
+    }
+
+    /**
+     * Reads chess.auth.ttlMs (default a week), chess.auth.refreshMs (default five minutes) and
+     * chess.auth.maxPerUser (default 50), or their CHESS_AUTH_* environment variables
+     */
+    public static TokenPolicy fromEnvironment() {
+        return new TokenPolicy(
+                setting("chess.auth.ttlMs", "CHESS_AUTH_TTL_MS", DEFAULT_TTL_MILLIS),
+                setting("chess.auth.refreshMs", "CHESS_AUTH_REFRESH_MS", DEFAULT_REFRESH_AFTER_MILLIS),
+                (int) setting("chess.auth.maxPerUser", "CHESS_AUTH_MAX_PER_USER", DEFAULT_MAX_PER_USER));
+    }
+
+    public boolean expires() {
+        return ttlMillis > 0;
+    }
+
+    public boolean isExpired(long lastUsedMillis, long nowMillis) {
+        return expires() && nowMillis - lastUsedMillis >= ttlMillis;
+    }
+
+    /**
+     * @return whether a use now should write the token's last-used time
+     */
+    public boolean needsRefresh(long lastUsedMillis, long nowMillis) {
+        return expires() && nowMillis - lastUsedMillis >= refreshAfterMillis;
+    }
+
+    /**
+     * @return tokens last used before this time have expired
+     */
+    public long expiryCutoff(long nowMillis) {
+        return nowMillis - ttlMillis;
+    }
+
+    static long setting(String property, String variable, long defaultValue) {
+        String value = System.getProperty(property, System.getenv(variable));
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + property + ": " + value, e);
+        }
+    }
+}
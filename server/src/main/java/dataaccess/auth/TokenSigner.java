@@ -0,0 +1,216 @@
+package dataaccess.auth;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Makes and checks self-contained session tokens signed with HMAC-SHA256.
+ * <p>
+ * A token is {@code s1.<payload>.<signature>}, both parts base64url. The payload holds the
+ * signing key's ID, the username, when the token was issued and when it expires, and a
+ * random token ID that logouts revoke by. Checking a token takes no I/O.
+ * <p>
+ * New tokens are signed with the first key; every configured key is accepted. To rotate,
+ * put the new key first and keep the old one until the tokens it signed have expired.
+ */
+public class TokenSigner {
+
+    private static final String PREFIX = "s1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_ID_BYTES = 12;
+    private static final int MIN_KEY_BYTES = 32;
+
+    /**
+     * @param id     short name embedded in tokens so the right key checks them
+     * @param secret at least 32 random bytes
+     */
+    public record Key(String id, byte[] secret) {
+        public Key {
+            if (id.isEmpty() || id.contains(",") || id.contains(":")) {
+                throw new IllegalArgumentException("Invalid signing key ID: " + id);
+            }
+            if (secret.length < MIN_KEY_BYTES) {
+                throw new IllegalArgumentException("Signing key " + id + " needs at least " + MIN_KEY_BYTES
+                        + " bytes");
+            }
+        }
+    }
+
+    /**
+     * @param keys                 the signing key first, then older keys still accepted
+     * @param ttlMillis            how long a signed token lasts; unlike a stored session, using it
+     *                             does not extend it
+     * @param revocationSyncMillis how often to reload logouts made on other servers
+     */
+    public record Settings(List<Key> keys, long ttlMillis, long revocationSyncMillis) {
+        public Settings {
+            if (keys.isEmpty() || ttlMillis <= 0 || revocationSyncMillis <= 0) {
+                throw new IllegalArgumentException("Signed tokens need a key, a TTL and a sync interval");
+            }
+            keys = List.copyOf(keys);
+        }
+
+        /**
+         * Reads chess.auth.signingKeys as comma-separated {@code id:base64secret} pairs, signing
+         * key first, plus chess.auth.signedTtlMs (default a day) and chess.auth.revocationSyncMs
+         * (default five seconds), or their CHESS_AUTH_* environment variables
+         *
+         * @return the settings, or null if no keys are configured and signed tokens are off
+         */
+        public static Settings fromEnvironment() {
+            String value = System.getProperty("chess.auth.signingKeys", System.getenv("CHESS_AUTH_SIGNING_KEYS"));
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            List<Key> keys = new ArrayList<>();
+            for (String entry : value.split(",")) {
+                int colon = entry.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Signing keys must be id:base64secret pairs");
+                }
+                try {
+                    keys.add(new Key(entry.substring(0, colon).trim(),
+                            Base64.getDecoder().decode(entry.substring(colon + 1).trim())));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid signing key " + entry.substring(0, colon), e);
+                }
+            }
+            return new Settings(keys,
+                    TokenPolicy.setting("chess.auth.signedTtlMs", "CHESS_AUTH_SIGNED_TTL_MS", 24 * 60 * 60 * 1000L),
+                    TokenPolicy.setting("chess.auth.revocationSyncMs", "CHESS_AUTH_REVOCATION_SYNC_MS", 5_000));
+        }
+    }
+
+    /**
+     * What a valid token says about itself
+     */
+    public record Claims(String keyId, String username, long issuedAtMillis, long expiresAtMillis, String tokenId) {
+    }
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Key signingKey;
+    private final long ttlMillis;
+    private final Map<String, Key> keys = new HashMap<>();
+    // Initialized MACs to clone, since a Mac is not thread-safe and looking one up is slow
+    private final Map<String, Mac> macs = new HashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    public TokenSigner(Settings settings) {
+        this.signingKey = settings.keys().get(0);
+        this.ttlMillis = settings.ttlMillis();
+        for (Key key : settings.keys()) {
+            if (keys.put(key.id(), key) != null) {
+                throw new IllegalArgumentException("Duplicate signing key ID: " + key.id());
+            }
+            macs.put(key.id(), newMac(key));
+        }
+    }
+
+    /**
+     * @return whether the token is in the signed format, valid or not
+     */
+    public static boolean isSigned(String token) {
+        return token != null && token.startsWith(PREFIX);
+    }
+
+    public String sign(String username, long nowMillis) {
+        byte[] tokenID = new byte[TOKEN_ID_BYTES];
+        random.nextBytes(tokenID);
+        var payload = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(payload)) {
+            out.writeUTF(signingKey.id());
+            out.writeUTF(username);
+            out.writeLong(nowMillis);
+            out.writeLong(nowMillis + ttlMillis);
+            out.write(tokenID);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to build token", e);
+        }
+        String signed = PREFIX + ENCODER.encodeToString(payload.toByteArray());
+        return signed + "." + ENCODER.encodeToString(mac(signingKey.id()).doFinal(ascii(signed)));
+    }
+
+    /**
+     * @return the token's claims, or null if it is malformed, signed by an unknown key,
+     * tampered with or expired
+     */
+    public Claims verify(String token, long nowMillis) {
+        if (!isSigned(token)) {
+            return null;
+        }
+        int dot = token.lastIndexOf('.');
+        if (dot <= PREFIX.length()) {
+            return null;
+        }
+        try {
+            byte[] payload = DECODER.decode(token.substring(PREFIX.length(), dot));
+            var in = new DataInputStream(new ByteArrayInputStream(payload));
+            String keyId = in.readUTF();
+            String username = in.readUTF();
+            long issuedAt = in.readLong();
+            long expiresAt = in.readLong();
+            byte[] tokenID = in.readNBytes(TOKEN_ID_BYTES);
+            if (tokenID.length != TOKEN_ID_BYTES || in.available() > 0) {
+                return null;
+            }
+
+            Mac mac = mac(keyId);
+            if (mac == null) {
+                return null;
+            }
+            byte[] expected = mac.doFinal(ascii(token.substring(0, dot)));
+            if (!MessageDigest.isEqual(expected, DECODER.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            if (nowMillis >= expiresAt) {
+                return null;
+            }
+            return new Claims(keyId, username, issuedAt, expiresAt, ENCODER.encodeToString(tokenID));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Mac mac(String keyId) {
+        Mac prototype = macs.get(keyId);
+        if (prototype == null) {
+            return null;
+        }
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac(keys.get(keyId));
+        }
+    }
+
+    private static Mac newMac(Key key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key.secret(), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,340 @@
+package dataaccess.game;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+/**
+ * Keeps games that have connected players or observers decoded in memory.
+ * <p>
+ * A game joins the registry when the first connection {@link #attach attaches} to it and
+ * leaves a grace period after the last one {@link #detach detaches}, so a quick reconnect
+ * does not reload it. While it is registered, {@link #getGame} returns the live
+ * {@link GameData} without touching the underlying DAO. Every write goes through to the
+ * underlying DAO before the live copy is replaced, and the live copy only ever moves to a
+ * newer version, so a slow writer finishing late cannot put back an older game.
+ * <p>
+ * The live game is shared with callers. Anyone who changes it must hold
+ * {@link #lockFor(int)} for that game from the read until the write.
+ */
+public class ActiveGameRegistry implements GameDAO, AutoCloseable {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final GameDAO delegate;
+    private final long graceMillis;
+    private final Map<Integer, LiveGame> live = new ConcurrentHashMap<>();
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "active-game-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ActiveGameRegistry(GameDAO delegate, long graceMillis) {
+        this.delegate = delegate;
+        this.graceMillis = graceMillis;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Registers a connection to a game, loading the game if it is not already live
+     *
+     * @return the live game, or null if there is no such game
+     */
+    public GameData attach(int gameID) throws DataAccessException {
+        while (true) {
+            LiveGame game = live.get(gameID);
+            if (game == null) {
+                GameData loaded = delegate.getGame(gameID);
+                if (loaded == null) {
+                    return null;
+                }
+                LiveGame created = new LiveGame(loaded);
+                game = live.putIfAbsent(gameID, created);
+                if (game == null) {
+                    game = created;
+                }
+            }
+            synchronized (game) {
+                if (game.evicted) {
+                    continue;
+                }
+                game.connections++;
+                if (game.pendingEviction != null) {
+                    game.pendingEviction.cancel(false);
+                    game.pendingEviction = null;
+                }
+            }
+            try {
+                return getGame(gameID);
+            } catch (DataAccessException | RuntimeException e) {
+                // The caller never gets a connection to release, so release it here
+                detach(gameID);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Releases a connection made with {@link #attach}
+     */
+    public void detach(int gameID) {
+        LiveGame game = live.get(gameID);
+        if (game == null) {
+            return;
+        }
+        synchronized (game) {
+            if (game.connections == 0 || --game.connections > 0) {
+                return;
+            }
+            if (graceMillis <= 0) {
+                evict(gameID, game);
+            } else {
+                game.pendingEviction = evictor.schedule(() -> {
+                    synchronized (game) {
+                        if (game.connections == 0) {
+                            evict(gameID, game);
+                        }
+                    }
+                }, graceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return the lock that serializes changes to one game
+     */
+    public Lock lockFor(int gameID) {
+        return locks[Math.floorMod(gameID, LOCK_STRIPES)];
+    }
+
+    /**
+     * @return whether the game has connections, or had one within the grace period
+     */
+    public boolean isActive(int gameID) {
+        return live.containsKey(gameID);
+    }
+
+    /**
+     * @return how many games are currently held in memory
+     */
+    public int activeGames() {
+        return live.size();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try {
+            delegate.clear();
+        } finally {
+            // IDs may be handed out again, so forget the versions seen as well
+            live.values().forEach(LiveGame::reset);
+        }
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        return delegate.createGame(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        LiveGame game = live.get(gameID);
+        if (game == null) {
+            return delegate.getGame(gameID);
+        }
+        GameData data = game.data;
+        if (data == null) {
+            // Dropped after a failed write or a clear, so reload from the store
+            data = delegate.getGame(gameID);
+            if (data != null) {
+                game.advance(data);
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        // Writes go through, so the store is as current as the live copies
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        return delegate.listGames(query);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        writeThrough(game, () -> delegate.updateGame(game));
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        return tryWriteThrough(game, () -> delegate.tryUpdateGame(game));
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        try {
+            delegate.deleteGame(gameID);
+        } finally {
+            LiveGame game = live.get(gameID);
+            if (game != null) {
+                game.reset();
+            }
+        }
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        if (!delegate.tryDeleteGame(game)) {
+            return false;
+        }
+        LiveGame liveGame = live.get(game.gameID());
+        if (liveGame != null) {
+            liveGame.reset();
+        }
+        return true;
+    }
+
+    /**
+     * A live game goes through the read and conditional write so its copy stays current;
+     * anything else lets the store seat the player directly
+     */
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        if (live.containsKey(gameID)) {
+            return GameDAO.super.claimSeat(gameID, color, username);
+        }
+        boolean claimed = delegate.claimSeat(gameID, color, username);
+        LiveGame attached = live.get(gameID);
+        if (claimed && attached != null) {
+            // Loaded while the seat was being filled, so it may have missed the player
+            attached.drop();
+        }
+        return claimed;
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        writeThrough(game, () -> delegate.appendMove(game, move));
+    }
+
+    @Override
+    public boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        return tryWriteThrough(game, () -> delegate.tryAppendMove(game, move));
+    }
+
+    @Override
+    public void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        writeThrough(game, () -> delegate.appendMoves(game, moves));
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        live.clear();
+    }
+
+    private void writeThrough(GameData game, Write write) throws DataAccessException {
+        tryWriteThrough(game, () -> {
+            write.run();
+            return true;
+        });
+    }
+
+    private boolean tryWriteThrough(GameData game, ConditionalWrite write) throws DataAccessException {
+        LiveGame liveGame = live.get(game.gameID());
+        boolean written;
+        try {
+            written = write.run();
+        } catch (DataAccessException | RuntimeException e) {
+            // The caller may already have changed the shared game, so stop trusting it
+            if (liveGame != null) {
+                liveGame.drop();
+            }
+            throw e;
+        }
+        // A rejected write means the store has a newer game than the live copy. So may a write
+        // that was not newer than the live copy, e.g. an unconditional one from an old read.
+        if (liveGame != null && !(written && liveGame.advance(game.withVersion(game.version() + 1)))) {
+            liveGame.drop();
+        }
+        return written;
+    }
+
+    private void evict(int gameID, LiveGame game) {
+        game.evicted = true;
+        game.pendingEviction = null;
+        live.remove(gameID, game);
+    }
+
+    @FunctionalInterface
+    private interface Write {
+        void run() throws DataAccessException;
+    }
+
+    @FunctionalInterface
+    private interface ConditionalWrite {
+        boolean run() throws DataAccessException;
+    }
+
+    /**
+     * One game held in memory and the connections keeping it there
+     */
+    private static final class LiveGame {
+        private volatile GameData data;
+        // The newest version the live copy has held, kept while the copy is dropped
+        private int version;
+        private int connections = 0;
+        private ScheduledFuture<?> pendingEviction;
+        private boolean evicted = false;
+
+        private LiveGame(GameData data) {
+            this.data = data;
+            this.version = data.version();
+        }
+
+        /**
+         * Replaces the live copy unless it has already held this version or a newer one
+         *
+         * @return whether the copy was replaced
+         */
+        private synchronized boolean advance(GameData next) {
+            if (next.version() > version || (data == null && next.version() == version)) {
+                data = next;
+                version = next.version();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Stops serving the live copy until it is reloaded or written
+         */
+        private synchronized void drop() {
+            data = null;
+        }
+
+        private synchronized void reset() {
+            data = null;
+            version = -1;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package dataaccess.game;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves games that have been over for a while out of another {@link GameDAO} and into a
+ * {@link GameArchive}, so the hot store only holds games that can still change.
+ * <p>
+ * A background sweep lists finished games and notes when it first saw each one finished.
+ * Once a game has been over for {@link Settings#archiveAfterMillis()}, it is written to the
+ * archive and then deleted from the hot store, a segment at a time. Those times are kept in
+ * memory, so after a restart the wait starts over. Games that are {@link #setInUse in use}
+ * are left alone, and a game is only deleted if it has not been saved since it was archived.
+ * A game that changed, or a crash between the two steps, leaves the game in both tiers, which
+ * is harmless: the hot copy wins and the next sweep archives it again.
+ * <p>
+ * {@link #getGame} falls back to the archive, so archived games can still be replayed.
+ * Listings and writes only see the hot store; to them an archived game no longer exists.
+ */
+public class ArchivingGameDAO implements GameDAO, AutoCloseable {
+
+    /**
+     * Where archived games go and when
+     *
+     * @param archiveAfterMillis  how long a game stays hot after it ends
+     * @param sweepIntervalMillis how often to look for games to archive, or 0 to only sweep
+     *                            when {@link #archiveFinished()} is called
+     * @param gamesPerSegment     the most games to pack into one segment file
+     */
+    public record Settings(Path directory, long archiveAfterMillis, long sweepIntervalMillis, int gamesPerSegment) {
+        public Settings {
+            if (archiveAfterMillis < 0 || sweepIntervalMillis < 0 || gamesPerSegment < 1) {
+                throw new IllegalArgumentException("Invalid archive settings");
+            }
+        }
+    }
+
+    /**
+     * A point-in-time view of archiving
+     *
+     * @param waiting finished games still in the hot store
+     */
+    public record Stats(long sweeps, long archived, long failedSweeps, int waiting, GameArchive.Stats archive) {
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArchivingGameDAO.class);
+
+    private final GameDAO delegate;
+    private final Settings settings;
+    private final GameArchive archive;
+    // When each finished game still in the hot store was first seen finished
+    private final Map<Integer, Long> finishedSince = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder archived = new LongAdder();
+    private final LongAdder failedSweeps = new LongAdder();
+    // Not a monitor: sweeps query the store and fsync segments, and a virtual thread blocked
+    // on a monitor, or holding one while it blocks, pins its carrier for the whole sweep
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile IntPredicate inUse = gameID -> false;
+
+    /**
+     * Opens the archive and starts sweeping
+     */
+    public ArchivingGameDAO(GameDAO delegate, Settings settings) throws DataAccessException {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.archive = new GameArchive(settings.directory());
+        archive.open();
+        if (settings.sweepIntervalMillis() > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweep, settings.sweepIntervalMillis(),
+                    settings.sweepIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sets which games sweeps must skip, such as games that still have players connected
+     */
+    public void setInUse(IntPredicate inUse) {
+        this.inUse = inUse;
+    }
+
+    /**
+     * Archives every game that has been over long enough
+     *
+     * @return how many games were archived
+     */
+    public int archiveFinished() throws DataAccessException {
+        lock.lock();
+        try {
+            return archiveDue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int archiveDue() throws DataAccessException {
+        long now = System.currentTimeMillis();
+        Set<Integer> finished = new HashSet<>();
+        List<Integer> due = new ArrayList<>();
+        for (GameData game : delegate.listGames(new GameQuery(0, 0, GameQuery.Status.FINISHED, null, false))) {
+            finished.add(game.gameID());
+            long since = finishedSince.computeIfAbsent(game.gameID(), id -> now);
+            if (now - since >= settings.archiveAfterMillis() && !inUse.test(game.gameID())) {
+                due.add(game.gameID());
+            }
+        }
+        // Forget games that were cleared or deleted some other way
+        finishedSince.keySet().retainAll(finished);
+
+        int count = 0;
+        for (int start = 0; start < due.size(); start += settings.gamesPerSegment()) {
+            List<GameData> segment = new ArrayList<>();
+            for (int gameID : due.subList(start, Math.min(due.size(), start + settings.gamesPerSegment()))) {
+                GameData game = delegate.getGame(gameID);
+                if (game != null) {
+                    segment.add(game);
+                }
+            }
+            archive.append(segment);
+            for (GameData game : segment) {
+                // A game saved since it was read, say by a player leaving, stays hot with its newer state
+                if (delegate.tryDeleteGame(game)) {
+                    finishedSince.remove(game.gameID());
+                    count++;
+                    archived.increment();
+                }
+            }
+        }
+        sweeps.increment();
+        return count;
+    }
+
+    private void sweep() {
+        try {
+            archiveFinished();
+        } catch (DataAccessException | RuntimeException e) {
+            // Everything stays in the hot store, so just try again next time
+            failedSweeps.increment();
+            LOG.warn("Failed to archive finished games", e);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        lock.lock();
+        try {
+            delegate.clear();
+            archive.clear();
+            finishedSince.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        return delegate.createGame(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData game = delegate.getGame(gameID);
+        return game != null ? game : archive.read(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        return delegate.listGames(query);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        delegate.updateGame(game);
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        return delegate.tryUpdateGame(game);
+    }
+
+    /**
+     * Only deletes from the hot store; segments are never rewritten
+     */
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        delegate.deleteGame(gameID);
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        return delegate.tryDeleteGame(game);
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        return delegate.claimSeat(gameID, color, username);
+    }
+
+    @Override
+    public boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        return delegate.tryAppendMove(game, move);
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        delegate.appendMove(game, move);
+    }
+
+    @Override
+    public void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        delegate.appendMoves(game, moves);
+    }
+
+    public Stats stats() {
+        return new Stats(sweeps.sum(), archived.sum(), failedSweeps.sum(), finishedSince.size(), archive.stats());
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdown();
+    }
+}
@@ -0,0 +1,50 @@
+package dataaccess.game;
+
+import chess.ChessMove;
+import dataaccess.IoExecutor;
+import model.GameData;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs {@link GameDAO} calls on an {@link IoExecutor}, so a slow store holds an I/O thread
+ * rather than the request thread. Each call means the same as its {@link GameDAO} counterpart.
+ */
+public class AsyncGameDAO {
+    private final GameDAO gameDAO;
+    private final IoExecutor io;
+
+    public AsyncGameDAO(GameDAO gameDAO, IoExecutor io) {
+        this.gameDAO = gameDAO;
+        this.io = io;
+    }
+
+    public CompletableFuture<Void> clear() {
+        return io.run(gameDAO::clear);
+    }
+
+    public CompletableFuture<Integer> createGame(GameData game) {
+        return io.supply(() -> gameDAO.createGame(game));
+    }
+
+    public CompletableFuture<GameData> getGame(int gameID) {
+        return io.supply(() -> gameDAO.getGame(gameID));
+    }
+
+    public CompletableFuture<List<GameData>> listGames(GameQuery query) {
+        return io.supply(() -> gameDAO.listGames(query));
+    }
+
+    public CompletableFuture<Void> updateGame(GameData game) {
+        return io.run(() -> gameDAO.updateGame(game));
+    }
+
+    public CompletableFuture<Boolean> tryUpdateGame(GameData game) {
+        return io.supply(() -> gameDAO.tryUpdateGame(game));
+    }
+
+    public CompletableFuture<Boolean> tryAppendMove(GameData game, ChessMove move) {
+        return io.supply(() -> gameDAO.tryAppendMove(game, move));
+    }
+}
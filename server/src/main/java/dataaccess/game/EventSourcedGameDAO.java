@@ -0,0 +1,365 @@
+package dataaccess.game;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Position;
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
+import model.GameData;
+
+/**
+ * Stores games as a log of moves instead of rewriting the whole game on every move.
+ * <p>
+ * The games table keeps only names and players. Each move is one row in game_moves, and
+ * the full state is written to game_snapshots when a game is created, every
+ * {@code snapshotInterval} plies, when the game ends, and whenever {@link #updateGame}
+ * is called. Loading a game starts from its latest snapshot and replays the moves after it.
+ * Games saved by {@link SqlGameDAO} before switching to this mode load from their games
+ * row and continue from there.
+ */
+public class EventSourcedGameDAO implements GameDAO {
+
+    private final int snapshotInterval;
+
+    public EventSourcedGameDAO(int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1");
+        }
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            for (var table : List.of("game_moves", "game_snapshots", "games")) {
+                try (var statement = conn.prepareStatement("DELETE FROM " + table)) {
+                    statement.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to clear games", e);
+        }
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        var sql = "INSERT INTO games (game_name) VALUES (?)";
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            conn.setAutoCommit(false);
+            try (var statement = conn.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, game.gameName());
+                statement.executeUpdate();
+
+                var resultSet = statement.getGeneratedKeys();
+                if (!resultSet.next()) {
+                    throw new DataAccessException("Failed to retrieve generated game ID", null);
+                }
+                int gameID = resultSet.getInt(1);
+                if (game.game() != null) {
+                    writeSnapshot(conn, gameID, 0, game.game());
+                }
+                conn.commit();
+                return gameID;
+            } catch (SQLException | DataAccessException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to create game", e);
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        var sql = "SELECT g.game_id, g.game_name, g.white_username, g.black_username, g.game_state, g.game_blob, " +
+                "g.version, s.ply, s.state FROM games g LEFT JOIN game_snapshots s ON s.game_id = g.game_id " +
+                "WHERE g.game_id = ? ORDER BY s.ply DESC LIMIT 1";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setInt(1, gameID);
+            var resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+            int snapshotPly = resultSet.getInt("ply");
+            ChessGame base = readSnapshot(resultSet);
+            List<ChessMove> tail = readMoves(conn, gameID, snapshotPly);
+            return readGameData(resultSet, replay(base, tail));
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to get game", e);
+        }
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        var gamesSql = "SELECT g.game_id, g.game_name, g.white_username, g.black_username, g.game_state, " +
+                "g.game_blob, g.version, s.ply, s.state FROM games g LEFT JOIN game_snapshots s ON s.game_id = g.game_id " +
+                "AND s.ply = (SELECT MAX(ply) FROM game_snapshots WHERE game_id = g.game_id)";
+        var tailsSql = "SELECT m.game_id, m.move FROM game_moves m " +
+                "LEFT JOIN (SELECT game_id, MAX(ply) AS ply FROM game_snapshots GROUP BY game_id) s " +
+                "ON s.game_id = m.game_id WHERE m.ply > COALESCE(s.ply, 0) ORDER BY m.game_id, m.ply";
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            // Every game's unsnapshotted moves come back in one query rather than one per game
+            Map<Integer, List<ChessMove>> tails = new HashMap<>();
+            try (var statement = conn.prepareStatement(tailsSql)) {
+                var resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    tails.computeIfAbsent(resultSet.getInt("game_id"), id -> new ArrayList<>())
+                            .add(GameStateCodec.unpackMove(resultSet.getShort("move")));
+                }
+            }
+
+            List<GameData> games = new ArrayList<>();
+            try (var statement = conn.prepareStatement(gamesSql)) {
+                var resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    List<ChessMove> tail = tails.getOrDefault(resultSet.getInt("game_id"), List.of());
+                    games.add(readGameData(resultSet, replay(readSnapshot(resultSet), tail)));
+                }
+            }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list games", e);
+        }
+    }
+
+    /**
+     * Summaries come straight from the games table. Listings that need boards load every
+     * game and filter in memory, since each board has to be rebuilt from its log anyway.
+     */
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        if (!query.includeState()) {
+            return GameQueries.querySummaries(query);
+        }
+        return GameDAO.super.listGames(query);
+    }
+
+    /**
+     * Saves the players and name, and snapshots the game at its latest ply so changes made
+     * outside of a move, like a resignation, are kept.
+     */
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        writeGame(game, false);
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        return writeGame(game, true);
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        SqlGameDAO.deleteRow(gameID, -1);
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        return SqlGameDAO.deleteRow(game.gameID(), game.version());
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        return SqlGameDAO.claimSeatInRow(gameID, color, username);
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        writeMoves(game, List.of(move), false);
+    }
+
+    /**
+     * Appends one row per move to the move log, plus a snapshot of the resulting game when
+     * the moves cross a snapshot interval or end the game
+     */
+    @Override
+    public void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        writeMoves(game, moves, false);
+    }
+
+    @Override
+    public boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        return writeMoves(game, List.of(move), true);
+    }
+
+    private boolean writeGame(GameData game, boolean conditional) throws DataAccessException {
+        var sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, finished = ?, " +
+                "version = ? WHERE game_id = ?" + (conditional ? " AND version = ?" : "");
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            conn.setAutoCommit(false);
+            try (var statement = conn.prepareStatement(sql)) {
+                statement.setString(1, game.whiteUsername());
+                statement.setString(2, game.blackUsername());
+                statement.setString(3, game.gameName());
+                statement.setBoolean(4, game.game() != null && game.game().isGameOver());
+                statement.setInt(5, game.version() + 1);
+                statement.setInt(6, game.gameID());
+                if (conditional) {
+                    statement.setInt(7, game.version());
+                }
+                boolean written = statement.executeUpdate() > 0;
+                if (written && game.game() != null) {
+                    writeSnapshot(conn, game.gameID(), latestPly(conn, game.gameID()), game.game());
+                }
+                conn.commit();
+                return written;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to update game", e);
+        }
+    }
+
+    /**
+     * Claims the next version on the games row, then logs the moves. The version is
+     * claimed first so a conditional append that loses the race writes nothing.
+     */
+    private boolean writeMoves(GameData game, List<ChessMove> moves, boolean conditional)
+            throws DataAccessException {
+        if (moves.isEmpty()) {
+            return true;
+        }
+        boolean over = game.game().isGameOver();
+        var versionSql = "UPDATE games SET version = ?, finished = finished OR ? WHERE game_id = ?" +
+                (conditional ? " AND version = ?" : "");
+        var sql = "INSERT INTO game_moves (game_id, ply, move) VALUES (?, ?, ?)";
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            conn.setAutoCommit(false);
+            try (var versionStatement = conn.prepareStatement(versionSql);
+                var statement = conn.prepareStatement(sql)) {
+                versionStatement.setInt(1, game.version() + 1);
+                versionStatement.setBoolean(2, over);
+                versionStatement.setInt(3, game.gameID());
+                if (conditional) {
+                    versionStatement.setInt(4, game.version());
+                }
+                if (versionStatement.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                // Two writers racing for the same ply collide on the primary key
+                int firstPly = latestPly(conn, game.gameID()) + 1;
+                int lastPly = firstPly + moves.size() - 1;
+                for (int i = 0; i < moves.size(); i++) {
+                    statement.setInt(1, game.gameID());
+                    statement.setInt(2, firstPly + i);
+                    statement.setShort(3, GameStateCodec.packMove(moves.get(i)));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                boolean crossesInterval = lastPly / snapshotInterval != (firstPly - 1) / snapshotInterval;
+                if (crossesInterval || over) {
+                    writeSnapshot(conn, game.gameID(), lastPly, game.game());
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to record move", e);
+        }
+    }
+
+    /**
+     * @return every move played in a game, in order, for replaying it from the start
+     */
+    public List<ChessMove> getMoveHistory(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            return readMoves(conn, gameID, 0);
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to get move history", e);
+        }
+    }
+
+    private int latestPly(Connection conn, int gameID) throws SQLException {
+        var sql = "SELECT COALESCE(MAX(ply), 0) FROM game_moves WHERE game_id = ?";
+        try (var statement = conn.prepareStatement(sql)) {
+            statement.setInt(1, gameID);
+            var resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void writeSnapshot(Connection conn, int gameID, int ply, ChessGame game) throws SQLException {
+        var sql = "INSERT INTO game_snapshots (game_id, ply, state) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE state = ?";
+        byte[] state = GameStateCodec.encode(game);
+        try (var statement = conn.prepareStatement(sql)) {
+            statement.setInt(1, gameID);
+            statement.setInt(2, ply);
+            statement.setBytes(3, state);
+            statement.setBytes(4, state);
+            statement.executeUpdate();
+        }
+    }
+
+    private List<ChessMove> readMoves(Connection conn, int gameID, int afterPly) throws SQLException {
+        var sql = "SELECT move FROM game_moves WHERE game_id = ? AND ply > ? ORDER BY ply";
+        try (var statement = conn.prepareStatement(sql)) {
+            statement.setInt(1, gameID);
+            statement.setInt(2, afterPly);
+            var resultSet = statement.executeQuery();
+            List<ChessMove> moves = new ArrayList<>();
+            while (resultSet.next()) {
+                moves.add(GameStateCodec.unpackMove(resultSet.getShort("move")));
+            }
+            return moves;
+        }
+    }
+
+    /**
+     * @return the latest snapshot, or the state stored on the games row if there is none
+     */
+    private ChessGame readSnapshot(ResultSet resultSet) throws SQLException {
+        var state = resultSet.getBytes("state");
+        if (state != null) {
+            return GameStateCodec.decode(state);
+        }
+        ChessGame stored = SqlGameDAO.readGame(resultSet);
+        return stored != null ? stored : new ChessGame();
+    }
+
+    /**
+     * Moves in the log were validated when they were played, so they are applied directly
+     * to a bitboard position rather than re-checked one by one
+     */
+    private ChessGame replay(ChessGame base, List<ChessMove> moves) throws DataAccessException {
+        if (moves.isEmpty()) {
+            return base;
+        }
+        Position position = Position.of(base);
+        try {
+            for (ChessMove move : moves) {
+                position = position.play(move);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new DataAccessException("Stored move history does not match the game", e);
+        }
+        return position.toGame();
+    }
+
+    private GameData readGameData(ResultSet resultSet, ChessGame game) throws SQLException {
+        return new GameData(
+            resultSet.getInt("game_id"),
+            resultSet.getString("white_username"),
+            resultSet.getString("black_username"),
+            resultSet.getString("game_name"),
+            game,
+            resultSet.getInt("version")
+        );
+    }
+}
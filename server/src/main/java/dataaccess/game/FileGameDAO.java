@@ -0,0 +1,184 @@
+package dataaccess.game;
+
+import dataaccess.DataAccessException;
+import dataaccess.LogStore;
+import model.GameData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps games in memory and logs every save to a {@link LogStore}. Each save logs the whole
+ * game, packed by {@link GameStateCodec}, so replaying the log never has to re-run moves.
+ * Like the games table, IDs keep counting up after a clear.
+ */
+public class FileGameDAO implements GameDAO {
+    static final byte TABLE = 3;
+
+    private static final byte PUT = 1;
+    private static final byte CLEAR = 2;
+    private static final byte NEXT_ID = 3;
+    private static final byte DELETE = 4;
+
+    private final LogStore store;
+    private final Map<Integer, GameData> games = new ConcurrentHashMap<>();
+    // Guarded by the store lock
+    private int nextID = 1;
+
+    /**
+     * Registers the games table; call before the store is opened
+     */
+    public FileGameDAO(LogStore store) {
+        this.store = store;
+        store.register(TABLE, new GameTable());
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.write(TABLE, () -> {
+            games.clear();
+            return out -> out.writeByte(CLEAR);
+        });
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        int[] gameID = new int[1];
+        store.write(TABLE, () -> {
+            gameID[0] = nextID++;
+            return put(new GameData(gameID[0], game.whiteUsername(), game.blackUsername(), game.gameName(), game.game()));
+        });
+        return gameID[0];
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        return games.get(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        List<GameData> list = new ArrayList<>(games.values());
+        list.sort(Comparator.comparingInt(GameData::gameID));
+        return list;
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        store.write(TABLE, () -> games.containsKey(game.gameID()) ? put(game.withVersion(game.version() + 1)) : null);
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        return store.write(TABLE, () -> {
+            GameData current = games.get(game.gameID());
+            if (current == null || current.version() != game.version()) {
+                return null;
+            }
+            return put(game.withVersion(game.version() + 1));
+        });
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        store.write(TABLE, () -> games.remove(gameID) == null ? null : delete(gameID));
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        return store.write(TABLE, () -> {
+            GameData current = games.get(game.gameID());
+            if (current == null || current.version() != game.version()) {
+                return null;
+            }
+            games.remove(game.gameID());
+            return delete(game.gameID());
+        });
+    }
+
+    private static LogStore.Record delete(int gameID) {
+        return out -> {
+            out.writeByte(DELETE);
+            out.writeInt(gameID);
+        };
+    }
+
+    /**
+     * Stores a game and returns the record that logs it. The state is packed now, since
+     * callers may go on to change the game in place.
+     */
+    private LogStore.Record put(GameData game) {
+        games.put(game.gameID(), game);
+        byte[] state = game.game() == null ? null : GameStateCodec.encode(game.game());
+        return out -> {
+            out.writeByte(PUT);
+            writeGame(out, game, state);
+        };
+    }
+
+    static void writeGame(DataOutputStream out, GameData game, byte[] state) throws IOException {
+        out.writeInt(game.gameID());
+        out.writeInt(game.version());
+        LogStore.writeString(out, game.whiteUsername());
+        LogStore.writeString(out, game.blackUsername());
+        LogStore.writeString(out, game.gameName());
+        out.writeBoolean(state != null);
+        if (state != null) {
+            out.write(state);
+        }
+    }
+
+    static GameData readGame(DataInputStream in) throws IOException {
+        int gameID = in.readInt();
+        int version = in.readInt();
+        String white = LogStore.readString(in);
+        String black = LogStore.readString(in);
+        String name = LogStore.readString(in);
+        byte[] state = null;
+        if (in.readBoolean()) {
+            state = new byte[GameStateCodec.ENCODED_LENGTH];
+            in.readFully(state);
+        }
+        return new GameData(gameID, white, black, name, state == null ? null : GameStateCodec.decode(state), version);
+    }
+
+    private class GameTable implements LogStore.Table {
+        @Override
+        public void replay(DataInputStream in) throws IOException {
+            switch (in.readByte()) {
+                case PUT -> {
+                    GameData game = readGame(in);
+                    games.put(game.gameID(), game);
+                    nextID = Math.max(nextID, game.gameID() + 1);
+                }
+                case CLEAR -> games.clear();
+                case NEXT_ID -> nextID = Math.max(nextID, in.readInt());
+                case DELETE -> games.remove(in.readInt());
+                default -> throw new IOException("Unknown game record");
+            }
+        }
+
+        @Override
+        public void snapshot(List<LogStore.Record> records) {
+            // Keeps IDs from being handed out again once the games that used them are gone
+            int next = nextID;
+            records.add(out -> {
+                out.writeByte(NEXT_ID);
+                out.writeInt(next);
+            });
+            for (GameData game : games.values()) {
+                byte[] state = game.game() == null ? null : GameStateCodec.encode(game.game());
+                records.add(out -> {
+                    out.writeByte(PUT);
+                    writeGame(out, game, state);
+                });
+            }
+        }
+    }
+}
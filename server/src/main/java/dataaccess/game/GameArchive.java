@@ -0,0 +1,241 @@
+package dataaccess.game;
+
+import dataaccess.DataAccessException;
+import model.GameData;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cold storage for games that are over, kept as immutable segment files in one directory.
+ * <p>
+ * A segment starts with the IDs of the games in it, uncompressed, followed by the games
+ * themselves packed as in the file store's log and deflated together. Opening the archive
+ * reads only the ID lists, so memory holds one small index entry per game; reading a game
+ * inflates its segment. Segments are written to a temporary file and moved into place, so
+ * a crash never leaves half a segment behind. A game archived twice is read from the newer
+ * segment.
+ */
+public class GameArchive {
+
+    private static final int MAGIC = 0x43484741;
+    private static final String SEGMENT_PREFIX = "games-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SEGMENT_GLOB = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+    private static final String TEMP_FILE = "segment.tmp";
+
+    /**
+     * A point-in-time view of the archive
+     *
+     * @param reads games read back out of segments
+     */
+    public record Stats(int segments, int games, long bytes, long reads) {
+    }
+
+    private final Path directory;
+    private final Map<Integer, Integer> segmentOf = new ConcurrentHashMap<>();
+    private final LongAdder reads = new LongAdder();
+    // Serializes appends and clears, which change which segments exist
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int segments = 0;
+    private volatile long bytes = 0;
+    private int nextSegment = 1;
+
+    public GameArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates the directory if needed and indexes the segments already in it
+     */
+    public void open() throws DataAccessException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(TEMP_FILE));
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_GLOB)) {
+                for (Path file : sorted(files)) {
+                    int segment = segmentNumber(file);
+                    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                        for (int gameID : readHeader(in, file)) {
+                            segmentOf.put(gameID, segment);
+                        }
+                    }
+                    segments++;
+                    bytes += Files.size(file);
+                    nextSegment = Math.max(nextSegment, segment + 1);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to open game archive " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(int gameID) {
+        return segmentOf.containsKey(gameID);
+    }
+
+    /**
+     * Writes the games as one new segment and makes them readable
+     */
+    public void append(List<GameData> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        var buffer = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(buffer)) {
+            out.writeInt(MAGIC);
+            out.writeInt(games.size());
+            for (GameData game : games) {
+                out.writeInt(game.gameID());
+            }
+            var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (var body = new DataOutputStream(new DeflaterOutputStream(out, deflater))) {
+                for (GameData game : games) {
+                    byte[] state = game.game() == null ? null : GameStateCodec.encode(game.game());
+                    FileGameDAO.writeGame(body, game, state);
+                }
+            } finally {
+                deflater.end();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to pack archived games", e);
+        }
+
+        lock.lock();
+        try {
+            int segment = nextSegment;
+            Path temp = directory.resolve(TEMP_FILE);
+            try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer data = ByteBuffer.wrap(buffer.toByteArray());
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+                out.force(true);
+            }
+            Files.move(temp, segmentPath(segment), StandardCopyOption.ATOMIC_MOVE);
+            nextSegment++;
+            segments++;
+            bytes += buffer.size();
+            for (GameData game : games) {
+                segmentOf.put(game.gameID(), segment);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to write game archive segment", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the archived game, or null if it was never archived
+     */
+    public GameData read(int gameID) throws DataAccessException {
+        Integer segment = segmentOf.get(gameID);
+        if (segment == null) {
+            return null;
+        }
+        Path file = segmentPath(segment);
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = readHeader(in, file).length;
+            try (var body = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in)))) {
+                for (int i = 0; i < count; i++) {
+                    GameData game = FileGameDAO.readGame(body);
+                    if (game.gameID() == gameID) {
+                        reads.increment();
+                        return game;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to read archived game " + gameID, e);
+        }
+        throw new DataAccessException("Archived game " + gameID + " is missing from " + file, null);
+    }
+
+    /**
+     * Deletes every segment
+     */
+    public void clear() throws DataAccessException {
+        lock.lock();
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_GLOB)) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            segmentOf.clear();
+            segments = 0;
+            bytes = 0;
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to clear game archive", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(segments, segmentOf.size(), bytes, reads.sum());
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNumber(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in game archive: " + name, e);
+        }
+    }
+
+    /**
+     * Segments in the order they were written, so a game archived again indexes to the newer one
+     */
+    private static List<Path> sorted(DirectoryStream<Path> files) {
+        List<Path> paths = new ArrayList<>();
+        files.forEach(paths::add);
+        paths.sort(null);
+        return paths;
+    }
+
+    private static int[] readHeader(DataInputStream in, Path file) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a game archive segment: " + file);
+            }
+            int[] gameIDs = new int[in.readInt()];
+            for (int i = 0; i < gameIDs.length; i++) {
+                gameIDs[i] = in.readInt();
+            }
+            return gameIDs;
+        } catch (EOFException e) {
+            throw new IOException("Truncated game archive segment: " + file, e);
+        }
+    }
+}
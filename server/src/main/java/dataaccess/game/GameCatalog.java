@@ -0,0 +1,159 @@
+package dataaccess.game;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+/**
+ * Counts changes to the list of games so unchanged listings can be answered without a query.
+ * <p>
+ * The version goes up after every write that can change a game summary: creating a game,
+ * seating or removing a player, ending a game, deleting a game and clearing. Ordinary moves
+ * do not change a summary and leave it alone. Read the version before listing, so a write that lands in
+ * between leaves the listing tagged with an already stale version rather than a new one.
+ * <p>
+ * The count lives in this process, so servers sharing a database each keep their own.
+ */
+public class GameCatalog implements GameDAO {
+
+    private final GameDAO delegate;
+    // Tags from before a restart must never match, so each run gets its own prefix
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public GameCatalog(GameDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the number of summary changes made through this catalog
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * @return an opaque tag for the current version that differs across restarts
+     */
+    public String versionTag() {
+        return epoch + "-" + version.get();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try {
+            delegate.clear();
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        try {
+            return delegate.createGame(game);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        return delegate.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        return delegate.listGames(query);
+    }
+
+    /**
+     * Joins, leaves and resignations all come through here, so every update counts
+     */
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        try {
+            delegate.updateGame(game);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        if (!delegate.tryUpdateGame(game)) {
+            return false;
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        try {
+            delegate.deleteGame(gameID);
+        } finally {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        if (!delegate.tryDeleteGame(game)) {
+            return false;
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        if (!delegate.claimSeat(gameID, color, username)) {
+            return false;
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        if (!delegate.tryAppendMove(game, move)) {
+            return false;
+        }
+        countIfOver(game);
+        return true;
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        try {
+            delegate.appendMove(game, move);
+        } finally {
+            countIfOver(game);
+        }
+    }
+
+    @Override
+    public void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        try {
+            delegate.appendMoves(game, moves);
+        } finally {
+            countIfOver(game);
+        }
+    }
+
+    private void countIfOver(GameData game) {
+        if (game.game() != null && game.game().isGameOver()) {
+            version.incrementAndGet();
+        }
+    }
+}
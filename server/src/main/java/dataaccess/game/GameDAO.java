@@ -1,13 +1,133 @@
 package dataaccess.game;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import dataaccess.DataAccessException;
 import model.GameData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
+/**
+ * Games carry a version that goes up with every save. Every write leaves the stored version
+ * at {@code game.version() + 1}, so a game read, changed and written back ends up one past
+ * the version it was read at. The {@code try} writes only happen if the stored version is
+ * still the one the caller read, which is how concurrent changes to a game are detected.
+ */
 public interface GameDAO {
+    /**
+     * How many times the default {@link #claimSeat} rereads a game that keeps changing
+     */
+    int SEAT_ATTEMPTS = 5;
+
     void clear() throws DataAccessException;
     int createGame(GameData game) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException;
     List<GameData> listGames() throws DataAccessException;
     void updateGame(GameData game) throws DataAccessException;
+
+    /**
+     * Removes a game, e.g. once it has been archived. Its ID is not handed out again.
+     */
+    void deleteGame(int gameID) throws DataAccessException;
+
+    /**
+     * Removes a game unless it has been saved since the caller read it
+     *
+     * @param game the game as the caller read it
+     * @return false, having deleted nothing, if the stored game has moved on or is gone
+     */
+    boolean tryDeleteGame(GameData game) throws DataAccessException;
+
+    /**
+     * Saves a game unless it has been saved since the caller read it
+     *
+     * @param game the new state, carrying the version it was read at
+     * @return false, having written nothing, if the stored game has moved on or is gone
+     */
+    boolean tryUpdateGame(GameData game) throws DataAccessException;
+
+    /**
+     * Records a move unless the game has been saved since the caller read it
+     *
+     * @param game the game with the move already applied, carrying the version it was read at
+     * @param move the move that was played
+     * @return false, having written nothing, if the stored game has moved on or is gone
+     */
+    default boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        return tryUpdateGame(game);
+    }
+
+    /**
+     * Records a move that has just been played
+     *
+     * @param game the game with the move already applied
+     * @param move the move that was played
+     */
+    default void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        updateGame(game);
+    }
+
+    /**
+     * Records several moves played one after another
+     *
+     * @param game  the game with all of the moves already applied
+     * @param moves the moves in the order they were played
+     */
+    default void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        updateGame(game);
+    }
+
+    /**
+     * Seats a player if the seat is empty. This default reads the game and writes it back
+     * conditionally, rereading if another write lands in between; stores that can check and
+     * fill the seat in one statement should override it.
+     *
+     * @return false, having written nothing, if the seat is taken or there is no such game
+     * @throws DataAccessException if the game changed under every attempt
+     */
+    default boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        for (int attempt = 0; attempt < SEAT_ATTEMPTS; attempt++) {
+            GameData game = getGame(gameID);
+            if (game == null) {
+                return false;
+            }
+            GameData seated;
+            if (color == ChessGame.TeamColor.WHITE) {
+                if (game.whiteUsername() != null) {
+                    return false;
+                }
+                seated = new GameData(gameID, username, game.blackUsername(), game.gameName(), game.game(), game.version());
+            } else {
+                if (game.blackUsername() != null) {
+                    return false;
+                }
+                seated = new GameData(gameID, game.whiteUsername(), username, game.gameName(), game.game(), game.version());
+            }
+            if (tryUpdateGame(seated)) {
+                return true;
+            }
+        }
+        throw new DataAccessException("game is busy, try again");
+    }
+
+    /**
+     * Lists one page of games in ID order. This default filters {@link #listGames()} in
+     * memory; stores that can filter and page themselves should override it.
+     */
+    default List<GameData> listGames(GameQuery query) throws DataAccessException {
+        List<GameData> page = new ArrayList<>();
+        List<GameData> games = new ArrayList<>(listGames());
+        games.sort(Comparator.comparingInt(GameData::gameID));
+        for (GameData game : games) {
+            if (query.limit() > 0 && page.size() >= query.limit()) {
+                break;
+            }
+            if (game.gameID() > query.afterGameID() && GameQueries.matches(query, game)) {
+                page.add(query.includeState() ? game : GameQueries.summary(game));
+            }
+        }
+        return page;
+    }
 }
@@ -0,0 +1,116 @@
+package dataaccess.game;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
+import model.GameData;
+
+/**
+ * Helpers shared by the game DAOs for answering a {@link GameQuery}
+ */
+final class GameQueries {
+
+    private GameQueries() {
+    }
+
+    /**
+     * @return whether a fully loaded game passes the query's status and player filters
+     */
+    static boolean matches(GameQuery query, GameData game) {
+        if (query.player() != null && !query.player().equals(game.whiteUsername()) &&
+                !query.player().equals(game.blackUsername())) {
+            return false;
+        }
+        if (query.status() == null) {
+            return true;
+        }
+        boolean finished = game.game() != null && game.game().isGameOver();
+        boolean seatsTaken = game.whiteUsername() != null && game.blackUsername() != null;
+        return switch (query.status()) {
+            case OPEN -> !finished && !seatsTaken;
+            case IN_PROGRESS -> !finished && seatsTaken;
+            case FINISHED -> finished;
+        };
+    }
+
+    /**
+     * @return the game without its board
+     */
+    static GameData summary(GameData game) {
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), null,
+                game.version());
+    }
+
+    /**
+     * Builds the WHERE, ORDER BY and LIMIT clauses for a query against the games table,
+     * aliased as {@code g}
+     *
+     * @param parameters receives the values for the clause's placeholders, in order
+     */
+    static String sqlClauses(GameQuery query, List<Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("g.game_id > ?");
+        parameters.add(query.afterGameID());
+        if (query.status() != null) {
+            conditions.add(switch (query.status()) {
+                case OPEN -> "g.finished = FALSE AND (g.white_username IS NULL OR g.black_username IS NULL)";
+                case IN_PROGRESS -> "g.finished = FALSE AND g.white_username IS NOT NULL AND g.black_username IS NOT NULL";
+                case FINISHED -> "g.finished = TRUE";
+            });
+        }
+        if (query.player() != null) {
+            conditions.add("(g.white_username = ? OR g.black_username = ?)");
+            parameters.add(query.player());
+            parameters.add(query.player());
+        }
+        String clauses = " WHERE " + String.join(" AND ", conditions) + " ORDER BY g.game_id";
+        if (query.limit() > 0) {
+            clauses += " LIMIT ?";
+            parameters.add(query.limit());
+        }
+        return clauses;
+    }
+
+    /**
+     * Runs a query against the games table reading only names and players
+     */
+    static List<GameData> querySummaries(GameQuery query) throws DataAccessException {
+        List<Object> parameters = new ArrayList<>();
+        var sql = "SELECT g.game_id, g.game_name, g.white_username, g.black_username, g.version FROM games g" +
+                sqlClauses(query, parameters);
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            bind(statement, parameters);
+            var resultSet = statement.executeQuery();
+            List<GameData> games = new ArrayList<>();
+            while (resultSet.next()) {
+                games.add(readSummary(resultSet));
+            }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list games", e);
+        }
+    }
+
+    static void bind(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    static GameData readSummary(ResultSet resultSet) throws SQLException {
+        return new GameData(
+            resultSet.getInt("game_id"),
+            resultSet.getString("white_username"),
+            resultSet.getString("black_username"),
+            resultSet.getString("game_name"),
+            null,
+            resultSet.getInt("version")
+        );
+    }
+}
@@ -0,0 +1,35 @@
+package dataaccess.game;
+
+/**
+ * Which games a listing should return and how much of each.
+ *
+ * @param afterGameID  only games with a larger ID, for paging; 0 starts from the beginning
+ * @param limit        the most games to return, or 0 for no limit
+ * @param status       only games in this state, or null for any
+ * @param player       only games this user plays in, or null for any
+ * @param includeState whether to load each game's board; listings leave it null otherwise
+ */
+public record GameQuery(int afterGameID, int limit, Status status, String player, boolean includeState) {
+
+    public enum Status {
+        /** Not over and at least one seat is free */
+        OPEN,
+        /** Not over and both seats are taken */
+        IN_PROGRESS,
+        /** Over by checkmate, stalemate, draw or resignation */
+        FINISHED
+    }
+
+    public GameQuery {
+        if (afterGameID < 0 || limit < 0) {
+            throw new IllegalArgumentException("Cursor and limit cannot be negative");
+        }
+    }
+
+    /**
+     * @return a query for every game without board state
+     */
+    public static GameQuery summaries() {
+        return new GameQuery(0, 0, null, null, false);
+    }
+}
@@ -0,0 +1,152 @@
+package dataaccess.game;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * Packs a {@link ChessGame} into a small versioned byte array for storage.
+ * <p>
+ * Version 1 layout:
+ * <pre>
+ * byte  0      format version
+ * bytes 1-32   board, one nibble per square from a1 to h8, low nibble first
+ *              (0 empty, 1-6 white piece type ordinal + 1, 9-14 black piece type ordinal + 1)
+ * byte  33     flags: bit 0 black to move, bit 1 game over
+ * byte  34     castling rights, reserved (always 0 until castling is tracked)
+ * byte  35     en passant square, 0xFF for none (always none until en passant is tracked)
+ * bytes 36-37  halfmove clock, unsigned big-endian
+ * </pre>
+ * Moves pack into 15 bits: start square, end square (both 0-63 from a1) and the promotion
+ * piece type ordinal + 1, or 0 for no promotion.
+ */
+public final class GameStateCodec {
+
+    public static final byte VERSION = 1;
+    public static final int ENCODED_LENGTH = 38;
+
+    private static final int BOARD_OFFSET = 1;
+    private static final int FLAGS_OFFSET = 33;
+    private static final int CASTLING_OFFSET = 34;
+    private static final int EN_PASSANT_OFFSET = 35;
+    private static final int HALFMOVE_OFFSET = 36;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 1 << 1;
+    private static final int BLACK_NIBBLE = 8;
+    private static final int NO_SQUARE = 0xFF;
+
+    // Shared lookups so neither direction allocates positions or pieces per square
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+    private static final ChessPiece[] PIECES = new ChessPiece[16];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            PIECES[type.ordinal() + 1] = new ChessPiece(ChessGame.TeamColor.WHITE, type);
+            PIECES[BLACK_NIBBLE + type.ordinal() + 1] = new ChessPiece(ChessGame.TeamColor.BLACK, type);
+        }
+    }
+
+    private GameStateCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[ENCODED_LENGTH];
+        bytes[0] = VERSION;
+
+        ChessBoard board = game.getBoard();
+        for (int square = 0; square < 64; square += 2) {
+            int low = nibble(board.getPiece(SQUARES[square]));
+            int high = nibble(board.getPiece(SQUARES[square + 1]));
+            bytes[BOARD_OFFSET + square / 2] = (byte) (low | high << 4);
+        }
+
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isGameOver()) {
+            flags |= GAME_OVER;
+        }
+        bytes[FLAGS_OFFSET] = (byte) flags;
+        bytes[CASTLING_OFFSET] = 0;
+        bytes[EN_PASSANT_OFFSET] = (byte) NO_SQUARE;
+
+        int halfmoveClock = Math.min(game.getHalfmoveClock(), 0xFFFF);
+        bytes[HALFMOVE_OFFSET] = (byte) (halfmoveClock >>> 8);
+        bytes[HALFMOVE_OFFSET + 1] = (byte) halfmoveClock;
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a state this codec wrote
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes == null || bytes.length < ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Encoded game state is truncated");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported game state version " + bytes[0]);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square += 2) {
+            int packed = bytes[BOARD_OFFSET + square / 2];
+            if (packed != 0) {
+                board.addPiece(SQUARES[square], piece(packed & 0xF));
+                board.addPiece(SQUARES[square + 1], piece(packed >>> 4 & 0xF));
+            }
+        }
+
+        int flags = bytes[FLAGS_OFFSET];
+        ChessGame game = new ChessGame(board,
+                (flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setGameOver((flags & GAME_OVER) != 0);
+        game.setHalfmoveClock((bytes[HALFMOVE_OFFSET] & 0xFF) << 8 | bytes[HALFMOVE_OFFSET + 1] & 0xFF);
+        return game;
+    }
+
+    public static short packMove(ChessMove move) {
+        int from = square(move.getStartPosition());
+        int to = square(move.getEndPosition());
+        int promotion = move.getPromotionPiece() == null ? 0 : move.getPromotionPiece().ordinal() + 1;
+        return (short) (from | to << 6 | promotion << 12);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a move this codec packed
+     */
+    public static ChessMove unpackMove(int packed) {
+        int promotion = packed >>> 12 & 0x7;
+        if (packed < 0 || packed >>> 15 != 0 || promotion > ChessPiece.PieceType.values().length) {
+            throw new IllegalArgumentException("Invalid packed move " + packed);
+        }
+        ChessPiece.PieceType promotionPiece = promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1];
+        return new ChessMove(SQUARES[packed & 0x3F], SQUARES[packed >>> 6 & 0x3F], promotionPiece);
+    }
+
+    private static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    private static int nibble(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        int code = piece.getPieceType().ordinal() + 1;
+        return piece.getTeamColor() == ChessGame.TeamColor.BLACK ? code | BLACK_NIBBLE : code;
+    }
+
+    private static ChessPiece piece(int nibble) {
+        ChessPiece piece = PIECES[nibble];
+        if (piece == null && nibble != 0) {
+            throw new IllegalArgumentException("Invalid piece code " + nibble);
+        }
+        return piece;
+    }
+}
@@ -3,47 +3,70 @@ package dataaccess.game;
 import dataaccess.DataAccessException;
 import model.GameData;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps games in a concurrent map keyed by ID, safe to share between request threads.
+ * Games are stored as given, so callers that change a game's {@link chess.ChessGame}
+ * in place change the stored game too.
+ */
 public class MemoryGameDAO implements GameDAO {
-    private final List<GameData> games = new ArrayList<>();
-    private int nextID = 1;
+    private final Map<Integer, GameData> games = new ConcurrentHashMap<>();
+    private final AtomicInteger nextID = new AtomicInteger(1);
 
     @Override
     public void clear() throws DataAccessException {
         games.clear();
-        nextID = 1;
+        nextID.set(1);
     }
 
     @Override
     public int createGame(GameData game) throws DataAccessException {
-        int gameID = nextID++;
+        int gameID = nextID.getAndIncrement();
         GameData newGame = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game());
-        games.add(newGame);
+        games.put(gameID, newGame);
         return gameID;
     }
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        for (GameData game : games) {
-            if (game.gameID() == gameID) {
-                return game;
-            }
-        }
-        return null;
+        return games.get(gameID);
     }
 
     @Override
     public List<GameData> listGames() throws DataAccessException {
-        return new ArrayList<>(games);
+        List<GameData> list = new ArrayList<>(games.values());
+        list.sort(Comparator.comparingInt(GameData::gameID));
+        return list;
     }
 
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        for (int i = 0; i < games.size(); i++) {
-            if (games.get(i).gameID() == game.gameID()) {
-                games.set(i, game);
-                return;
-            }
+        games.computeIfPresent(game.gameID(), (id, current) -> game.withVersion(game.version() + 1));
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        games.remove(gameID);
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        GameData current = games.get(game.gameID());
+        if (current == null || current.version() != game.version()) {
+            return false;
+        }
+        return games.remove(game.gameID(), current);
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        GameData current = games.get(game.gameID());
+        if (current == null || current.version() != game.version()) {
+            return false;
         }
+        // Only swaps if nothing replaced the entry since it was read
+        return games.replace(game.gameID(), current, game.withVersion(game.version() + 1));
     }
 }
@@ -0,0 +1,275 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Spreads games across several underlying DAOs, each with its own storage.
+ * <p>
+ * A game's ID carries its shard in the top bits and the shard's own ID in the rest, so IDs
+ * stay unique across shards and every call on one game goes straight to its shard. Shard 0's
+ * IDs are unchanged, so an existing store can become shard 0 without renumbering its games.
+ * New games go to the shards in turn. Listings ask every shard in parallel and merge the
+ * results by ID, so paging works the same as on a single store.
+ */
+public class ShardedGameDAO implements GameDAO, AutoCloseable {
+
+    /**
+     * The most shards IDs have room for
+     */
+    public static final int MAX_SHARDS = 16;
+
+    // Four bits for the shard leaves room for over 134 million games per shard
+    private static final int SHARD_SHIFT = 27;
+    private static final int LOCAL_MASK = (1 << SHARD_SHIFT) - 1;
+
+    /**
+     * @param created games created on each shard since the server started
+     */
+    public record Stats(int shards, List<Long> created) {
+    }
+
+    private final List<GameDAO> shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final AtomicLongArray created;
+    // Callers are usually I/O pool threads, so fan-out gets threads of its own rather than
+    // queueing behind the caller on the same pool
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardedGameDAO(List<GameDAO> shards) {
+        if (shards.isEmpty() || shards.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Game shards must number between 1 and " + MAX_SHARDS);
+        }
+        this.shards = List.copyOf(shards);
+        this.created = new AtomicLongArray(shards.size());
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        onEveryShard(shard -> {
+            shards.get(shard).clear();
+            return null;
+        });
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        int shard = Math.floorMod(nextShard.getAndIncrement(), shards.size());
+        int localID = shards.get(shard).createGame(game);
+        if (localID > LOCAL_MASK) {
+            throw new DataAccessException("Game shard " + shard + " has run out of IDs");
+        }
+        created.incrementAndGet(shard);
+        return globalID(shard, localID);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameDAO shard = shardOf(gameID);
+        return shard == null ? null : toGlobal(gameID, shard.getGame(gameID & LOCAL_MASK));
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        List<List<GameData>> results = onEveryShard(shard -> {
+            List<GameData> games = new ArrayList<>();
+            for (GameData game : shards.get(shard).listGames()) {
+                games.add(toGlobal(globalID(shard, game.gameID()), game));
+            }
+            games.sort(Comparator.comparingInt(GameData::gameID));
+            return games;
+        });
+        return merge(results, 0);
+    }
+
+    /**
+     * Asks each shard for a full page after the cursor, then keeps the lowest IDs. A shard
+     * whose IDs all fall before the cursor is not asked.
+     */
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        List<List<GameData>> results = onEveryShard(shard -> {
+            int after = query.afterGameID();
+            if (after >= (long) (shard + 1) << SHARD_SHIFT) {
+                return List.of();
+            }
+            int localAfter = after < globalID(shard, 0) ? 0 : after & LOCAL_MASK;
+            GameQuery local = new GameQuery(localAfter, query.limit(), query.status(), query.player(),
+                    query.includeState());
+            List<GameData> games = new ArrayList<>();
+            for (GameData game : shards.get(shard).listGames(local)) {
+                games.add(toGlobal(globalID(shard, game.gameID()), game));
+            }
+            return games;
+        });
+        return merge(results, query.limit());
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        GameDAO shard = shardOf(game.gameID());
+        if (shard != null) {
+            shard.updateGame(toLocal(game));
+        }
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        GameDAO shard = shardOf(gameID);
+        if (shard != null) {
+            shard.deleteGame(gameID & LOCAL_MASK);
+        }
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        GameDAO shard = shardOf(game.gameID());
+        return shard != null && shard.tryDeleteGame(toLocal(game));
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        GameDAO shard = shardOf(game.gameID());
+        return shard != null && shard.tryUpdateGame(toLocal(game));
+    }
+
+    @Override
+    public boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        GameDAO shard = shardOf(game.gameID());
+        return shard != null && shard.tryAppendMove(toLocal(game), move);
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        GameDAO shard = shardOf(game.gameID());
+        if (shard != null) {
+            shard.appendMove(toLocal(game), move);
+        }
+    }
+
+    @Override
+    public void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        GameDAO shard = shardOf(game.gameID());
+        if (shard != null) {
+            shard.appendMoves(toLocal(game), moves);
+        }
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        GameDAO shard = shardOf(gameID);
+        return shard != null && shard.claimSeat(gameID & LOCAL_MASK, color, username);
+    }
+
+    public Stats stats() {
+        List<Long> counts = new ArrayList<>();
+        for (int shard = 0; shard < created.length(); shard++) {
+            counts.add(created.get(shard));
+        }
+        return new Stats(shards.size(), counts);
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+    }
+
+    private static int globalID(int shard, int localID) {
+        return (shard << SHARD_SHIFT) | localID;
+    }
+
+    /**
+     * @return the game's shard, or null if its ID names a shard that does not exist
+     */
+    private GameDAO shardOf(int gameID) {
+        int shard = gameID >>> SHARD_SHIFT;
+        return gameID <= 0 || shard >= shards.size() ? null : shards.get(shard);
+    }
+
+    private static GameData toLocal(GameData game) {
+        return new GameData(game.gameID() & LOCAL_MASK, game.whiteUsername(), game.blackUsername(), game.gameName(),
+                game.game(), game.version());
+    }
+
+    private static GameData toGlobal(int gameID, GameData game) {
+        return game == null ? null : new GameData(gameID, game.whiteUsername(), game.blackUsername(),
+                game.gameName(), game.game(), game.version());
+    }
+
+    /**
+     * Merges lists each already in ID order
+     *
+     * @param limit the most games to keep, or 0 for all of them
+     */
+    private static List<GameData> merge(List<List<GameData>> sorted, int limit) {
+        record Cursor(List<GameData> games, int index) {
+            GameData head() {
+                return games.get(index);
+            }
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingInt(cursor -> cursor.head().gameID()));
+        for (List<GameData> games : sorted) {
+            if (!games.isEmpty()) {
+                heads.add(new Cursor(games, 0));
+            }
+        }
+        List<GameData> merged = new ArrayList<>();
+        while (!heads.isEmpty() && (limit == 0 || merged.size() < limit)) {
+            Cursor cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.index() + 1 < cursor.games().size()) {
+                heads.add(new Cursor(cursor.games(), cursor.index() + 1));
+            }
+        }
+        return merged;
+    }
+
+    @FunctionalInterface
+    private interface ShardCall<T> {
+        T call(int shard) throws DataAccessException;
+    }
+
+    private <T> List<T> onEveryShard(ShardCall<T> call) throws DataAccessException {
+        if (shards.size() == 1) {
+            return List.of(call.call(0));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int index = shard;
+            futures.add(fanOut.submit(() -> call.call(index)));
+        }
+        List<T> results = new ArrayList<>();
+        DataAccessException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof DataAccessException dataAccess
+                            ? dataAccess
+                            : new DataAccessException("Failed to reach a game shard", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("Interrupted waiting for game shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+}
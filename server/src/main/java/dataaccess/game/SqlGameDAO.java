@@ -1,5 +1,7 @@
 package dataaccess.game;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,7 +15,7 @@ import model.GameData;
 
 public class SqlGameDAO implements GameDAO {
 
-    private final Gson gson = new Gson();
+    private static final Gson GSON = new Gson();
 
     @Override
     public void clear() throws DataAccessException {
@@ -28,12 +30,11 @@ public class SqlGameDAO implements GameDAO {
 
     @Override
     public int createGame(GameData game) throws DataAccessException {
-        var gameJson = gson.toJson(game.game());
-        var sql = "INSERT INTO games (game_name, game_state) VALUES (?, ?)";
+        var sql = "INSERT INTO games (game_name, game_blob) VALUES (?, ?)";
         try (var conn = DatabaseManager.getPublicConnection();
             var statement = conn.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS)){
             statement.setString(1, game.gameName());
-            statement.setString(2, gameJson);
+            statement.setBytes(2, encodeGame(game.game()));
             statement.executeUpdate();
 
             var resultSet = statement.getGeneratedKeys();
@@ -49,21 +50,14 @@ public class SqlGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        var sql = "SELECT game_id, game_name, white_username, black_username, game_state FROM games WHERE game_id = ?";
+        var sql = "SELECT game_id, game_name, white_username, black_username, game_state, game_blob, version " +
+                "FROM games WHERE game_id = ?";
         try (var conn = DatabaseManager.getPublicConnection();
             var statement = conn.prepareStatement(sql)) {
             statement.setInt(1, gameID);
             var resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                var gameJson = resultSet.getString("game_state");
-                ChessGame game = gson.fromJson(gameJson, ChessGame.class);
-                return new GameData(
-                    resultSet.getInt("game_id"),
-                    resultSet.getString("white_username"),
-                    resultSet.getString("black_username"),
-                    resultSet.getString("game_name"),
-                    game
-                );
+                return readGameData(resultSet);
             }
             return null;
         } catch (SQLException e) {
@@ -74,21 +68,13 @@ public class SqlGameDAO implements GameDAO {
 
     @Override
     public List<GameData> listGames() throws DataAccessException {
-        var sql = "SELECT game_id, game_name, white_username, black_username, game_state FROM games";
+        var sql = "SELECT game_id, game_name, white_username, black_username, game_state, game_blob, version FROM games";
         try (var conn = DatabaseManager.getPublicConnection();
             var statement = conn.prepareStatement(sql)) {
             var resultSet = statement.executeQuery();
             List<GameData> games = new ArrayList<>();
             while (resultSet.next()) {
-                var gameJson = resultSet.getString("game_state");
-                ChessGame game = gson.fromJson(gameJson, ChessGame.class);
-                games.add(new GameData(
-                    resultSet.getInt("game_id"),
-                    resultSet.getString("white_username"),
-                    resultSet.getString("black_username"),
-                    resultSet.getString("game_name"),
-                    game
-                ));
+                games.add(readGameData(resultSet));
             }
             return games;
         } catch (SQLException e) {
@@ -97,20 +83,170 @@ public class SqlGameDAO implements GameDAO {
 
     }
 
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        if (!query.includeState()) {
+            return GameQueries.querySummaries(query);
+        }
+        List<Object> parameters = new ArrayList<>();
+        var sql = "SELECT g.game_id, g.game_name, g.white_username, g.black_username, g.game_state, g.game_blob, " +
+                "g.version FROM games g" + GameQueries.sqlClauses(query, parameters);
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            GameQueries.bind(statement, parameters);
+            var resultSet = statement.executeQuery();
+            List<GameData> games = new ArrayList<>();
+            while (resultSet.next()) {
+                games.add(readGameData(resultSet));
+            }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list games", e);
+        }
+    }
+
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        var gameJson = gson.toJson(game.game());
-        var sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, game_state = ? WHERE game_id = ?";
+        writeGame(game, false);
+    }
+
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        return writeGame(game, true);
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        deleteRow(gameID, -1);
+    }
+
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        return deleteRow(game.gameID(), game.version());
+    }
+
+    /**
+     * Deletes a game's row; its moves and snapshots go with it
+     *
+     * @param version only delete the row if it is still at this version, or -1 to delete it regardless
+     * @return whether a row was deleted
+     */
+    static boolean deleteRow(int gameID, int version) throws DataAccessException {
+        var sql = "DELETE FROM games WHERE game_id = ?" + (version >= 0 ? " AND version = ?" : "");
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setInt(1, gameID);
+            if (version >= 0) {
+                statement.setInt(2, version);
+            }
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to delete game", e);
+        }
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        return claimSeatInRow(gameID, color, username);
+    }
+
+    /**
+     * Fills the seat in one statement that only matches while it is empty, so there is no read
+     * to go stale and nothing to retry. Players live on the games row for both game storages.
+     */
+    static boolean claimSeatInRow(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        var seat = color == ChessGame.TeamColor.WHITE ? "white_username" : "black_username";
+        var sql = "UPDATE games SET " + seat + " = ?, version = version + 1 WHERE game_id = ? AND " + seat + " IS NULL";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)) {
+            statement.setString(1, username);
+            statement.setInt(2, gameID);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to update game", e);
+        }
+    }
+
+    /**
+     * @param conditional only write if the stored version is the one the game was read at
+     * @return whether a row was written
+     */
+    private boolean writeGame(GameData game, boolean conditional) throws DataAccessException {
+        // Clearing game_state finishes migrating a row that was still stored as JSON
+        var sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, " +
+                "game_blob = ?, game_state = NULL, finished = ?, version = ? WHERE game_id = ?" +
+                (conditional ? " AND version = ?" : "");
         try (var conn = DatabaseManager.getPublicConnection();
             var statement = conn.prepareStatement(sql)) {
             statement.setString(1, game.whiteUsername());
             statement.setString(2, game.blackUsername());
             statement.setString(3, game.gameName());
-            statement.setString(4, gameJson);
-            statement.setInt(5, game.gameID());
-            statement.executeUpdate();
+            statement.setBytes(4, encodeGame(game.game()));
+            statement.setBoolean(5, game.game() != null && game.game().isGameOver());
+            statement.setInt(6, game.version() + 1);
+            statement.setInt(7, game.gameID());
+            if (conditional) {
+                statement.setInt(8, game.version());
+            }
+            return statement.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DataAccessException("Failed to update game", e);
         }
     }
+
+    private byte[] encodeGame(ChessGame game) {
+        return game == null ? null : GameStateCodec.encode(game);
+    }
+
+    private GameData readGameData(ResultSet resultSet) throws SQLException {
+        return new GameData(
+            resultSet.getInt("game_id"),
+            resultSet.getString("white_username"),
+            resultSet.getString("black_username"),
+            resultSet.getString("game_name"),
+            readGame(resultSet),
+            resultSet.getInt("version")
+        );
+    }
+
+    /**
+     * Sets the finished flag on games that ended before the column existed, which would
+     * otherwise all list as still in play and never be archived. Each game's state is read
+     * from its latest snapshot if it has one, or else from its games row.
+     */
+    public static void backfillFinished(Connection conn) throws SQLException {
+        var sql = "SELECT g.game_id, g.game_state, g.game_blob, s.state FROM games g " +
+                "LEFT JOIN game_snapshots s ON s.game_id = g.game_id " +
+                "AND s.ply = (SELECT MAX(ply) FROM game_snapshots WHERE game_id = g.game_id)";
+        try (var select = conn.prepareStatement(sql);
+            var update = conn.prepareStatement("UPDATE games SET finished = TRUE WHERE game_id = ?")) {
+            var resultSet = select.executeQuery();
+            int pending = 0;
+            while (resultSet.next()) {
+                var snapshot = resultSet.getBytes("state");
+                ChessGame game = snapshot != null ? GameStateCodec.decode(snapshot) : readGame(resultSet);
+                if (game != null && game.isGameOver()) {
+                    update.setInt(1, resultSet.getInt("game_id"));
+                    update.addBatch();
+                    pending++;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Reads a row's game in whichever format it was written. Rows saved before the binary
+     * codec only have JSON and are converted the next time they are updated.
+     */
+    static ChessGame readGame(ResultSet resultSet) throws SQLException {
+        var blob = resultSet.getBytes("game_blob");
+        if (blob != null) {
+            return GameStateCodec.decode(blob);
+        }
+        var gameJson = resultSet.getString("game_state");
+        return gameJson == null ? null : GSON.fromJson(gameJson, ChessGame.class);
+    }
 }
@@ -0,0 +1,489 @@
+package dataaccess.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.DataAccessException;
+import dataaccess.UnitOfWork;
+import model.GameData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds game updates in memory and writes them to another {@link GameDAO} in the background.
+ * <p>
+ * Updates to the same game are merged while they wait, so a game that gets several moves
+ * between flushes is written once, with its moves handed over together through
+ * {@link GameDAO#appendMoves}. Until a game has been written, reads are answered from the
+ * pending copy, which is the authoritative state. All writes to the underlying DAO happen
+ * on one background thread, in order.
+ * <p>
+ * A game is flushed when it ends, when it has {@link Settings#flushEveryMoves()} unwritten
+ * moves, and on every {@link Settings#flushIntervalMillis()} tick, whichever comes first.
+ * {@link #close()} writes everything still pending before returning.
+ * <p>
+ * A game's moves and its other changes are written in one {@link UnitOfWork}, so on a
+ * database a failed flush leaves nothing behind and is retried whole. Without transactions,
+ * only the part that was not written is retried. A game whose writes keep failing is
+ * retried less and less often, up to once a minute, until a write gets through.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+
+    /**
+     * When pending games get written. Values of zero or less turn that trigger off.
+     */
+    public record Settings(long flushIntervalMillis, int flushEveryMoves, boolean flushOnGameEnd) {
+    }
+
+    /**
+     * A point-in-time view of the write backlog
+     */
+    public record Stats(int pendingGames, int pendingMoves, long flushes, long failedFlushes) {
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindGameDAO.class);
+    private static final long MIN_RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    private final GameDAO delegate;
+    private final Settings settings;
+    private final UnitOfWork unitOfWork;
+    // Whether a failed flush rolls back everything it wrote
+    private final boolean transactional;
+    private final Map<Integer, PendingGame> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private volatile boolean closed = false;
+
+    public WriteBehindGameDAO(GameDAO delegate, Settings settings) {
+        this(delegate, settings, UnitOfWork.NONE);
+    }
+
+    /**
+     * @param unitOfWork how to write a game's moves and other changes together
+     */
+    public WriteBehindGameDAO(GameDAO delegate, Settings settings, UnitOfWork unitOfWork) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.unitOfWork = unitOfWork;
+        this.transactional = unitOfWork != UnitOfWork.NONE;
+        if (settings.flushIntervalMillis() > 0) {
+            writer.scheduleWithFixedDelay(() -> flushAll(false), settings.flushIntervalMillis(),
+                    settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        // Run on the writer so nothing queued before the clear lands after it
+        onWriter(() -> {
+            pending.clear();
+            delegate.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteGame(int gameID) throws DataAccessException {
+        // Like clear, so a pending write cannot bring the game back after it is gone
+        onWriter(() -> {
+            pending.remove(gameID);
+            delegate.deleteGame(gameID);
+            return null;
+        });
+    }
+
+    /**
+     * Checks the version the same way {@link #tryUpdateGame} does. The game's entry stays
+     * locked until the delete is done, so an update cannot be queued in between and lost.
+     */
+    @Override
+    public boolean tryDeleteGame(GameData game) throws DataAccessException {
+        return onWriter(() -> {
+            while (true) {
+                PendingGame waiting = pending.computeIfAbsent(game.gameID(), id -> new PendingGame());
+                waiting.lock.lock();
+                try {
+                    if (waiting.removed) {
+                        continue;
+                    }
+                    boolean deleted = false;
+                    try {
+                        if (currentVersion(waiting, game.gameID()) != game.version()) {
+                            return false;
+                        }
+                        // Pending writes have not reached the store, so its version is behind ours
+                        if (waiting.game == null) {
+                            deleted = delegate.tryDeleteGame(game);
+                        } else {
+                            delegate.deleteGame(game.gameID());
+                            deleted = true;
+                        }
+                        return deleted;
+                    } finally {
+                        if (deleted || waiting.game == null) {
+                            waiting.removed = true;
+                            pending.remove(game.gameID(), waiting);
+                        }
+                    }
+                } finally {
+                    waiting.lock.unlock();
+                }
+            }
+        });
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        // The ID comes from the underlying store, so creation cannot be deferred
+        return delegate.createGame(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        PendingGame waiting = pending.get(gameID);
+        if (waiting != null) {
+            GameData game = waiting.current();
+            if (game != null) {
+                return game;
+            }
+        }
+        return delegate.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        List<GameData> games = new ArrayList<>(delegate.listGames());
+        for (int i = 0; i < games.size(); i++) {
+            PendingGame waiting = pending.get(games.get(i).gameID());
+            GameData current = waiting == null ? null : waiting.current();
+            if (current != null) {
+                games.set(i, current);
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Pages through the underlying DAO and swaps in pending copies. A game whose pending
+     * change moves it into the filter only shows up once that change has been written.
+     */
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        if (pending.isEmpty()) {
+            return delegate.listGames(query);
+        }
+        List<GameData> games = new ArrayList<>();
+        for (GameData stored : delegate.listGames(query)) {
+            PendingGame waiting = pending.get(stored.gameID());
+            GameData current = waiting == null ? null : waiting.current();
+            if (current == null) {
+                games.add(stored);
+            } else if (GameQueries.matches(query, current)) {
+                games.add(query.includeState() ? current : GameQueries.summary(current));
+            }
+        }
+        return games;
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        enqueue(game, null, false);
+    }
+
+    @Override
+    public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+        enqueue(game, move, false);
+    }
+
+    @Override
+    public void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+        for (ChessMove move : moves) {
+            enqueue(game, move, false);
+        }
+    }
+
+    /**
+     * Checks the version against the pending copy, or the stored game if nothing is pending,
+     * so conflicts are caught here rather than when the write reaches the underlying DAO
+     */
+    @Override
+    public boolean tryUpdateGame(GameData game) throws DataAccessException {
+        return enqueue(game, null, true);
+    }
+
+    @Override
+    public boolean tryAppendMove(GameData game, ChessMove move) throws DataAccessException {
+        return enqueue(game, move, true);
+    }
+
+    /**
+     * Writes every pending game, including ones waiting to retry, and waits for the writes to finish
+     */
+    public void flush() throws DataAccessException {
+        onWriter(() -> {
+            flushAll(true);
+            return null;
+        });
+    }
+
+    public Stats stats() {
+        int games = 0;
+        int moves = 0;
+        for (PendingGame waiting : pending.values()) {
+            waiting.lock.lock();
+            try {
+                if (waiting.dirty) {
+                    games++;
+                    moves += waiting.moves.size();
+                }
+            } finally {
+                waiting.lock.unlock();
+            }
+        }
+        return new Stats(games, moves, flushes.sum(), failedFlushes.sum());
+    }
+
+    /**
+     * Stops accepting updates and drains everything pending to the underlying DAO
+     */
+    @Override
+    public void close() throws DataAccessException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!pending.isEmpty()) {
+            throw new DataAccessException("Failed to write " + pending.size() + " pending games on shutdown");
+        }
+    }
+
+    /**
+     * @param conditional only queue the write if the game is still at the version the caller read
+     * @return whether the write was queued
+     */
+    private boolean enqueue(GameData game, ChessMove move, boolean conditional) throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("Game store is shut down");
+        }
+        // Callers keep mutating their ChessGame, so the pending state is a private copy
+        GameData copy = copy(game, game.version());
+        boolean flushNow;
+        while (true) {
+            PendingGame waiting = pending.computeIfAbsent(game.gameID(), id -> new PendingGame());
+            waiting.lock.lock();
+            try {
+                if (waiting.removed) {
+                    continue;
+                }
+                if (conditional && currentVersion(waiting, game.gameID()) != game.version()) {
+                    if (waiting.game == null) {
+                        // Nothing was pending before this check, so leave no empty entry behind
+                        waiting.removed = true;
+                        pending.remove(game.gameID(), waiting);
+                    }
+                    return false;
+                }
+                waiting.game = copy;
+                waiting.dirty = true;
+                if (move == null) {
+                    waiting.metadataChanged = true;
+                } else {
+                    waiting.moves.add(move);
+                }
+                flushNow = (settings.flushOnGameEnd() && copy.game() != null && copy.game().isGameOver()) ||
+                        (settings.flushEveryMoves() > 0 && waiting.moves.size() >= settings.flushEveryMoves());
+                break;
+            } finally {
+                waiting.lock.unlock();
+            }
+        }
+        if (flushNow) {
+            try {
+                writer.execute(() -> flushGame(game.gameID(), false));
+            } catch (RejectedExecutionException e) {
+                // Shutting down; close() drains whatever is still pending
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the version a reader would see now, or -1 if the game does not exist
+     */
+    private int currentVersion(PendingGame waiting, int gameID) throws DataAccessException {
+        if (waiting.game != null) {
+            return waiting.game.version() + 1;
+        }
+        GameData stored = delegate.getGame(gameID);
+        return stored == null ? -1 : stored.version();
+    }
+
+    private void flushAll(boolean force) {
+        for (Integer gameID : pending.keySet()) {
+            flushGame(gameID, force);
+        }
+    }
+
+    /**
+     * Writes one game's pending state. Only ever runs on the writer thread.
+     *
+     * @param force write even if the game's last failure was too recent to retry yet
+     */
+    private void flushGame(int gameID, boolean force) {
+        PendingGame waiting = pending.get(gameID);
+        if (waiting == null) {
+            return;
+        }
+        GameData game;
+        List<ChessMove> moves;
+        boolean metadataChanged;
+        waiting.lock.lock();
+        try {
+            if (!waiting.dirty || (!force && System.currentTimeMillis() < waiting.retryAtMillis)) {
+                return;
+            }
+            game = waiting.game;
+            moves = waiting.moves;
+            metadataChanged = waiting.metadataChanged;
+            waiting.moves = new ArrayList<>();
+            waiting.metadataChanged = false;
+            waiting.dirty = false;
+        } finally {
+            waiting.lock.unlock();
+        }
+
+        boolean[] movesWritten = {false};
+        try {
+            unitOfWork.run(() -> {
+                if (!moves.isEmpty()) {
+                    delegate.appendMoves(game, moves);
+                    movesWritten[0] = true;
+                }
+                if (metadataChanged) {
+                    delegate.updateGame(game);
+                }
+                return null;
+            });
+            flushes.increment();
+        } catch (DataAccessException | RuntimeException e) {
+            failedFlushes.increment();
+            // Appending moves that were kept would log them twice, since plies are numbered on append
+            boolean movesKept = movesWritten[0] && !transactional;
+            int failures;
+            waiting.lock.lock();
+            try {
+                if (!movesKept) {
+                    // Put the unwritten moves back ahead of anything that arrived meanwhile
+                    moves.addAll(waiting.moves);
+                    waiting.moves = moves;
+                }
+                waiting.metadataChanged |= metadataChanged;
+                waiting.dirty = true;
+                failures = ++waiting.failures;
+                long backoff = Math.max(MIN_RETRY_MILLIS, settings.flushIntervalMillis()) << Math.min(failures - 1, 10);
+                waiting.retryAtMillis = System.currentTimeMillis() + Math.min(backoff, MAX_RETRY_MILLIS);
+            } finally {
+                waiting.lock.unlock();
+            }
+            if (failures == 1) {
+                LOG.warn("Failed to write game {}, will retry: {}", gameID, e.getMessage());
+            } else {
+                LOG.debug("Failed to write game {} ({} attempts): {}", gameID, failures, e.getMessage());
+            }
+            return;
+        }
+
+        waiting.lock.lock();
+        try {
+            if (waiting.failures > 0) {
+                LOG.info("Wrote game {} after {} failed attempts", gameID, waiting.failures);
+                waiting.failures = 0;
+                waiting.retryAtMillis = 0;
+            }
+            // Drop the entry once written, unless another update came in while writing
+            if (!waiting.dirty) {
+                waiting.removed = true;
+                pending.remove(gameID, waiting);
+            }
+        } finally {
+            waiting.lock.unlock();
+        }
+    }
+
+    private <T> T onWriter(Callable<T> task) throws DataAccessException {
+        try {
+            return writer.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for game writes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataAccessException dataAccessException) {
+                throw dataAccessException;
+            }
+            throw new DataAccessException("Failed to write games", e.getCause());
+        } catch (RejectedExecutionException e) {
+            throw new DataAccessException("Game store is shut down", e);
+        }
+    }
+
+    private static GameData copy(GameData game, int version) {
+        ChessGame state = game.game() == null ? null : GameStateCodec.decode(GameStateCodec.encode(game.game()));
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), state, version);
+    }
+
+    /**
+     * The newest state of one game that has not been written yet
+     */
+    private static final class PendingGame {
+        // Not a monitor: enqueue can read the underlying DAO while holding it, and a virtual
+        // thread blocked while holding a monitor pins its carrier for the whole query
+        private final ReentrantLock lock = new ReentrantLock();
+        // As the caller passed it, so writing it out stores the version readers were shown
+        private GameData game;
+        private List<ChessMove> moves = new ArrayList<>();
+        private boolean metadataChanged = false;
+        private boolean dirty = false;
+        // Failed flushes since the last one that got through, and when to try again
+        private int failures = 0;
+        private long retryAtMillis = 0;
+        // Set when the entry leaves the map, so a late update makes a new one
+        private boolean removed = false;
+
+        private GameData current() {
+            lock.lock();
+            try {
+                return game == null ? null : copy(game, game.version() + 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
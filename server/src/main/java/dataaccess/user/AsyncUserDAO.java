@@ -0,0 +1,32 @@
+package dataaccess.user;
+
+import dataaccess.IoExecutor;
+import model.UserData;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs {@link UserDAO} calls on an {@link IoExecutor}, so a slow store holds an I/O thread
+ * rather than the request thread
+ */
+public class AsyncUserDAO {
+    private final UserDAO userDAO;
+    private final IoExecutor io;
+
+    public AsyncUserDAO(UserDAO userDAO, IoExecutor io) {
+        this.userDAO = userDAO;
+        this.io = io;
+    }
+
+    public CompletableFuture<Void> clear() {
+        return io.run(userDAO::clear);
+    }
+
+    public CompletableFuture<Void> createUser(UserData user) {
+        return io.run(() -> userDAO.createUser(user));
+    }
+
+    public CompletableFuture<UserData> getUser(String username) {
+        return io.supply(() -> userDAO.getUser(username));
+    }
+}
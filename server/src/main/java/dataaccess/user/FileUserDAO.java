@@ -0,0 +1,90 @@
+package dataaccess.user;
+
+import dataaccess.DataAccessException;
+import dataaccess.LogStore;
+import model.UserData;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps users in memory and logs every change to a {@link LogStore}
+ */
+public class FileUserDAO implements UserDAO {
+    static final byte TABLE = 1;
+
+    private static final byte PUT = 1;
+    private static final byte CLEAR = 2;
+
+    private final LogStore store;
+    private final Map<String, UserData> users = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the users table; call before the store is opened
+     */
+    public FileUserDAO(LogStore store) {
+        this.store = store;
+        store.register(TABLE, new UserTable());
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.write(TABLE, () -> {
+            users.clear();
+            return out -> out.writeByte(CLEAR);
+        });
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        store.write(TABLE, () -> {
+            if (users.putIfAbsent(user.username(), user) != null) {
+                throw new DataAccessException("Failed to create user");
+            }
+            return put(user);
+        });
+    }
+
+    @Override
+    public boolean createUserIfAbsent(UserData user) throws DataAccessException {
+        return store.write(TABLE, () -> users.putIfAbsent(user.username(), user) == null ? put(user) : null);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return username == null ? null : users.get(username);
+    }
+
+    private static LogStore.Record put(UserData user) {
+        return out -> {
+            out.writeByte(PUT);
+            LogStore.writeString(out, user.username());
+            LogStore.writeString(out, user.password());
+            LogStore.writeString(out, user.email());
+        };
+    }
+
+    private class UserTable implements LogStore.Table {
+        @Override
+        public void replay(DataInputStream in) throws IOException {
+            switch (in.readByte()) {
+                case PUT -> {
+                    var user = new UserData(LogStore.readString(in), LogStore.readString(in), LogStore.readString(in));
+                    users.put(user.username(), user);
+                }
+                case CLEAR -> users.clear();
+                default -> throw new IOException("Unknown user record");
+            }
+        }
+
+        @Override
+        public void snapshot(List<LogStore.Record> records) {
+            for (UserData user : users.values()) {
+                records.add(put(user));
+            }
+        }
+    }
+}
@@ -2,11 +2,11 @@ package dataaccess.user;
 
 import dataaccess.DataAccessException;
 import model.UserData;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryUserDAO implements UserDAO {
-    private final List<UserData> users = new ArrayList<>();
+    private final Map<String, UserData> users = new ConcurrentHashMap<>();
 
     @Override
     public void clear() throws DataAccessException {
@@ -15,16 +15,19 @@ public class MemoryUserDAO implements UserDAO {
 
     @Override
     public void createUser(UserData user) throws DataAccessException {
-        users.add(user);
+        // Usernames are unique, as the users table's primary key enforces
+        if (users.putIfAbsent(user.username(), user) != null) {
+            throw new DataAccessException("Failed to create user");
+        }
+    }
+
+    @Override
+    public boolean createUserIfAbsent(UserData user) throws DataAccessException {
+        return users.putIfAbsent(user.username(), user) == null;
     }
 
     @Override
     public UserData getUser(String username) throws DataAccessException {
-        for (UserData user : users) {
-            if (user.username().equals(username)) {
-                return user;
-            }
-        }
-        return null;
+        return username == null ? null : users.get(username);
     }
 }
@@ -7,7 +7,8 @@ import dataaccess.DatabaseManager;
 import model.UserData;
 
 public class SqlUserDAO implements UserDAO{
-
+    // MySQL's ER_DUP_ENTRY
+    private static final int DUPLICATE_KEY = 1062;
 
     @Override
     public void createUser(UserData user) throws DataAccessException {
@@ -23,6 +24,27 @@ public class SqlUserDAO implements UserDAO{
         };
     }
 
+    /**
+     * Inserts without reading first and lets the primary key catch a taken username
+     */
+    @Override
+    public boolean createUserIfAbsent(UserData user) throws DataAccessException {
+        var sql = "INSERT INTO users (username, password_hash, email) VALUES (?, ?, ?)";
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement(sql)){
+            statement.setString(1, user.username());
+            statement.setString(2, user.password());
+            statement.setString(3, user.email());
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == DUPLICATE_KEY) {
+                return false;
+            }
+            throw new DataAccessException("Failed to create user", e);
+        }
+    }
+
     @Override
     public UserData getUser(String username) throws DataAccessException {
         var sql = "SELECT username, password_hash, email FROM users WHERE username = ?";
@@ -7,4 +7,18 @@ public interface UserDAO {
     void clear() throws DataAccessException;
     void createUser(UserData user) throws DataAccessException;
     UserData getUser(String username) throws DataAccessException;
+
+    /**
+     * Creates a user unless the username is taken. This default reads first; stores that
+     * can insert and detect the duplicate in one step should override it.
+     *
+     * @return false, having written nothing, if the username is taken
+     */
+    default boolean createUserIfAbsent(UserData user) throws DataAccessException {
+        if (getUser(user.username()) != null) {
+            return false;
+        }
+        createUser(user);
+        return true;
+    }
 }
@@ -2,25 +2,52 @@ package server;
 
 import com.google.gson.Gson;
 
+import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
+import dataaccess.IoExecutor;
+import dataaccess.LogStore;
+import dataaccess.UnitOfWork;
+import dataaccess.auth.AsyncAuthDAO;
 import dataaccess.auth.AuthDAO;
+import dataaccess.auth.AuthSweeper;
+import dataaccess.auth.CachingAuthDAO;
+import dataaccess.auth.FileAuthDAO;
+import dataaccess.auth.FileRevocationDAO;
 import dataaccess.auth.MemoryAuthDAO;
+import dataaccess.auth.MemoryRevocationDAO;
+import dataaccess.auth.RevocationDAO;
+import dataaccess.auth.SignedAuthDAO;
 import dataaccess.auth.SqlAuthDAO;
+import dataaccess.auth.SqlRevocationDAO;
+import dataaccess.auth.TokenPolicy;
+import dataaccess.auth.TokenSigner;
+import dataaccess.game.ActiveGameRegistry;
+import dataaccess.game.ArchivingGameDAO;
+import dataaccess.game.EventSourcedGameDAO;
+import dataaccess.game.FileGameDAO;
+import dataaccess.game.GameCatalog;
 import dataaccess.game.GameDAO;
 import dataaccess.game.MemoryGameDAO;
+import dataaccess.game.ShardedGameDAO;
 import dataaccess.game.SqlGameDAO;
+import dataaccess.game.WriteBehindGameDAO;
+import dataaccess.user.FileUserDAO;
 import dataaccess.user.UserDAO;
 import dataaccess.user.MemoryUserDAO;
 import dataaccess.user.SqlUserDAO;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import service.ClearService;
 import service.GameService;
+import service.PasswordHasher;
 import service.ServiceException;
 import service.UserService;
 import websocket.WebSocketHandler;
 import requests.CreateGameRequest;
 import requests.JoinGameRequest;
+import requests.ListGamesRequest;
 import requests.LoginRequest;
 import requests.LogoutRequest;
 import requests.RegisterRequest;
@@ -28,15 +55,27 @@ import results.CreateGameResult;
 import results.ListGamesResult;
 import results.LoginResult;
 import results.RegisterResult;
-import model.AuthData;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * HTTP server for the chess application.
  * Handles all API endpoints for user authentication, game management, and database operations.
  */
 public class Server {
+    private static final Logger LOG = LoggerFactory.getLogger(Server.class);
+
+    // How long a game stays in memory after its last connection, to cover quick reconnects
+    private static final long ACTIVE_GAME_GRACE_MILLIS = 30_000;
+    // Log writes wait for a shared sync, so more writers in flight means bigger batches
+    private static final IoExecutor.Settings FILE_IO_SETTINGS = new IoExecutor.Settings(64, 1000);
+
+    private final StorageMode storageMode;
+    private final ThreadMode threadMode;
     private Javalin javalin;
     private Gson gson = new Gson();
     private UserService userService;
@@ -46,47 +85,161 @@ public class Server {
     private WebSocketHandler webSocketHandler;
 
     private AuthDAO authDAO;
+    private AuthSweeper authSweeper;
+    private SignedAuthDAO signedAuthDAO;
+    private AsyncAuthDAO asyncAuthDAO;
+    private IoExecutor io;
+    private UnitOfWork unitOfWork = UnitOfWork.NONE;
+    private PasswordHasher passwordHasher;
+    private CachingAuthDAO authCache;
+    private WriteBehindGameDAO writeBehindGameDAO;
+    private ActiveGameRegistry activeGames;
+    private GameCatalog gameCatalog;
+    private LogStore logStore;
+    private final List<LogStore> shardStores = new ArrayList<>();
+    private ShardedGameDAO shardedGameDAO;
+    private ArchivingGameDAO archivingGameDAO;
 
     public Server() {
-        try {
-            DatabaseManager.createDatabase();
-            DatabaseManager.createTables();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize database", e);
+        this(StorageMode.fromEnvironment());
+    }
+
+    public Server(StorageMode storageMode) {
+        this(storageMode, ThreadMode.fromEnvironment());
+    }
+
+    public Server(StorageMode storageMode, ThreadMode threadMode) {
+        this.storageMode = storageMode;
+        this.threadMode = threadMode;
+        boolean virtualThreads = threadMode == ThreadMode.VIRTUAL;
+        UserDAO userDAO;
+        GameDAO gameDAO;
+        TokenPolicy tokenPolicy = TokenPolicy.fromEnvironment();
+        TokenSigner.Settings signerSettings = TokenSigner.Settings.fromEnvironment();
+        RevocationDAO revocationDAO;
+        if (storageMode == StorageMode.MEMORY) {
+            // Already as fast as any cache, so none of the database layers go on top
+            userDAO = new MemoryUserDAO();
+            authDAO = new MemoryAuthDAO(tokenPolicy);
+            revocationDAO = new MemoryRevocationDAO();
+            gameDAO = new MemoryGameDAO();
+            io = IoExecutor.direct();
+        } else if (storageMode == StorageMode.FILE) {
+            LogStore.Settings fileSettings = StorageMode.fileSettings();
+            logStore = new LogStore(fileSettings);
+            userDAO = new FileUserDAO(logStore);
+            authDAO = new FileAuthDAO(logStore, tokenPolicy);
+            revocationDAO = new FileRevocationDAO(logStore);
+            gameDAO = new FileGameDAO(logStore);
+            int shards = StorageMode.fileShards();
+            if (shards > 1) {
+                // Each shard syncs its own log, so game writes stop queueing for one file
+                List<GameDAO> gameShards = new ArrayList<>(List.of(gameDAO));
+                for (int shard = 1; shard < shards; shard++) {
+                    LogStore shardStore = new LogStore(StorageMode.fileShardSettings(fileSettings, shard));
+                    gameShards.add(new FileGameDAO(shardStore));
+                    shardStores.add(shardStore);
+                }
+                shardedGameDAO = new ShardedGameDAO(gameShards);
+                gameDAO = shardedGameDAO;
+            }
+            io = new IoExecutor(FILE_IO_SETTINGS, virtualThreads);
+            try {
+                logStore.open();
+                for (LogStore shardStore : shardStores) {
+                    shardStore.open();
+                }
+            } catch (DataAccessException e) {
+                throw new RuntimeException("Failed to open game data log", e);
+            }
+        } else {
+            try {
+                DatabaseManager.createDatabase();
+                DatabaseManager.createTables();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to initialize database", e);
+            }
+
+            io = new IoExecutor(DatabaseManager.getIoSettings(), virtualThreads);
+            unitOfWork = DatabaseManager.unitOfWork();
+            userDAO = new SqlUserDAO();
+            authDAO = new SqlAuthDAO(tokenPolicy);
+            revocationDAO = new SqlRevocationDAO();
+            if (DatabaseManager.getAuthCacheSettings() != null) {
+                authCache = new CachingAuthDAO(authDAO, DatabaseManager.getAuthCacheSettings());
+                authDAO = authCache;
+            }
+            gameDAO = DatabaseManager.useEventSourcedGames()
+                    ? new EventSourcedGameDAO(DatabaseManager.getSnapshotInterval())
+                    : new SqlGameDAO();
+            if (DatabaseManager.getWriteBehindSettings() != null) {
+                writeBehindGameDAO = new WriteBehindGameDAO(gameDAO, DatabaseManager.getWriteBehindSettings(),
+                        unitOfWork);
+                gameDAO = writeBehindGameDAO;
+            }
+        }
+
+        // Signed tokens are checked in memory; sessions from before signing still go to the store
+        if (signerSettings != null) {
+            try {
+                signedAuthDAO = new SignedAuthDAO(authDAO, new TokenSigner(signerSettings), revocationDAO,
+                        signerSettings);
+            } catch (DataAccessException e) {
+                throw new RuntimeException("Failed to load revoked tokens", e);
+            }
+            signedAuthDAO.start();
+            authDAO = signedAuthDAO;
         }
 
-        UserDAO userDAO = new SqlUserDAO();
-        authDAO = new SqlAuthDAO();
-        GameDAO gameDAO = new SqlGameDAO();
+        // Expired sessions are deleted in the background so the auth store stays small
+        authSweeper = new AuthSweeper(authDAO, tokenPolicy, AuthSweeper.Settings.fromEnvironment());
+        authSweeper.start();
+
+        gameCatalog = new GameCatalog(gameDAO);
+        gameDAO = gameCatalog;
+
+        // Games that have been over a while move to compressed files; below the registry so
+        // replays through a game connection still find them
+        ArchivingGameDAO.Settings archiveSettings = StorageMode.archiveSettings();
+        if (archiveSettings != null) {
+            try {
+                archivingGameDAO = new ArchivingGameDAO(gameDAO, archiveSettings);
+            } catch (DataAccessException e) {
+                throw new RuntimeException("Failed to open game archive", e);
+            }
+            gameDAO = archivingGameDAO;
+        }
+
+        // Games with connected players stay in memory; writes still go through to storage
+        activeGames = new ActiveGameRegistry(gameDAO, ACTIVE_GAME_GRACE_MILLIS);
+        gameDAO = activeGames;
+        if (archivingGameDAO != null) {
+            // Players may still leave or reconnect, so their games stay in the hot store
+            archivingGameDAO.setInUse(activeGames::isActive);
+        }
 
-        // Initialize services
-        userService = new UserService(userDAO, authDAO);
-        gameService = new GameService(gameDAO, authDAO);
-        clearService = new ClearService(userDAO, gameDAO, authDAO);
+        // Initialize services; their data access runs on the I/O executor, not request threads
+        asyncAuthDAO = new AsyncAuthDAO(authDAO, io);
+        // Password hashing gets its own small pool so a login burst can't hold every request thread
+        passwordHasher = new PasswordHasher(PasswordHasher.Settings.fromEnvironment());
+        userService = new UserService(userDAO, authDAO, io, passwordHasher, unitOfWork);
+        gameService = new GameService(gameDAO, authDAO, io, unitOfWork);
+        clearService = new ClearService(userDAO, gameDAO, authDAO, io);
 
         // Initialize WebSocket handler
-        webSocketHandler = new WebSocketHandler(userDAO, authDAO, gameDAO);
+        webSocketHandler = new WebSocketHandler(userDAO, authDAO, activeGames);
 
         // Create Javalin server
-        javalin = Javalin.create(config -> config.staticFiles.add("web"));
+        javalin = Javalin.create(config -> {
+            config.staticFiles.add("web");
+            // Covers HTTP handlers and WebSocket messages, which Jetty runs on the same pool
+            config.useVirtualThreads = virtualThreads;
+        });
 
         // Set up endpoints
         setupRoutes();
     }
 
-    private void checkAuth(String authToken, Context ctx) throws ServiceException {
-        try{
-            AuthData auth = authDAO.getAuth(authToken);
-            if (auth == null) {
-                ctx.status(401).result(gson.toJson(Map.of("message", "Error: unauthorized"))).contentType("application/json");
-                return;
-            }
-        } catch(Exception e){
-            ctx.status(401).result(gson.toJson(Map.of("message", "Error: unauthorized"))).contentType("application/json");
-            return;
-        }
-    }
-
     private void setupRoutes() {
         // User endpoints
         javalin.post("/user", ctx -> handleRegister(ctx));
@@ -101,11 +254,15 @@ public class Server {
         // Database endpoints
         javalin.delete("/db", ctx -> handleClear(ctx));
 
+        // Operational endpoints
+        javalin.get("/metrics", ctx -> handleMetrics(ctx));
+
         javalin.ws("/ws", ws -> {
             ws.onConnect(ctx -> {
                 ctx.session.setIdleTimeout(java.time.Duration.ofMinutes(60));
             });
             ws.onMessage(webSocketHandler::handleConnection);
+            ws.onClose(webSocketHandler::handleClose);
         });
     }
 
@@ -117,102 +274,206 @@ public class Server {
             ctx.status(401).result(gson.toJson(Map.of("message", "Error: invalid credentials"))).contentType("application/json");
         } else if (message.contains("bad request")) {
             ctx.status(400).result(gson.toJson(Map.of("message", "Error: bad request"))).contentType("application/json");
+        } else if (message.contains(IoExecutor.BUSY_MESSAGE)) {
+            ctx.status(503).result(gson.toJson(Map.of("message", message))).contentType("application/json");
         } else {
             ctx.status(500).result(gson.toJson(Map.of("message", message))).contentType("application/json");
         }
     }
 
+    /*
+     * Handlers hand Javalin a future and return, so the request thread is free while the
+     * data access runs. The future always completes normally; failures become responses.
+     */
+
     private void handleRegister(Context ctx) {
-        try {
-            RegisterRequest request = gson.fromJson(ctx.body(), RegisterRequest.class);
-            RegisterResult result = userService.register(request);
-            ctx.status(200).result(gson.toJson(result)).contentType("application/json");
-        } catch (ServiceException e) {
-            String message = e.getMessage();
-            if (message.contains("bad request")) {
-                ctx.status(400).result(gson.toJson(Map.of("message", "Error: bad request"))).contentType("application/json");
-            } else if (message.contains("already exists")) {
+        RegisterRequest request = gson.fromJson(ctx.body(), RegisterRequest.class);
+        ctx.future(() -> userService.registerAsync(request).handle((result, error) -> {
+            if (error == null) {
+                ctx.status(200).result(gson.toJson(result)).contentType("application/json");
+                return null;
+            }
+            ServiceException e = ServiceException.from(error);
+            if (e.getMessage().contains("already exists")) {
                 ctx.status(403).result(gson.toJson(Map.of("message", "Error: already exists"))).contentType("application/json");
             } else {
-                ctx.status(500).result(gson.toJson(Map.of("message", message))).contentType("application/json");
+                returnStatus(e, ctx);
             }
-        }
+            return null;
+        }));
     }
 
     private void handleLogin(Context ctx) {
-        try {
-            LoginRequest request = gson.fromJson(ctx.body(), LoginRequest.class);
-            LoginResult result = userService.login(request);
-            ctx.status(200).result(gson.toJson(result)).contentType("application/json");
-        } catch (ServiceException e) {
-            returnStatus(e, ctx);
-        }
+        LoginRequest request = gson.fromJson(ctx.body(), LoginRequest.class);
+        ctx.future(() -> userService.loginAsync(request).handle((result, error) -> {
+            if (error == null) {
+                ctx.status(200).result(gson.toJson(result)).contentType("application/json");
+            } else {
+                returnStatus(ServiceException.from(error), ctx);
+            }
+            return null;
+        }));
     }
 
     private void handleLogout(Context ctx) {
-        try {
-            String authToken = ctx.header("Authorization");
-            checkAuth(authToken, ctx);
-
-            LogoutRequest request = new LogoutRequest(authToken);
-            userService.logout(request);
-            ctx.status(200);
-        } catch (ServiceException e) {
-            returnStatus(e, ctx);
-        }
+        LogoutRequest request = new LogoutRequest(ctx.header("Authorization"));
+        ctx.future(() -> userService.logoutAsync(request).handle((result, error) -> {
+            if (error == null) {
+                ctx.status(200);
+            } else {
+                returnStatus(ServiceException.from(error), ctx);
+            }
+            return null;
+        }));
     }
 
     private void handleCreateGame(Context ctx) {
+        String authToken = ctx.header("Authorization");
+        CreateGameRequest request = gson.fromJson(ctx.body(), CreateGameRequest.class);
+        ctx.future(() -> gameService.createGameAsync(request, authToken).handle((result, error) -> {
+            if (error == null) {
+                ctx.status(200).result(gson.toJson(result)).contentType("application/json");
+            } else {
+                returnStatus(ServiceException.from(error), ctx);
+            }
+            return null;
+        }));
+    }
+
+    private void handleListGames(Context ctx) {
+        String authToken = ctx.header("Authorization");
+        ListGamesRequest request;
         try {
-            String authToken = ctx.header("Authorization");
-            checkAuth(authToken, ctx);
-            CreateGameRequest request = gson.fromJson(ctx.body(), CreateGameRequest.class);
-            CreateGameResult result = gameService.createGame(request, authToken);
-            ctx.status(200).result(gson.toJson(result)).contentType("application/json");
+            request = new ListGamesRequest(
+                    intQueryParam(ctx, "after"),
+                    intQueryParam(ctx, "limit"),
+                    ctx.queryParam("status"),
+                    ctx.queryParam("player"),
+                    ctx.queryParam("includeState") == null ? null : Boolean.parseBoolean(ctx.queryParam("includeState")));
         } catch (ServiceException e) {
             returnStatus(e, ctx);
+            return;
         }
+        // Moves change boards without changing the catalog, so only summaries are tagged
+        String etag = Boolean.TRUE.equals(request.includeState()) ? null :
+                "\"" + gameCatalog.versionTag() + "\"";
+        boolean tagMatches = etag != null && matchesTag(ctx.header("If-None-Match"), etag);
+        ctx.future(() -> {
+            CompletableFuture<Boolean> notModified = tagMatches
+                    ? isAuthorized(authToken)
+                    : CompletableFuture.completedFuture(false);
+            return notModified.thenCompose(unchanged -> {
+                if (unchanged) {
+                    ctx.status(304).header("ETag", etag);
+                    return CompletableFuture.completedFuture(null);
+                }
+                return gameService.listGamesAsync(request, authToken).thenAccept(result -> {
+                    if (etag != null) {
+                        ctx.header("ETag", etag);
+                    }
+                    ctx.status(200).result(gson.toJson(result)).contentType("application/json");
+                });
+            }).exceptionally(error -> {
+                returnStatus(ServiceException.from(error), ctx);
+                return null;
+            });
+        });
     }
 
-    private void handleListGames(Context ctx) {
+    private static boolean matchesTag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Boolean> isAuthorized(String authToken) {
+        return asyncAuthDAO.getAuth(authToken).handle((auth, error) -> error == null && auth != null);
+    }
+
+    private static Integer intQueryParam(Context ctx, String name) throws ServiceException {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return null;
+        }
         try {
-            String authToken = ctx.header("Authorization");
-            checkAuth(authToken, ctx);
-            ListGamesResult result = gameService.listGames(authToken);
-            ctx.status(200).result(gson.toJson(result)).contentType("application/json");
-        } catch (ServiceException e) {
-            returnStatus(e, ctx);
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ServiceException("Error: bad request");
         }
     }
 
     private void handleJoinGame(Context ctx) {
-        try {
-            String authToken = ctx.header("Authorization");
-            checkAuth(authToken, ctx);
-            JoinGameRequest request = gson.fromJson(ctx.body(), JoinGameRequest.class);
-            gameService.joinGame(request, authToken);
-            ctx.status(200);
-        } catch (ServiceException e) {
+        String authToken = ctx.header("Authorization");
+        JoinGameRequest request = gson.fromJson(ctx.body(), JoinGameRequest.class);
+        ctx.future(() -> gameService.joinGameAsync(request, authToken).handle((result, error) -> {
+            if (error == null) {
+                ctx.status(200);
+                return null;
+            }
+            ServiceException e = ServiceException.from(error);
             String message = e.getMessage();
-            if (message.contains("unauthorized")) {
-                ctx.status(401).result(gson.toJson(Map.of("message", "Error: unauthorized"))).contentType("application/json");
-            } else if (message.contains("bad request")) {
-                ctx.status(400).result(gson.toJson(Map.of("message", "Error: bad request"))).contentType("application/json");
-            } else if (message.contains("already taken")) {
+            if (message.contains("already taken")) {
                 ctx.status(403).result(gson.toJson(Map.of("message", "Error: already taken"))).contentType("application/json");
+            } else if (message.contains("game is busy")) {
+                ctx.status(409).result(gson.toJson(Map.of("message", message))).contentType("application/json");
             } else {
-                ctx.status(500).result(gson.toJson(Map.of("message", message))).contentType("application/json");
+                returnStatus(e, ctx);
             }
-        }
+            return null;
+        }));
     }
 
     private void handleClear(Context ctx) {
-        try {
-            clearService.clear();
-            ctx.status(200);
-        } catch (ServiceException e) {
-            ctx.status(500).result(gson.toJson(Map.of("message", e.getMessage()))).contentType("application/json");
+        ctx.future(() -> clearService.clearAsync().handle((result, error) -> {
+            if (error == null) {
+                ctx.status(200);
+            } else {
+                ctx.status(500).result(gson.toJson(Map.of("message", ServiceException.from(error).getMessage())))
+                        .contentType("application/json");
+            }
+            return null;
+        }));
+    }
+
+    private void handleMetrics(Context ctx) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("storage", storageMode);
+        metrics.put("threads", threadMode);
+        if (storageMode == StorageMode.MYSQL) {
+            metrics.put("dbPool", DatabaseManager.getPoolStats());
+        }
+        if (logStore != null) {
+            metrics.put("logStore", logStore.stats());
         }
+        if (shardedGameDAO != null) {
+            metrics.put("gameShards", shardedGameDAO.stats());
+            metrics.put("shardLogStores", shardStores.stream().map(LogStore::stats).toList());
+        }
+        metrics.put("io", io.stats());
+        metrics.put("passwordHasher", passwordHasher.stats());
+        metrics.put("activeGames", activeGames.activeGames());
+        metrics.put("gameCatalogVersion", gameCatalog.version());
+        if (authCache != null) {
+            metrics.put("authCache", authCache.stats());
+        }
+        metrics.put("authSweeper", authSweeper.stats());
+        if (signedAuthDAO != null) {
+            metrics.put("signedTokens", signedAuthDAO.stats());
+        }
+        if (archivingGameDAO != null) {
+            metrics.put("gameArchive", archivingGameDAO.stats());
+        }
+        if (writeBehindGameDAO != null) {
+            metrics.put("gameWriteBehind", writeBehindGameDAO.stats());
+        }
+        ctx.status(200).result(gson.toJson(metrics)).contentType("application/json");
     }
 
     public int run(int desiredPort) {
@@ -222,5 +483,29 @@ public class Server {
 
     public void stop() {
         javalin.stop();
+        io.close();
+        passwordHasher.close();
+        activeGames.close();
+        authSweeper.close();
+        if (signedAuthDAO != null) {
+            signedAuthDAO.close();
+        }
+        if (archivingGameDAO != null) {
+            archivingGameDAO.close();
+        }
+        if (writeBehindGameDAO != null) {
+            try {
+                writeBehindGameDAO.close();
+            } catch (DataAccessException e) {
+                LOG.error("Failed to write pending game updates on shutdown", e);
+            }
+        }
+        if (shardedGameDAO != null) {
+            shardedGameDAO.close();
+        }
+        shardStores.forEach(LogStore::close);
+        if (logStore != null) {
+            logStore.close();
+        }
     }
 }
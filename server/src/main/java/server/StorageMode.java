@@ -0,0 +1,111 @@
+package server;
+
+import dataaccess.LogStore;
+import dataaccess.game.ArchivingGameDAO;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Where the server keeps its users, sessions and games
+ */
+public enum StorageMode {
+    /** MySQL, configured by db.properties */
+    MYSQL,
+    /** Process memory only, for single-node deployments and load tests; lost on restart */
+    MEMORY,
+    /** An append-only log in a local directory, for a single node without a database */
+    FILE;
+
+    private static final long DEFAULT_COMPACT_AFTER_BYTES = 64L << 20;
+    private static final long DEFAULT_ARCHIVE_AFTER_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_ARCHIVE_SWEEP_MILLIS = 60 * 1000L;
+    private static final int DEFAULT_ARCHIVE_SEGMENT_GAMES = 1000;
+
+    /**
+     * Reads the mode from the chess.storage system property, then the CHESS_STORAGE
+     * environment variable, defaulting to MySQL
+     */
+    public static StorageMode fromEnvironment() {
+        String value = System.getProperty("chess.storage", System.getenv("CHESS_STORAGE"));
+        if (value == null || value.isBlank()) {
+            return MYSQL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown storage mode: " + value, e);
+        }
+    }
+
+    /**
+     * Reads the file store's settings: chess.storage.dir (default chess-data),
+     * chess.storage.sync (default true) and chess.storage.compactBytes, or their
+     * CHESS_STORAGE_* environment variables
+     */
+    public static LogStore.Settings fileSettings() {
+        String directory = setting("chess.storage.dir", "CHESS_STORAGE_DIR", "chess-data");
+        String sync = setting("chess.storage.sync", "CHESS_STORAGE_SYNC", "true");
+        String compact = setting("chess.storage.compactBytes", "CHESS_STORAGE_COMPACT_BYTES",
+                Long.toString(DEFAULT_COMPACT_AFTER_BYTES));
+        try {
+            return new LogStore.Settings(Path.of(directory), Boolean.parseBoolean(sync), Long.parseLong(compact.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid compaction threshold: " + compact, e);
+        }
+    }
+
+    /**
+     * Reads how many logs the file store spreads games over: chess.storage.shards or
+     * CHESS_STORAGE_SHARDS, default 1. Users, sessions and the first shard's games share the
+     * main log; each further shard logs to its own subdirectory.
+     */
+    public static int fileShards() {
+        String shards = setting("chess.storage.shards", "CHESS_STORAGE_SHARDS", "1");
+        try {
+            return Integer.parseInt(shards.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shard count: " + shards, e);
+        }
+    }
+
+    /**
+     * @return the settings for one further game shard's log, alongside the main log
+     */
+    public static LogStore.Settings fileShardSettings(LogStore.Settings main, int shard) {
+        return new LogStore.Settings(main.directory().resolve("shard-" + shard), main.syncWrites(),
+                main.compactAfterBytes());
+    }
+
+    /**
+     * Reads where and when finished games are archived, for any storage mode. Archiving is on
+     * once chess.archive.dir is set; chess.archive.afterMs (default a day), chess.archive.sweepMs
+     * (default a minute) and chess.archive.segmentGames (default 1000) tune it. Each has a
+     * CHESS_ARCHIVE_* environment variable too.
+     *
+     * @return the settings, or null if archiving is off
+     */
+    public static ArchivingGameDAO.Settings archiveSettings() {
+        String directory = setting("chess.archive.dir", "CHESS_ARCHIVE_DIR", null);
+        if (directory == null) {
+            return null;
+        }
+        String after = setting("chess.archive.afterMs", "CHESS_ARCHIVE_AFTER_MS",
+                Long.toString(DEFAULT_ARCHIVE_AFTER_MILLIS));
+        String sweep = setting("chess.archive.sweepMs", "CHESS_ARCHIVE_SWEEP_MS",
+                Long.toString(DEFAULT_ARCHIVE_SWEEP_MILLIS));
+        String segment = setting("chess.archive.segmentGames", "CHESS_ARCHIVE_SEGMENT_GAMES",
+                Integer.toString(DEFAULT_ARCHIVE_SEGMENT_GAMES));
+        try {
+            return new ArchivingGameDAO.Settings(Path.of(directory), Long.parseLong(after.trim()),
+                    Long.parseLong(sweep.trim()), Integer.parseInt(segment.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid archive setting", e);
+        }
+    }
+
+    private static String setting(String property, String variable, String defaultValue) {
+        String value = System.getProperty(property, System.getenv(variable));
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,33 @@
+package server;
+
+import java.util.Locale;
+
+/**
+ * What kind of threads run the server's HTTP and WebSocket handlers
+ */
+public enum ThreadMode {
+    /** Jetty's bounded pool of platform threads */
+    PLATFORM,
+    /**
+     * A virtual thread per task, so handlers blocked on storage or the network hold no OS
+     * thread. Data access still runs on the bounded I/O executor, which caps how many calls
+     * reach the store at once.
+     */
+    VIRTUAL;
+
+    /**
+     * Reads the mode from the chess.threads system property, then the CHESS_THREADS
+     * environment variable, defaulting to platform threads
+     */
+    public static ThreadMode fromEnvironment() {
+        String value = System.getProperty("chess.threads", System.getenv("CHESS_THREADS"));
+        if (value == null || value.isBlank()) {
+            return PLATFORM;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown thread mode: " + value, e);
+        }
+    }
+}
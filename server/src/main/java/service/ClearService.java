@@ -1,23 +1,32 @@
 package service;
 
+import dataaccess.IoExecutor;
+import dataaccess.auth.AsyncAuthDAO;
 import dataaccess.auth.AuthDAO;
+import dataaccess.game.AsyncGameDAO;
 import dataaccess.game.GameDAO;
+import dataaccess.user.AsyncUserDAO;
 import dataaccess.user.UserDAO;
-import dataaccess.DataAccessException;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service class for database management operations.
  * Handles clearing all data from the database (useful for testing).
  */
 public class ClearService {
-    private final UserDAO userDAO;
-    private final GameDAO gameDAO;
-    private final AuthDAO authDAO;
+    private final AsyncUserDAO userDAO;
+    private final AsyncGameDAO gameDAO;
+    private final AsyncAuthDAO authDAO;
 
     public ClearService(UserDAO userDAO, GameDAO gameDAO, AuthDAO authDAO) {
-        this.userDAO = userDAO;
-        this.gameDAO = gameDAO;
-        this.authDAO = authDAO;
+        this(userDAO, gameDAO, authDAO, IoExecutor.direct());
+    }
+
+    public ClearService(UserDAO userDAO, GameDAO gameDAO, AuthDAO authDAO, IoExecutor io) {
+        this.userDAO = new AsyncUserDAO(userDAO, io);
+        this.gameDAO = new AsyncGameDAO(gameDAO, io);
+        this.authDAO = new AsyncAuthDAO(authDAO, io);
     }
 
     /**
@@ -27,12 +36,12 @@ public class ClearService {
      * @throws ServiceException if an error occurs during the clear operation
      */
     public void clear() throws ServiceException {
-        try {
-            userDAO.clear();
-            gameDAO.clear();
-            authDAO.clear();
-        } catch (DataAccessException exception) {
-            throw new ServiceException("Error: " + exception.getMessage());
-        }
+        ServiceFutures.await(clearAsync());
+    }
+
+    public CompletableFuture<Void> clearAsync() {
+        return ServiceFutures.translate(userDAO.clear()
+                .thenCompose(cleared -> gameDAO.clear())
+                .thenCompose(cleared -> authDAO.clear()));
     }
 }
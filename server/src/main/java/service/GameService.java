@@ -1,103 +1,168 @@
 package service;
 
 import chess.ChessGame;
+import dataaccess.DataAccessException;
+import dataaccess.IoExecutor;
+import dataaccess.UnitOfWork;
+import dataaccess.auth.AsyncAuthDAO;
 import dataaccess.auth.AuthDAO;
+import dataaccess.game.AsyncGameDAO;
 import dataaccess.game.GameDAO;
-import dataaccess.DataAccessException;
+import dataaccess.game.GameQuery;
 import model.AuthData;
 import model.GameData;
 import requests.CreateGameRequest;
 import requests.JoinGameRequest;
+import requests.ListGamesRequest;
 import results.CreateGameResult;
 import results.ListGamesResult;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import static service.ServiceFutures.failed;
 
 public class GameService {
-    private GameDAO gameDAO;
-    private AuthDAO authDAO;
+    static final int MAX_PAGE_SIZE = 500;
+
+    private final AsyncGameDAO gameDAO;
+    private final AsyncAuthDAO authDAO;
+    // For operations that run as one unit of work on a single I/O call
+    private final GameDAO games;
+    private final AuthDAO auths;
+    private final IoExecutor io;
+    private final UnitOfWork unitOfWork;
+
+    private enum JoinOutcome { JOINED, UNAUTHORIZED, BAD_REQUEST, TAKEN }
 
     public GameService(GameDAO gameDAO, AuthDAO authDAO) {
-        this.gameDAO = gameDAO;
-        this.authDAO = authDAO;
+        this(gameDAO, authDAO, IoExecutor.direct());
+    }
+
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, IoExecutor io) {
+        this(gameDAO, authDAO, io, UnitOfWork.NONE);
+    }
+
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, IoExecutor io, UnitOfWork unitOfWork) {
+        this.gameDAO = new AsyncGameDAO(gameDAO, io);
+        this.authDAO = new AsyncAuthDAO(authDAO, io);
+        this.games = gameDAO;
+        this.auths = authDAO;
+        this.io = io;
+        this.unitOfWork = unitOfWork;
     }
 
     public CreateGameResult createGame(CreateGameRequest request, String authToken) throws ServiceException {
-        try {
-            // Check if user is authenticated
-            if (authDAO.getAuth(authToken) == null) {
-                throw new ServiceException("Error: unauthorized");
+        return ServiceFutures.await(createGameAsync(request, authToken));
+    }
+
+    public CompletableFuture<CreateGameResult> createGameAsync(CreateGameRequest request, String authToken) {
+        // Check if user is authenticated
+        return ServiceFutures.translate(authDAO.getAuth(authToken).thenCompose(authData -> {
+            if (authData == null) {
+                return failed("Error: unauthorized");
             }
 
             // Validate request
             if (request.gameName() == null) {
-                throw new ServiceException("Error: bad request");
+                return failed("Error: bad request");
             }
 
             // Create new game
             ChessGame game = new ChessGame();
             GameData newGame = new GameData(0, null, null, request.gameName(), game);
-            int gameID = gameDAO.createGame(newGame);
-
-            return new CreateGameResult(gameID);
-        } catch (DataAccessException exception) {
-            throw new ServiceException("Error: " + exception.getMessage());
-        }
+            return gameDAO.createGame(newGame).thenApply(CreateGameResult::new);
+        }));
     }
 
     public ListGamesResult listGames(String authToken) throws ServiceException {
-        try {
-            // Check if user is authenticated
-            if (authDAO.getAuth(authToken) == null) {
-                throw new ServiceException("Error: unauthorized");
-            }
+        return listGames(new ListGamesRequest(null, null, null, null, null), authToken);
+    }
 
-            List<GameData> games = gameDAO.listGames();
-            return new ListGamesResult(games);
-        } catch (DataAccessException exception) {
-            throw new ServiceException("Error: " + exception.getMessage());
-        }
+    /**
+     * Lists games without their boards unless asked, one page at a time when a limit is given
+     */
+    public ListGamesResult listGames(ListGamesRequest request, String authToken) throws ServiceException {
+        return ServiceFutures.await(listGamesAsync(request, authToken));
     }
 
-    public void joinGame(JoinGameRequest request, String authToken) throws ServiceException {
-        try {
-            // Check if user is authenticated
-            AuthData authData = authDAO.getAuth(authToken);
+    public CompletableFuture<ListGamesResult> listGamesAsync(ListGamesRequest request, String authToken) {
+        // Check if user is authenticated
+        return ServiceFutures.translate(authDAO.getAuth(authToken).thenCompose(authData -> {
             if (authData == null) {
-                throw new ServiceException("Error: unauthorized");
+                return failed("Error: unauthorized");
             }
 
-            // Validate request
-            if (request.playerColor() == null) {
-                throw new ServiceException("Error: bad request");
+            GameQuery query;
+            try {
+                query = toQuery(request);
+            } catch (ServiceException e) {
+                return CompletableFuture.failedFuture(e);
             }
+            return gameDAO.listGames(query).thenApply(games -> {
+                // A full page may have more behind it; an empty next page ends the listing
+                Integer nextCursor = query.limit() > 0 && games.size() == query.limit() ?
+                        games.get(games.size() - 1).gameID() : null;
+                return new ListGamesResult(games, nextCursor);
+            });
+        }));
+    }
 
-            // Get game
-            GameData game = gameDAO.getGame(request.gameID());
-            if (game == null) {
-                throw new ServiceException("Error: bad request");
-            }
+    public void joinGame(JoinGameRequest request, String authToken) throws ServiceException {
+        ServiceFutures.await(joinGameAsync(request, authToken));
+    }
+
+    /**
+     * Checks the token and claims the seat on one connection, without reading the game first
+     */
+    public CompletableFuture<Void> joinGameAsync(JoinGameRequest request, String authToken) {
+        return ServiceFutures.translate(io.supply(() -> unitOfWork.run(() -> join(request, authToken)))
+                .thenCompose(outcome -> switch (outcome) {
+                    case JOINED -> CompletableFuture.<Void>completedFuture(null);
+                    case UNAUTHORIZED -> failed("Error: unauthorized");
+                    case BAD_REQUEST -> failed("Error: bad request");
+                    case TAKEN -> failed("Error: color already taken");
+                }));
+    }
 
-            // Update game with player
-            String playerColor = request.playerColor().toUpperCase();
-            if ("WHITE".equals(playerColor)) {
-                if (game.whiteUsername() != null) {
-                    throw new ServiceException("Error: color already taken");
-                }
-                GameData updatedGame = new GameData(game.gameID(), authData.username(),
-                        game.blackUsername(), game.gameName(), game.game());
-                gameDAO.updateGame(updatedGame);
-            } else if ("BLACK".equals(playerColor)) {
-                if (game.blackUsername() != null) {
-                    throw new ServiceException("Error: color already taken");
-                }
-                GameData updatedGame = new GameData(game.gameID(), game.whiteUsername(),
-                        authData.username(), game.gameName(), game.game());
-                gameDAO.updateGame(updatedGame);
-            } else {
+    private JoinOutcome join(JoinGameRequest request, String authToken) throws DataAccessException {
+        // Check if user is authenticated
+        AuthData authData = auths.getAuth(authToken);
+        if (authData == null) {
+            return JoinOutcome.UNAUTHORIZED;
+        }
+
+        // Validate request
+        if (request.playerColor() == null) {
+            return JoinOutcome.BAD_REQUEST;
+        }
+        String playerColor = request.playerColor().toUpperCase();
+        if (!"WHITE".equals(playerColor) && !"BLACK".equals(playerColor)) {
+            return JoinOutcome.BAD_REQUEST;
+        }
+
+        if (games.claimSeat(request.gameID(), ChessGame.TeamColor.valueOf(playerColor), authData.username())) {
+            return JoinOutcome.JOINED;
+        }
+        // Only a failed claim reads the game, to tell a taken seat from a missing game
+        return games.getGame(request.gameID()) == null ? JoinOutcome.BAD_REQUEST : JoinOutcome.TAKEN;
+    }
+
+    private static GameQuery toQuery(ListGamesRequest request) throws ServiceException {
+        int after = request.after() == null ? 0 : request.after();
+        int limit = request.limit() == null ? 0 : request.limit();
+        if (after < 0 || limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new ServiceException("Error: bad request");
+        }
+        GameQuery.Status status = null;
+        if (request.status() != null) {
+            try {
+                status = GameQuery.Status.valueOf(request.status().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
                 throw new ServiceException("Error: bad request");
             }
-        } catch (DataAccessException exception) {
-            throw new ServiceException("Error: " + exception.getMessage());
         }
+        boolean includeState = request.includeState() != null && request.includeState();
+        return new GameQuery(after, limit, status, request.player(), includeState);
     }
 }
@@ -0,0 +1,176 @@
+package service;
+
+import dataaccess.IoExecutor;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hashes and checks passwords with BCrypt on a small pool of its own.
+ * <p>
+ * Each hash costs tens to hundreds of milliseconds of CPU. Run on request threads, a burst of
+ * logins would hold every one of them and stall games in progress. Here at most
+ * {@link Settings#threads()} hashes run at once and {@link Settings#queueCapacity()} wait.
+ * Anything past that fails at once with a busy error, which the server answers with 503.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    /**
+     * @param cost          BCrypt log rounds for new hashes; existing hashes keep their own
+     * @param threads       hashes run at once, normally one per core
+     * @param queueCapacity hashes allowed to wait for a thread
+     */
+    public record Settings(int cost, int threads, int queueCapacity) {
+        public Settings {
+            if (cost < 4 || cost > 31) {
+                throw new IllegalArgumentException("BCrypt cost must be between 4 and 31");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("Password hasher needs at least 1 thread");
+            }
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("Password hasher queue must hold at least 1 hash");
+            }
+        }
+
+        /**
+         * Reads chess.bcrypt.cost (default 10), chess.bcrypt.threads (default one per core)
+         * and chess.bcrypt.queueCapacity (default 100), or their CHESS_BCRYPT_* environment
+         * variables
+         */
+        public static Settings fromEnvironment() {
+            return new Settings(
+                    setting("chess.bcrypt.cost", "CHESS_BCRYPT_COST", DEFAULT_COST),
+                    setting("chess.bcrypt.threads", "CHESS_BCRYPT_THREADS", Runtime.getRuntime().availableProcessors()),
+                    setting("chess.bcrypt.queueCapacity", "CHESS_BCRYPT_QUEUE_CAPACITY", 100));
+        }
+
+        private static int setting(String property, String variable, int defaultValue) {
+            String value = System.getProperty(property, System.getenv(variable));
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + property + ": " + value, e);
+            }
+        }
+    }
+
+    /**
+     * A point-in-time view of hashing work
+     *
+     * @param averageMillis time spent hashing, per hash
+     * @param averageWaitMillis time spent queued before hashing, per hash
+     */
+    public record Stats(int threads, int active, int queued, long completed, long rejected,
+                        double averageMillis, double maxMillis, double averageWaitMillis) {
+    }
+
+    // BCrypt.gensalt()'s own default
+    private static final int DEFAULT_COST = 10;
+
+    private final int cost;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public PasswordHasher(Settings settings) {
+        this.cost = settings.cost();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(settings.queueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private PasswordHasher() {
+        this.cost = DEFAULT_COST;
+        this.executor = null;
+    }
+
+    /**
+     * @return a hasher that works on the caller's thread at the default cost and never rejects
+     */
+    public static PasswordHasher direct() {
+        return new PasswordHasher();
+    }
+
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    public CompletableFuture<Boolean> verify(String password, String hash) {
+        return submit(() -> BCrypt.checkpw(password, hash));
+    }
+
+    public Stats stats() {
+        long count = completed.sum();
+        double averageMillis = count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+        double averageWaitMillis = count == 0 ? 0 : totalWaitNanos.sum() / 1e6 / count;
+        if (executor == null) {
+            return new Stats(0, 0, 0, count, rejected.sum(), averageMillis, maxNanos.get() / 1e6, averageWaitMillis);
+        }
+        return new Stats(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                count, rejected.sum(), averageMillis, maxNanos.get() / 1e6, averageWaitMillis);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        Runnable task = () -> {
+            long start = System.nanoTime();
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                record(start - queuedAt, System.nanoTime() - start);
+                future.completeExceptionally(e);
+                return;
+            }
+            // Recorded first so callers who see the result also see it counted
+            record(start - queuedAt, System.nanoTime() - start);
+            future.complete(result);
+        };
+        if (executor == null) {
+            task.run();
+            return future;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(new ServiceException("Error: " + IoExecutor.BUSY_MESSAGE));
+        }
+        return future;
+    }
+
+    private void record(long waitNanos, long hashNanos) {
+        completed.increment();
+        totalWaitNanos.add(waitNanos);
+        totalNanos.add(hashNanos);
+        maxNanos.accumulateAndGet(hashNanos, Math::max);
+    }
+}
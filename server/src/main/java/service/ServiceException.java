@@ -1,7 +1,34 @@
 package service;
 
+import dataaccess.DataAccessException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
 public class ServiceException extends Exception {
     public ServiceException(String message) {
         super(message);
     }
+
+    /**
+     * Finds the service error behind a failed asynchronous call. Data access failures become
+     * errors carrying their message, as the services report them.
+     */
+    public static ServiceException from(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ServiceException serviceException) {
+            return serviceException;
+        }
+        if (cause instanceof DataAccessException) {
+            return new ServiceException("Error: " + cause.getMessage());
+        }
+        return new ServiceException("Error: " + cause);
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
 }
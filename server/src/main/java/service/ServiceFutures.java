@@ -0,0 +1,52 @@
+package service;
+
+import dataaccess.DataAccessException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for the services' asynchronous methods
+ */
+final class ServiceFutures {
+
+    private ServiceFutures() {
+    }
+
+    static <T> CompletableFuture<T> failed(String message) {
+        return CompletableFuture.failedFuture(new ServiceException(message));
+    }
+
+    /**
+     * Reports data access failures as service errors, the way the blocking methods always have
+     */
+    static <T> CompletableFuture<T> translate(CompletableFuture<T> future) {
+        return future.exceptionallyCompose(error -> {
+            Throwable cause = ServiceException.unwrap(error);
+            if (cause instanceof DataAccessException) {
+                return CompletableFuture.failedFuture(ServiceException.from(cause));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Waits for an asynchronous call, rethrowing its failure as it would have been thrown
+     * had the call blocked
+     */
+    static <T> T await(CompletableFuture<T> future) throws ServiceException {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = ServiceException.unwrap(e);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw ServiceException.from(cause);
+        }
+    }
+}
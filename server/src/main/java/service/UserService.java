@@ -1,107 +1,127 @@
 package service;
 
+import dataaccess.IoExecutor;
+import dataaccess.UnitOfWork;
+import dataaccess.auth.AsyncAuthDAO;
 import dataaccess.auth.AuthDAO;
+import dataaccess.user.AsyncUserDAO;
 import dataaccess.user.UserDAO;
-import dataaccess.DataAccessException;
 import model.AuthData;
 import model.UserData;
-import org.mindrot.jbcrypt.BCrypt;
 import requests.LoginRequest;
 import requests.LogoutRequest;
 import requests.RegisterRequest;
 import results.LoginResult;
 import results.RegisterResult;
 
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static service.ServiceFutures.failed;
 
 /**
  * Service class for user-related operations (register, login, logout).
  * Handles authentication and user management business logic.
+ * <p>
+ * Each operation has an asynchronous form whose data access runs on the service's
+ * {@link IoExecutor} and whose password hashing runs on its {@link PasswordHasher}; the
+ * blocking forms wait for them.
  */
 public class UserService {
-    private UserDAO userDAO;
-    private AuthDAO authDAO;
+    private final AsyncUserDAO userDAO;
+    private final AsyncAuthDAO authDAO;
+    // For operations that run as one unit of work on a single I/O call
+    private final UserDAO users;
+    private final AuthDAO auths;
+    private final IoExecutor io;
+    private final UnitOfWork unitOfWork;
+    private final PasswordHasher hasher;
 
     public UserService(UserDAO userDAO, AuthDAO authDAO) {
-        this.userDAO = userDAO;
-        this.authDAO = authDAO;
+        this(userDAO, authDAO, IoExecutor.direct(), PasswordHasher.direct(), UnitOfWork.NONE);
+    }
+
+    public UserService(UserDAO userDAO, AuthDAO authDAO, IoExecutor io, PasswordHasher hasher,
+                       UnitOfWork unitOfWork) {
+        this.userDAO = new AsyncUserDAO(userDAO, io);
+        this.authDAO = new AsyncAuthDAO(authDAO, io);
+        this.users = userDAO;
+        this.auths = authDAO;
+        this.io = io;
+        this.unitOfWork = unitOfWork;
+        this.hasher = hasher;
     }
 
     public RegisterResult register(RegisterRequest request) throws ServiceException {
-        try {
-            // Validate input
-            if (request.username() == null || request.password() == null || request.email() == null) {
-                throw new ServiceException("Error: bad request");
-            }
+        return ServiceFutures.await(registerAsync(request));
+    }
 
-            // Check if user already exists
-            UserData existingUser = userDAO.getUser(request.username());
-            if (existingUser != null) {
-                throw new ServiceException("Error: already exists");
-            }
+    public CompletableFuture<RegisterResult> registerAsync(RegisterRequest request) {
+        // Validate input
+        if (request.username() == null || request.password() == null || request.email() == null) {
+            return failed("Error: bad request");
+        }
 
-            // Create new user
-            String hashedPassword = BCrypt.hashpw(request.password(), BCrypt.gensalt());
+        // The insert itself finds a taken username rather than a read beforehand, so only
+        // registering a taken name pays for a wasted hash
+        String authToken = auths.newToken(request.username());
+        AuthData authData = new AuthData(authToken, request.username());
+        return ServiceFutures.translate(hasher.hash(request.password()).thenCompose(hashedPassword -> {
             UserData newUser = new UserData(request.username(), hashedPassword, request.email());
-            userDAO.createUser(newUser);
-
-            // Create auth token
-            String authToken = UUID.randomUUID().toString();
-            AuthData authData = new AuthData(authToken, request.username());
-            authDAO.createAuth(authData);
-
-            return new RegisterResult(request.username(), authToken);
-        } catch (DataAccessException e) {
-            throw new ServiceException("Error: " + e.getMessage());
-        }
+            // The user and their first session are saved together on one connection, or not at all
+            return io.supply(() -> unitOfWork.run(() -> {
+                if (!users.createUserIfAbsent(newUser)) {
+                    return false;
+                }
+                auths.createAuth(authData);
+                return true;
+            }));
+        }).thenCompose(created -> created
+                ? CompletableFuture.completedFuture(new RegisterResult(request.username(), authToken))
+                : failed("Error: already exists")));
     }
 
     public LoginResult login(LoginRequest request) throws ServiceException {
-        try {
-            // Validate input
-            if (request.username() == null || request.password() == null) {
-                throw new ServiceException("Error: bad request");
-            }
-
-            // Check credentials
-            UserData user = userDAO.getUser(request.username());
-            if (user == null || !verifyUser(user, request.password())) {
-                throw new ServiceException("Error: invalid credentials");
-            }
-
-            // Create auth token
-            String authToken = UUID.randomUUID().toString();
-            AuthData authData = new AuthData(authToken, request.username());
-            authDAO.createAuth(authData);
-
-            return new LoginResult(request.username(), authToken);
-        } catch (DataAccessException e) {
-            throw new ServiceException("Error: " + e.getMessage());
-        }
+        return ServiceFutures.await(loginAsync(request));
     }
 
-    private boolean verifyUser(UserData user, String passwordReq){
+    public CompletableFuture<LoginResult> loginAsync(LoginRequest request) {
+        // Validate input
+        if (request.username() == null || request.password() == null) {
+            return failed("Error: bad request");
+        }
 
-        var hashedPassword = user.password();
-        boolean result = BCrypt.checkpw(passwordReq, hashedPassword);
-        System.out.println("Password provided: " + passwordReq);  // Debug
-        System.out.println("Hash stored: " + hashedPassword);  // Debug
-        System.out.println("BCrypt check result: " + result);  // Debug
-        return result;
-    };
+        // Check credentials
+        return ServiceFutures.translate(userDAO.getUser(request.username()).thenCompose(user -> {
+            if (user == null) {
+                return failed("Error: invalid credentials");
+            }
+            return hasher.verify(request.password(), user.password()).thenCompose(matches -> {
+                if (!matches) {
+                    return failed("Error: invalid credentials");
+                }
+
+                // Create auth token
+                String authToken = auths.newToken(request.username());
+                AuthData authData = new AuthData(authToken, request.username());
+                return authDAO.createAuth(authData)
+                        .thenApply(created -> new LoginResult(request.username(), authToken));
+            });
+        }));
+    }
 
     public void logout(LogoutRequest request) throws ServiceException {
-        try {
-            // Check if auth token exists
-            AuthData authData = authDAO.getAuth(request.authToken());
+        ServiceFutures.await(logoutAsync(request));
+    }
+
+    public CompletableFuture<Void> logoutAsync(LogoutRequest request) {
+        // Check if auth token exists
+        return ServiceFutures.translate(authDAO.getAuth(request.authToken()).thenCompose(authData -> {
             if (authData == null) {
-                throw new ServiceException("Error: unauthorized");
+                return failed("Error: unauthorized");
             }
 
             // Delete auth token
-            authDAO.deleteAuth(request.authToken());
-        } catch (DataAccessException e) {
-            throw new ServiceException("Error: " + e.getMessage());
-        }
+            return authDAO.deleteAuth(request.authToken());
+        }));
     }
 }
@@ -3,12 +3,15 @@ package websocket;
 import org.eclipse.jetty.websocket.api.Session;
 import java.io.IOException;
 
+/**
+ * One session's subscription to one game
+ */
 public class Connection {
-    public String visitorName;
-    public Session session;
-    public Integer gameId;
+    public final String visitorName;
+    public final Session session;
+    public final int gameId;
 
-    public Connection(String visitorName, Session session, Integer gameId) {
+    public Connection(String visitorName, Session session, int gameId) {
         this.visitorName = visitorName;
         this.session = session;
         this.gameId = gameId;
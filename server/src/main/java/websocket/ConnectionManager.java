@@ -6,37 +6,146 @@ import websocket.messages.ServerMessage;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+/**
+ * Tracks which sessions are watching which games.
+ * <p>
+ * Connections are indexed by game, so a broadcast only visits that game's subscribers, and
+ * by session, so a closing socket finds its connections without a scan. A user may be
+ * connected from several sessions, and one session may watch several games; each pairing
+ * is its own connection. Broadcasts read the indexes without locking; adding and removing
+ * connections takes a lock so the two indexes stay in step.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    private static final Gson GSON = new Gson();
 
+    private final Map<Integer, Set<Connection>> byGame = new ConcurrentHashMap<>();
+    private final Map<Session, Map<Integer, Connection>> bySession = new ConcurrentHashMap<>();
+    // Told about every connection that goes away, however it goes
+    private final Consumer<Connection> onRemoved;
+
+    public ConnectionManager() {
+        this(connection -> { });
+    }
+
+    public ConnectionManager(Consumer<Connection> onRemoved) {
+        this.onRemoved = onRemoved;
+    }
+
+    /**
+     * Subscribes a session to a game, replacing the session's earlier connection to it if any
+     */
     public void add(String visitorName, int gameId, Session session) {
         var connection = new Connection(visitorName, session, gameId);
-        connections.put(visitorName, connection);
+        Connection previous;
+        synchronized (this) {
+            previous = bySession.computeIfAbsent(session, s -> new ConcurrentHashMap<>()).put(gameId, connection);
+            Set<Connection> subscribers = byGame.computeIfAbsent(gameId, id -> ConcurrentHashMap.newKeySet());
+            if (previous != null) {
+                subscribers.remove(previous);
+            }
+            subscribers.add(connection);
+        }
+        if (previous != null) {
+            onRemoved.accept(previous);
+        }
     }
 
-    public void remove(String visitorName) {
-        connections.remove(visitorName);
+    /**
+     * Unsubscribes one session from one game, leaving the user's other sessions connected
+     */
+    public void remove(Session session, int gameId) {
+        Connection removed;
+        synchronized (this) {
+            Map<Integer, Connection> games = bySession.get(session);
+            removed = games == null ? null : games.get(gameId);
+            if (removed != null) {
+                unindex(removed);
+            }
+        }
+        if (removed != null) {
+            onRemoved.accept(removed);
+        }
+    }
+
+    /**
+     * Removes every connection a session has, for when the socket closes
+     */
+    public void removeSession(Session session) {
+        List<Connection> removed;
+        synchronized (this) {
+            Map<Integer, Connection> games = bySession.get(session);
+            removed = games == null ? List.of() : new ArrayList<>(games.values());
+            removed.forEach(this::unindex);
+        }
+        removed.forEach(onRemoved);
     }
 
-    public void broadcast(String excludeVisitorName, ServerMessage notification, int gameId) throws IOException {
+    /**
+     * Sends a message to everyone connected to a game, except every session of one user.
+     * Connections whose sockets have closed or fail to take the message are dropped.
+     */
+    public void broadcast(String excludeVisitorName, ServerMessage notification, int gameId) {
+        Set<Connection> subscribers = byGame.get(gameId);
+        if (subscribers == null) {
+            return;
+        }
+        String json = GSON.toJson(notification);
         var removeList = new ArrayList<Connection>();
-        for (var c : connections.values()) {
-            if (c.session.isOpen()) {
-                if (c.gameId != gameId){
-                    continue;
-                }
-                else if (!c.visitorName.equals(excludeVisitorName)) {
-                    c.send(new Gson().toJson(notification));
-                }
-            } else {
+        for (var c : subscribers) {
+            if (!c.session.isOpen()) {
                 removeList.add(c);
+            } else if (!c.visitorName.equals(excludeVisitorName)) {
+                try {
+                    c.send(json);
+                } catch (IOException e) {
+                    removeList.add(c);
+                }
             }
         }
 
         for (var c : removeList) {
-            connections.remove(c.visitorName);
+            boolean removed;
+            synchronized (this) {
+                removed = unindex(c);
+            }
+            if (removed) {
+                onRemoved.accept(c);
+            }
+        }
+    }
+
+    /**
+     * @return how many sessions are connected to the game
+     */
+    public int subscribers(int gameId) {
+        Set<Connection> subscribers = byGame.get(gameId);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * @return whether the connection was still indexed; call holding the lock
+     */
+    private boolean unindex(Connection connection) {
+        Map<Integer, Connection> games = bySession.get(connection.session);
+        if (games == null || !games.remove(connection.gameId, connection)) {
+            return false;
+        }
+        if (games.isEmpty()) {
+            bySession.remove(connection.session);
+        }
+        Set<Connection> subscribers = byGame.get(connection.gameId);
+        if (subscribers != null) {
+            subscribers.remove(connection);
+            if (subscribers.isEmpty()) {
+                byGame.remove(connection.gameId);
+            }
         }
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,23 @@
 package websocket;
 
 import java.io.IOException;
+import java.util.concurrent.locks.Lock;
 
 import org.eclipse.jetty.websocket.api.Session;
 
 import com.google.gson.Gson;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import chess.InvalidMoveException;
+import dataaccess.DataAccessException;
 import dataaccess.auth.AuthDAO;
 import dataaccess.auth.SqlAuthDAO;
-import dataaccess.game.GameDAO;
+import dataaccess.game.ActiveGameRegistry;
 import dataaccess.game.SqlGameDAO;
 import dataaccess.user.SqlUserDAO;
 import dataaccess.user.UserDAO;
+import io.javalin.websocket.WsCloseContext;
 import io.javalin.websocket.WsContext;
 import io.javalin.websocket.WsMessageContext;
 import model.AuthData;
@@ -26,11 +30,15 @@ import websocket.messages.NotificationMessage;
 
 
 public class WebSocketHandler {
-    private final ConnectionManager connections = new ConnectionManager();
+    // Each command re-reads and retries when a conditional write finds the game has changed
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final String BUSY_MESSAGE = "Error: Game is busy, try again";
+
+    private final ConnectionManager connections;
 
     UserDAO userDAO;
     AuthDAO authDAO;
-    GameDAO gameDAO;
+    ActiveGameRegistry gameDAO;
 
     private void handleException(Session session, Exception e) {
         try {
@@ -40,10 +48,16 @@ public class WebSocketHandler {
         }
     }
 
-    public WebSocketHandler(UserDAO userDAO, AuthDAO authDao, GameDAO gameDAO) {
+    public WebSocketHandler(UserDAO userDAO, AuthDAO authDao, ActiveGameRegistry gameDAO) {
         this.userDAO = userDAO;
         this.authDAO = authDao;
         this.gameDAO = gameDAO;
+        // Each connection holds its game in memory until it goes away
+        this.connections = new ConnectionManager(connection -> gameDAO.detach(connection.gameId));
+    }
+
+    public void handleClose(WsCloseContext ctx) {
+        connections.removeSession(ctx.session);
     }
 
     public void handleConnection(WsMessageContext ctx) {
@@ -78,7 +92,7 @@ public class WebSocketHandler {
             }
 
             Integer gameId = command.getGameID();
-            GameData gameData = gameDAO.getGame(gameId);
+            GameData gameData = gameDAO.attach(gameId);
             if (gameData == null) {
                 session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Invalid game ID")));
                 return;
@@ -86,7 +100,13 @@ public class WebSocketHandler {
 
             String username = authData.username();
 
-            connections.add(username, gameId, session);
+            try {
+                connections.add(username, gameId, session);
+            } catch (RuntimeException e) {
+                // Not registered, so closing the session would never release the game
+                gameDAO.detach(gameId);
+                throw e;
+            }
 
             LoadGameMessage loadGameMessage = new LoadGameMessage(gameData);
             session.getRemote().sendString(new Gson().toJson(loadGameMessage));
@@ -117,54 +137,35 @@ public class WebSocketHandler {
 
             String username = authData.username();
             Integer gameId = command.getGameID();
-            GameData gameData = gameDAO.getGame(gameId);
-            if (gameData == null) {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Invalid game ID")));
-                return;
-            }
-
-            ChessGame game = gameData.game();
-
-            if (game.isGameOver()) {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Game is already over")));
-                return;
-            }
-
-            if (game.getTeamTurn() == ChessGame.TeamColor.WHITE && !username.equals(gameData.whiteUsername())) {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Not your turn")));
-                return;
-            } else if (game.getTeamTurn() == ChessGame.TeamColor.BLACK && !username.equals(gameData.blackUsername())) {
-                String message = "Error: Not your turn";
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage(message)));
-                return;
-            }
-
+            // Moves on one game take turns on this server to avoid needless retries. Only the read
+            // and write are locked: games share lock stripes, so sending to clients happens after.
+            Outcome outcome;
+            Lock lock = gameDAO.lockFor(gameId);
+            lock.lock();
             try {
-                game.makeMove(command.getMove());
-            } catch (InvalidMoveException e) {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Invalid move")));
-                return;
-            }
-
-            ChessGame.TeamColor opponentsColor;
-            if (game.getTeamTurn() == ChessGame.TeamColor.WHITE) {
-                opponentsColor = ChessGame.TeamColor.BLACK;
-            } else {
-                opponentsColor = ChessGame.TeamColor.WHITE;
+                outcome = playMove(username, gameId, command.getMove());
+            } finally {
+                lock.unlock();
             }
-
-            String notificationMessage = null;
-            if (game.isInCheckmate(game.getTeamTurn())) {
-                game.setGameOver(true);
-                notificationMessage = "Checkmate! " + username + " wins the game!";
-            }  else if (game.isInStalemate(game.getTeamTurn())) {
-                game.setGameOver(true);
-                notificationMessage = "Stalemate! The game is a draw.";
-            } else if (game.isInCheck(game.getTeamTurn())) {
-                notificationMessage = "Check! " + (game.getTeamTurn() == ChessGame.TeamColor.WHITE ? "White" : "Black") + " is in check!";
+            if (outcome.error() != null) {
+                session.getRemote().sendString(new Gson().toJson(new ErrorMessage(outcome.error())));
+                return;
             }
-
-            gameDAO.updateGame(gameData);
+            GameData gameData = outcome.gameData();
+            ChessGame game = gameData.game();
+            ChessGame.GameStatus status = outcome.status();
+
+            String notificationMessage = switch (status) {
+                case CHECKMATE -> "Checkmate! " + username + " wins the game!";
+                case STALEMATE -> "Stalemate! The game is a draw.";
+                case DRAW_INSUFFICIENT_MATERIAL -> "Draw! Neither side has enough material to checkmate.";
+                case DRAW_SEVENTY_FIVE_MOVE -> "Draw! Seventy-five moves without a capture or pawn move.";
+                case CHECK -> "Check! " + (game.getTeamTurn() == ChessGame.TeamColor.WHITE ? "White" : "Black") + " is in check!";
+                case ONGOING -> null;
+            };
+            // Only said once, when the clock first gets there; the game goes on until 75 moves
+            String claimMessage = game.getHalfmoveClock() == 100 && !status.isGameOver()
+                    ? "Fifty moves without a capture or pawn move. Either player may claim a draw." : null;
 
             LoadGameMessage loadGameMessage = new LoadGameMessage(gameData);
             connections.broadcast("", loadGameMessage, gameId);
@@ -177,12 +178,62 @@ public class WebSocketHandler {
                 NotificationMessage statusNotification = new NotificationMessage(notificationMessage);
                 connections.broadcast("", statusNotification, gameId);
             }
+            if (claimMessage != null) {
+                connections.broadcast("", new NotificationMessage(claimMessage), gameId);
+            }
 
         } catch (Exception e){
             handleException(session, e);
         }
     }
 
+    /**
+     * Plays a move on the stored game, rereading and retrying while other writes get in first.
+     * Callers hold the game's lock, so nothing here talks to a client.
+     */
+    private Outcome playMove(String username, int gameId, ChessMove move) throws DataAccessException {
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            GameData gameData = gameDAO.getGame(gameId);
+            if (gameData == null) {
+                return Outcome.failed("Error: Invalid game ID");
+            }
+
+            if (gameData.game().isGameOver()) {
+                return Outcome.failed("Error: Game is already over");
+            }
+
+            ChessGame.TeamColor turn = gameData.game().getTeamTurn();
+            if (turn == ChessGame.TeamColor.WHITE && !username.equals(gameData.whiteUsername())) {
+                return Outcome.failed("Error: Not your turn");
+            } else if (turn == ChessGame.TeamColor.BLACK && !username.equals(gameData.blackUsername())) {
+                return Outcome.failed("Error: Not your turn");
+            }
+
+            // Play on a copy so a rejected write leaves the stored game as it was
+            ChessGame game = new ChessGame(gameData.game());
+            try {
+                game.makeMove(move);
+            } catch (InvalidMoveException e) {
+                return Outcome.failed("Error: Invalid move");
+            }
+
+            ChessGame.GameStatus status = game.status();
+            if (status.isGameOver()) {
+                game.setGameOver(true);
+            }
+            gameData = withGame(gameData, game);
+            if (gameDAO.tryAppendMove(gameData, move)) {
+                return new Outcome(gameData, status, null, null);
+            }
+        }
+        return Outcome.failed(BUSY_MESSAGE);
+    }
+
+    private static GameData withGame(GameData gameData, ChessGame game) {
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), game, gameData.version());
+    }
+
     private String formatMove(chess.ChessMove move, chess.ChessGame game) {
         chess.ChessPosition start = move.getStartPosition();
         chess.ChessPosition end = move.getEndPosition();
@@ -213,21 +264,22 @@ public class WebSocketHandler {
             String username = authData.username();
             Integer gameId = command.getGameID();
 
-            connections.remove(username);
+            connections.remove(session, gameId);
 
-            GameData gameData = gameDAO.getGame(gameId);
-            String role = "an observer";
-            if(gameData != null) {
-                if(username.equals(gameData.whiteUsername())){
-                    role = "WHITE";
-                    gameData = new GameData(gameData.gameID(), null, gameData.blackUsername(), gameData.gameName(), gameData.game());
-                    gameDAO.updateGame(gameData);
-                } else if (username.equals(gameData.blackUsername())) {
-                    role = "BLACK";
-                    gameData = new GameData(gameData.gameID(), gameData.whiteUsername(), null, gameData.gameName(), gameData.game());
-                    gameDAO.updateGame(gameData);
-                }
+            Outcome outcome;
+            Lock lock = gameDAO.lockFor(gameId);
+            lock.lock();
+            try {
+                outcome = vacateSeat(username, gameId);
+            } finally {
+                lock.unlock();
             }
+            if (outcome.error() != null) {
+                session.getRemote().sendString(new Gson().toJson(new ErrorMessage(outcome.error())));
+                return;
+            }
+            GameData gameData = outcome.gameData();
+            String role = outcome.role();
 
             String message = "User " + username + " left game " + gameData.gameName() + " as " + role;
             NotificationMessage notification = new NotificationMessage(message);
@@ -238,6 +290,34 @@ public class WebSocketHandler {
         }
     }
 
+    /**
+     * Frees the user's seat, if they have one. Callers hold the game's lock.
+     */
+    private Outcome vacateSeat(String username, int gameId) throws DataAccessException {
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            GameData gameData = gameDAO.getGame(gameId);
+            if (gameData == null) {
+                return Outcome.failed("Error: Invalid game ID");
+            }
+            String role;
+            if (username.equals(gameData.whiteUsername())) {
+                role = "WHITE";
+                gameData = new GameData(gameData.gameID(), null, gameData.blackUsername(), gameData.gameName(),
+                        gameData.game(), gameData.version());
+            } else if (username.equals(gameData.blackUsername())) {
+                role = "BLACK";
+                gameData = new GameData(gameData.gameID(), gameData.whiteUsername(), null, gameData.gameName(),
+                        gameData.game(), gameData.version());
+            } else {
+                return new Outcome(gameData, null, "an observer", null);
+            }
+            if (gameDAO.tryUpdateGame(gameData)) {
+                return new Outcome(gameData, null, role, null);
+            }
+        }
+        return Outcome.failed(BUSY_MESSAGE);
+    }
+
     private void resign(Session session, UserGameCommand command) {
         try {
             AuthData authData = authDAO.getAuth(command.getAuthToken());
@@ -248,34 +328,67 @@ public class WebSocketHandler {
 
             String username = authData.username();
             Integer gameId = command.getGameID();
+            Outcome outcome;
+            Lock lock = gameDAO.lockFor(gameId);
+            lock.lock();
+            try {
+                outcome = endByResignation(username, gameId);
+            } finally {
+                lock.unlock();
+            }
+            if (outcome.error() != null) {
+                session.getRemote().sendString(new Gson().toJson(new ErrorMessage(outcome.error())));
+                return;
+            }
+            GameData gameData = outcome.gameData();
+
+            String message = "User " + username + " has resigned from game " + gameData.gameName();
+            NotificationMessage notification = new NotificationMessage(message);
+            connections.broadcast("", notification, gameId);
+
+        } catch (Exception e){
+            handleException(session, e);
+        }
+    }
+
+    /**
+     * Marks the game over for a player who resigns. Callers hold the game's lock.
+     */
+    private Outcome endByResignation(String username, int gameId) throws DataAccessException {
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
             GameData gameData = gameDAO.getGame(gameId);
             if (gameData == null) {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Invalid game ID")));
-                return;
+                return Outcome.failed("Error: Invalid game ID");
             }
 
             if (!username.equals(gameData.whiteUsername()) && !username.equals(gameData.blackUsername())) {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: You are not a player in this game")));
-                return;
+                return Outcome.failed("Error: You are not a player in this game");
             }
 
-            ChessGame game = gameData.game();
-
-            if (game.isGameOver()){
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage("Error: Game is already over")));
-                return;
+            if (gameData.game().isGameOver()){
+                return Outcome.failed("Error: Game is already over");
             }
 
+            ChessGame game = new ChessGame(gameData.game());
             game.setGameOver(true);
+            gameData = withGame(gameData, game);
+            if (gameDAO.tryUpdateGame(gameData)) {
+                return new Outcome(gameData, null, null, null);
+            }
+        }
+        return Outcome.failed(BUSY_MESSAGE);
+    }
 
-            gameDAO.updateGame(gameData);
-
-            String message = "User " + username + " has resigned from game " + gameData.gameName();
-            NotificationMessage notification = new NotificationMessage(message);
-            connections.broadcast("", notification, gameId);
-
-        } catch (Exception e){
-            handleException(session, e);
+    /**
+     * What a command's read and write under the game lock came to: the game as written, or the
+     * error to send once the lock is released
+     *
+     * @param status the game's status after a move
+     * @param role   the seat a leaving user gave up, or "an observer"
+     */
+    private record Outcome(GameData gameData, ChessGame.GameStatus status, String role, String error) {
+        static Outcome failed(String error) {
+            return new Outcome(null, null, null, error);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    private List<FakeConnection> opened;
+
+    @BeforeEach
+    public void setUp() {
+        opened = new ArrayList<>();
+    }
+
+    @Test
+    public void closedConnectionsAreReused() throws SQLException {
+        ConnectionPool pool = pool(2, 0, 0);
+
+        Connection first = pool.borrow();
+        first.close();
+        Connection second = pool.borrow();
+        second.close();
+
+        assertEquals(1, opened.size(), "The second borrow should reuse the first connection");
+        assertFalse(opened.get(0).closed);
+        assertTrue(first.isClosed(), "A returned handle should report itself closed");
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        ConnectionPool pool = pool(1, 0, 0);
+        Connection held = pool.borrow();
+
+        assertThrows(SQLTransientConnectionException.class, pool::borrow);
+        assertEquals(1, pool.stats().timeouts());
+        assertEquals(1, pool.stats().active());
+
+        held.close();
+        assertDoesNotThrow(() -> pool.borrow().close());
+    }
+
+    @Test
+    public void invalidConnectionsAreReplaced() throws SQLException {
+        ConnectionPool pool = pool(1, 0, 0);
+        pool.borrow().close();
+        opened.get(0).valid = false;
+
+        pool.borrow().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed, "The broken connection should be closed");
+    }
+
+    @Test
+    public void expiredConnectionsAreRetired() throws Exception {
+        ConnectionPool pool = pool(1, 0, 1);
+        pool.borrow().close();
+        Thread.sleep(20);
+
+        pool.borrow().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed);
+    }
+
+    @Test
+    public void returnedHandleCannotBeUsed() throws SQLException {
+        ConnectionPool pool = pool(1, 0, 0);
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+    }
+
+    @Test
+    public void unfinishedTransactionsAreRolledBack() throws SQLException {
+        ConnectionPool pool = pool(1, 0, 0);
+        Connection connection = pool.borrow();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        assertTrue(opened.get(0).rolledBack);
+        assertTrue(pool.borrow().getAutoCommit());
+    }
+
+    @Test
+    public void statsTrackActiveAndIdle() throws SQLException {
+        ConnectionPool pool = pool(3, 0, 0);
+        Connection a = pool.borrow();
+        Connection b = pool.borrow();
+        a.close();
+
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(1, stats.active());
+        assertEquals(1, stats.idle());
+        assertEquals(2, stats.borrowed());
+        b.close();
+    }
+
+    private ConnectionPool pool(int size, long idleTimeoutMillis, long maxLifetimeMillis) {
+        var settings = new ConnectionPool.Settings(size, 50, idleTimeoutMillis, maxLifetimeMillis, 1);
+        return new ConnectionPool(() -> {
+            var fake = new FakeConnection();
+            opened.add(fake);
+            return fake.proxy();
+        }, settings);
+    }
+
+    private static class FakeConnection {
+        boolean closed = false;
+        boolean valid = true;
+        boolean autoCommit = true;
+        boolean rolledBack = false;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid && !closed;
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rolledBack = true;
+                            yield null;
+                        }
+                        default -> null;
+                    });
+        }
+    }
+}
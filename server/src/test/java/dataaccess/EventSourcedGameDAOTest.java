@@ -0,0 +1,74 @@
+package dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.game.EventSourcedGameDAO;
+import dataaccess.user.SqlUserDAO;
+import model.GameData;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+public class EventSourcedGameDAOTest {
+    private EventSourcedGameDAO gameDAO;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        DatabaseManager.createDatabase();
+        DatabaseManager.createTables();
+        gameDAO = new EventSourcedGameDAO(3);
+        gameDAO.clear();
+        new SqlUserDAO().clear();
+    }
+
+    @Test
+    public void testAppendMovePositive() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Test Game", game));
+        GameData data = new GameData(gameID, null, null, "Test Game", game);
+
+        // Five plies crosses one snapshot and leaves two moves to replay
+        List<ChessMove> moves = List.of(
+                move(2, 5, 4, 5), move(7, 5, 5, 5), move(1, 7, 3, 6), move(8, 2, 6, 3), move(1, 6, 4, 3));
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+            gameDAO.appendMove(data, move);
+        }
+
+        GameData retrieved = gameDAO.getGame(gameID);
+        assertEquals(game, retrieved.game(), "Replayed game should match the played game");
+        assertEquals(moves, gameDAO.getMoveHistory(gameID), "Move history should be kept in order");
+        assertEquals(game, gameDAO.listGames().get(0).game(), "Listed game should match the played game");
+    }
+
+    @Test
+    public void testAppendMoveNegative() throws DataAccessException {
+        GameData data = new GameData(1000000, null, null, "No Game", new ChessGame());
+
+        assertThrows(DataAccessException.class, () -> gameDAO.appendMove(data, move(2, 5, 4, 5)),
+                "Appending to a non-existent game should throw exception");
+    }
+
+    @Test
+    public void testUpdateGameKeepsResignation() throws DataAccessException {
+        ChessGame game = new ChessGame();
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Test Game", game));
+
+        game.setGameOver(true);
+        gameDAO.updateGame(new GameData(gameID, null, null, "Test Game", game));
+
+        assertTrue(gameDAO.getGame(gameID).game().isGameOver(), "Resigned game should stay over");
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,85 @@
+package dataaccess;
+
+import dataaccess.auth.SqlAuthDAO;
+import dataaccess.auth.TokenPolicy;
+import dataaccess.user.SqlUserDAO;
+import model.AuthData;
+import model.UserData;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Reports {@link SqlAuthDAO#getAuth} latency on a reused connection with and without the
+ * driver's server-side statement cache. Needs the database from db.properties.
+ * <p>
+ * Calls go through the DAO with the server's token policy, so they run the same query as
+ * production. The session stays fresh for the whole run, so the sliding-expiry update only
+ * runs when the refresh interval is shorter than the benchmark.
+ * <p>
+ * The server pom pins exec:java to Main, so run this from the test classpath, e.g.
+ * {@code java -cp target/test-classes:target/classes:<test dependencies> dataaccess.GetAuthBenchmark}
+ */
+public class GetAuthBenchmark {
+
+    private static final int WARMUP_CALLS = 2_000;
+    private static final int MEASURED_CALLS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        DatabaseManager.createDatabase();
+        DatabaseManager.createTables();
+
+        var userDAO = new SqlUserDAO();
+        var authDAO = new SqlAuthDAO(TokenPolicy.fromEnvironment());
+        String username = "bench-" + UUID.randomUUID().toString().substring(0, 8);
+        String token = UUID.randomUUID().toString();
+        userDAO.createUser(new UserData(username, "not-a-real-hash", username + "@example.com"));
+        authDAO.createAuth(new AuthData(token, username));
+
+        try {
+            // Interleave the runs so neither mode gets a warmer server
+            long uncached = 0;
+            long cached = 0;
+            for (int round = 0; round < 3; round++) {
+                uncached = run(authDAO, false, token);
+                cached = run(authDAO, true, token);
+            }
+            report("uncached", uncached);
+            report("cached", cached);
+        } finally {
+            authDAO.deleteAuth(token);
+            try (var conn = DatabaseManager.getPublicConnection();
+                 var statement = conn.prepareStatement("DELETE FROM users WHERE username = ?")) {
+                statement.setString(1, username);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private static long run(SqlAuthDAO authDAO, boolean cacheStatements, String token)
+            throws SQLException, DataAccessException {
+        try (var conn = DatabaseManager.openConnection(cacheStatements)) {
+            return DatabaseManager.onConnection(conn, () -> {
+                for (int i = 0; i < WARMUP_CALLS; i++) {
+                    getAuth(authDAO, token);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < MEASURED_CALLS; i++) {
+                    getAuth(authDAO, token);
+                }
+                return System.nanoTime() - start;
+            });
+        }
+    }
+
+    private static void getAuth(SqlAuthDAO authDAO, String token) throws DataAccessException {
+        if (authDAO.getAuth(token) == null) {
+            throw new IllegalStateException("Benchmark token went missing");
+        }
+    }
+
+    private static void report(String name, long nanos) {
+        double micros = nanos / 1e3 / MEASURED_CALLS;
+        System.out.printf("%-9s %.1f us/getAuth%n", name, micros);
+    }
+}
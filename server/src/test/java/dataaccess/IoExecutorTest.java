@@ -0,0 +1,69 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IoExecutorTest {
+
+    @Test
+    public void callsRunOnPoolThreads() throws Exception {
+        try (IoExecutor io = new IoExecutor(new IoExecutor.Settings(1, 1))) {
+            Thread caller = Thread.currentThread();
+            Thread ran = io.supply(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertNotSame(caller, ran);
+            assertTrue(ran.getName().startsWith("data-io-"));
+        }
+    }
+
+    @Test
+    public void directRunsOnCaller() throws Exception {
+        IoExecutor io = IoExecutor.direct();
+        CompletableFuture<Thread> ran = io.supply(Thread::currentThread);
+        assertTrue(ran.isDone(), "A direct call should finish before supply returns");
+        assertSame(Thread.currentThread(), ran.get());
+    }
+
+    @Test
+    public void failuresCompleteTheFuture() {
+        IoExecutor io = IoExecutor.direct();
+        CompletableFuture<Void> failed = io.run(() -> {
+            throw new DataAccessException("Failed to reach database");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(DataAccessException.class, e.getCause());
+    }
+
+    @Test
+    public void callsPastTheQueueAreRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (IoExecutor io = new IoExecutor(new IoExecutor.Settings(1, 1))) {
+            CompletableFuture<Void> running = io.run(() -> await(release));
+            CompletableFuture<Void> queued = io.run(() -> { });
+            CompletableFuture<Void> rejected = io.run(() -> { });
+
+            ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+            assertEquals(IoExecutor.BUSY_MESSAGE, e.getCause().getMessage());
+            assertEquals(1, io.stats().rejected());
+
+            release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+            queued.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws DataAccessException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new DataAccessException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new DataAccessException("Interrupted");
+        }
+    }
+}
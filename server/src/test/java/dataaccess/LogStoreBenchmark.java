@@ -0,0 +1,87 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.game.FileGameDAO;
+import model.GameData;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Reports move writes per second through {@link FileGameDAO}, with and without syncing, as
+ * the number of writing threads grows. Each thread plays on its own game, so the numbers show
+ * how well group commit shares a sync between writers. Uses a temporary directory and needs
+ * no database.
+ * <p>
+ * The server pom pins exec:java to Main, so run this from the test classpath, e.g.
+ * {@code java -cp target/test-classes:target/classes:<test dependencies> dataaccess.LogStoreBenchmark}
+ */
+public class LogStoreBenchmark {
+
+    private static final int[] THREADS = {1, 8, 64};
+    private static final long MEASURE_MILLIS = 3_000;
+
+    public static void main(String[] args) throws Exception {
+        for (boolean sync : new boolean[] {true, false}) {
+            for (int threads : THREADS) {
+                run(sync, threads);
+            }
+        }
+    }
+
+    private static void run(boolean sync, int threads) throws Exception {
+        Path directory = Files.createTempDirectory("log-store-benchmark");
+        var store = new LogStore(new LogStore.Settings(directory, sync, 64L << 20));
+        var gameDAO = new FileGameDAO(store);
+        store.open();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            int[] gameIDs = new int[threads];
+            for (int t = 0; t < threads; t++) {
+                gameIDs[t] = gameDAO.createGame(new GameData(0, "white", "black", "game", new ChessGame()));
+            }
+            ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+            long deadline = System.currentTimeMillis() + MEASURE_MILLIS;
+            long start = System.nanoTime();
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int gameID = gameIDs[t];
+                futures.add(executor.submit(() -> {
+                    int writes = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        // Writes the same state each time; only the cost of logging it matters here
+                        GameData game = gameDAO.getGame(gameID);
+                        gameDAO.tryAppendMove(game, move);
+                        writes++;
+                    }
+                    return writes;
+                }));
+            }
+            long writes = 0;
+            for (Future<Integer> future : futures) {
+                writes += future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            LogStore.Stats stats = store.stats();
+            System.out.printf("sync=%-5s threads=%-3d %,10.0f writes/s  %5.1f writes per commit%n",
+                    sync, threads, writes / seconds, (double) stats.records() / stats.commits());
+        } finally {
+            executor.shutdown();
+            store.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.auth.FileAuthDAO;
+import dataaccess.auth.TokenPolicy;
+import dataaccess.game.FileGameDAO;
+import dataaccess.user.FileUserDAO;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private LogStore store;
+    private FileUserDAO userDAO;
+    private FileAuthDAO authDAO;
+    private FileGameDAO gameDAO;
+
+    @AfterEach
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private void open(long compactAfterBytes) throws DataAccessException {
+        if (store != null) {
+            store.close();
+        }
+        store = new LogStore(new LogStore.Settings(directory, true, compactAfterBytes));
+        userDAO = new FileUserDAO(store);
+        authDAO = new FileAuthDAO(store);
+        gameDAO = new FileGameDAO(store);
+        store.open();
+    }
+
+    @Test
+    public void reopeningReplaysTheLog() throws Exception {
+        open(0);
+        userDAO.createUser(new UserData("alice", "hash", "a@example.com"));
+        authDAO.createAuth(new AuthData("token1", "alice"));
+        authDAO.createAuth(new AuthData("token2", "alice"));
+        authDAO.deleteAuth("token1");
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData game = gameDAO.getGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.game().makeMove(move);
+        assertTrue(gameDAO.tryAppendMove(new GameData(gameID, "alice", null, "game", game.game(), game.version()), move));
+
+        open(0);
+        assertEquals(new UserData("alice", "hash", "a@example.com"), userDAO.getUser("alice"));
+        assertNull(authDAO.getAuth("token1"), "Deleted sessions should stay deleted");
+        assertEquals("alice", authDAO.getAuth("token2").username());
+        GameData replayed = gameDAO.getGame(gameID);
+        assertEquals("alice", replayed.whiteUsername());
+        assertEquals(game.version() + 1, replayed.version());
+        assertEquals(game.game().getBoard(), replayed.game().getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, replayed.game().getTeamTurn());
+    }
+
+    @Test
+    public void staleWritesAreRejectedAndNotLogged() throws Exception {
+        open(0);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData game = gameDAO.getGame(gameID);
+        assertTrue(gameDAO.tryUpdateGame(new GameData(gameID, "white", null, "game", game.game(), game.version())));
+        assertFalse(gameDAO.tryUpdateGame(new GameData(gameID, null, "black", "game", game.game(), game.version())),
+                "A write based on an old version should be rejected");
+        long records = store.stats().records();
+
+        open(0);
+        assertEquals("white", gameDAO.getGame(gameID).whiteUsername());
+        assertNull(gameDAO.getGame(gameID).blackUsername());
+        assertEquals(2, records, "Only the create and the accepted update should be logged");
+    }
+
+    @Test
+    public void deletedGamesStayDeletedWithoutReusingIDs() throws Exception {
+        open(0);
+        int kept = gameDAO.createGame(new GameData(0, null, null, "kept", new ChessGame()));
+        int deleted = gameDAO.createGame(new GameData(0, null, null, "deleted", new ChessGame()));
+        gameDAO.deleteGame(deleted);
+        gameDAO.deleteGame(deleted + 100);
+        assertEquals(3, store.stats().records(), "Deleting a missing game should not be logged");
+
+        open(0);
+        assertNull(gameDAO.getGame(deleted));
+        assertEquals("kept", gameDAO.getGame(kept).gameName());
+        assertTrue(gameDAO.createGame(new GameData(0, null, null, "next", new ChessGame())) > deleted);
+    }
+
+    @Test
+    public void sessionLimitsSurviveReplay() throws Exception {
+        store = new LogStore(new LogStore.Settings(directory, true, 0));
+        authDAO = new FileAuthDAO(store, new TokenPolicy(60_000, 1_000, 2));
+        store.open();
+        authDAO.createAuth(new AuthData("first", "alice"));
+        authDAO.createAuth(new AuthData("second", "alice"));
+        authDAO.createAuth(new AuthData("third", "alice"));
+        authDAO.createAuth(new AuthData("bob", "bob"));
+        long cutoff = System.currentTimeMillis() + 1;
+        int live = (authDAO.getAuth("first") == null ? 0 : 1) + (authDAO.getAuth("second") == null ? 0 : 1);
+        assertEquals(1, live, "The third login should end one of alice's earlier sessions");
+        assertEquals(1, authDAO.deleteExpiredAuths(cutoff, 1));
+        List<String> remaining = new ArrayList<>();
+        for (String token : List.of("first", "second", "third", "bob")) {
+            if (authDAO.getAuth(token) != null) {
+                remaining.add(token);
+            }
+        }
+        assertEquals(2, remaining.size());
+
+        open(0);
+        for (String token : List.of("first", "second", "third", "bob")) {
+            assertEquals(remaining.contains(token), authDAO.getAuth(token) != null,
+                    "Ended and expired sessions should stay deleted: " + token);
+        }
+    }
+
+    @Test
+    public void duplicateUsersAreRejected() throws Exception {
+        open(0);
+        userDAO.createUser(new UserData("alice", "hash", "a@example.com"));
+        assertThrows(DataAccessException.class, () -> userDAO.createUser(new UserData("alice", "other", "b@example.com")));
+
+        open(0);
+        assertEquals("hash", userDAO.getUser("alice").password());
+    }
+
+    @Test
+    public void tornTailIsDropped() throws Exception {
+        open(0);
+        userDAO.createUser(new UserData("alice", "hash", "a@example.com"));
+        userDAO.createUser(new UserData("bob", "hash", "b@example.com"));
+        store.close();
+        store = null;
+
+        // Cut the last record short, as a crash partway through a write would
+        Path log = directory.resolve("chess.log");
+        long size = Files.size(log);
+        try (var channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        open(0);
+        assertNotNull(userDAO.getUser("alice"));
+        assertNull(userDAO.getUser("bob"), "An incomplete record should be dropped");
+        userDAO.createUser(new UserData("carol", "hash", "c@example.com"));
+
+        open(0);
+        assertNotNull(userDAO.getUser("carol"), "Writes after a dropped tail should replay");
+    }
+
+    @Test
+    public void corruptRecordEndsReplay() throws Exception {
+        open(0);
+        userDAO.createUser(new UserData("alice", "hash", "a@example.com"));
+        long firstRecord = store.stats().logBytes();
+        userDAO.createUser(new UserData("bob", "hash", "b@example.com"));
+        store.close();
+        store = null;
+
+        flipLastByte(directory.resolve("chess.log"));
+
+        open(0);
+        assertNotNull(userDAO.getUser("alice"));
+        assertNull(userDAO.getUser("bob"), "A record failing its checksum should be dropped");
+        assertEquals(firstRecord, store.stats().logBytes());
+    }
+
+    @Test
+    public void compactionKeepsStateAndShrinksLog() throws Exception {
+        open(4096);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        for (int i = 0; i < 500; i++) {
+            GameData game = gameDAO.getGame(gameID);
+            assertTrue(gameDAO.tryUpdateGame(new GameData(gameID, "white" + i, null, "game", game.game(), game.version())));
+        }
+        gameDAO.clear();
+        int laterID = gameDAO.createGame(new GameData(0, null, null, "later", new ChessGame()));
+        for (int i = 0; i < 100; i++) {
+            authDAO.createAuth(new AuthData("token" + i, "alice"));
+        }
+
+        assertTrue(store.stats().compactions() > 0, "The log should have been compacted");
+        assertTrue(store.stats().logBytes() < 8192, "Compaction should keep the log near the threshold");
+
+        open(4096);
+        assertNull(gameDAO.getGame(gameID), "Cleared games should stay cleared");
+        assertEquals("later", gameDAO.getGame(laterID).gameName());
+        assertEquals(100, countAuths());
+        int nextID = gameDAO.createGame(new GameData(0, null, null, "next", new ChessGame()));
+        assertTrue(nextID > laterID, "IDs should not be reused after compaction");
+    }
+
+    @Test
+    public void concurrentWritesAreAllDurable() throws Exception {
+        open(0);
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        authDAO.createAuth(new AuthData(thread + "-" + i, "user"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(store.stats().commits() <= store.stats().records());
+
+        open(0);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertNotNull(authDAO.getAuth(t + "-" + i));
+            }
+        }
+    }
+
+    @Test
+    public void secondStoreCannotOpenSameDirectory() throws Exception {
+        open(0);
+        var other = new LogStore(new LogStore.Settings(directory, true, 0));
+        assertThrows(DataAccessException.class, other::open);
+    }
+
+    private int countAuths() throws DataAccessException {
+        int count = 0;
+        for (int i = 0; i < 100; i++) {
+            if (authDAO.getAuth("token" + i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void flipLastByte(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+    }
+}
@@ -0,0 +1,68 @@
+package dataaccess;
+
+import chess.ChessGame;
+import dataaccess.auth.MemoryAuthDAO;
+import dataaccess.game.MemoryGameDAO;
+import model.AuthData;
+import model.GameData;
+
+import java.util.UUID;
+
+/**
+ * Reports per-call latency of the in-memory getAuth, getGame and tryUpdateGame with
+ * 10,000 sessions and games loaded. Needs no database.
+ * <p>
+ * The server pom pins exec:java to Main, so run this from the test classpath, e.g.
+ * {@code java -cp target/test-classes:target/classes:<test dependencies> dataaccess.MemoryDAOBenchmark}
+ */
+public class MemoryDAOBenchmark {
+
+    private static final int ENTRIES = 10_000;
+    private static final int WARMUP_CALLS = 200_000;
+    private static final int MEASURED_CALLS = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        var authDAO = new MemoryAuthDAO();
+        var gameDAO = new MemoryGameDAO();
+        String[] tokens = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            tokens[i] = UUID.randomUUID().toString();
+            authDAO.createAuth(new AuthData(tokens[i], "user" + i));
+            gameDAO.createGame(new GameData(0, null, null, "game" + i, new ChessGame()));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long getAuth = time(WARMUP_CALLS, MEASURED_CALLS, i -> authDAO.getAuth(tokens[i % ENTRIES]));
+            long getGame = time(WARMUP_CALLS, MEASURED_CALLS, i -> gameDAO.getGame(i % ENTRIES + 1));
+            long update = time(WARMUP_CALLS, MEASURED_CALLS, i -> {
+                GameData game = gameDAO.getGame(i % ENTRIES + 1);
+                gameDAO.tryUpdateGame(game);
+            });
+            if (round == 2) {
+                report("getAuth", getAuth);
+                report("getGame", getGame);
+                report("getGame+tryUpdateGame", update);
+            }
+        }
+    }
+
+    private static long time(int warmup, int measured, Call call) throws DataAccessException {
+        for (int i = 0; i < warmup; i++) {
+            call.run(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measured; i++) {
+            call.run(i);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long nanos) {
+        System.out.printf("%-22s %.0f ns/call%n", name, (double) nanos / MEASURED_CALLS);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run(int i) throws DataAccessException;
+    }
+}
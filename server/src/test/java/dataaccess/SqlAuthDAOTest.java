@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import dataaccess.auth.SqlAuthDAO;
+import dataaccess.auth.TokenPolicy;
 import dataaccess.user.SqlUserDAO;
 import model.AuthData;
 import model.UserData;
@@ -84,6 +85,30 @@ public class SqlAuthDAOTest {
         assertNull(retrieved, "Auth token should be null after deletion");
     }
 
+    @Test
+    public void testLoginsPastCapEndOldestSessions() throws Exception {
+        SqlAuthDAO capped = new SqlAuthDAO(new TokenPolicy(60_000, 1_000, 2));
+        Thread.sleep(5);
+        capped.createAuth(new AuthData("second", "testUser"));
+        Thread.sleep(5);
+        capped.createAuth(new AuthData("third", "testUser"));
+
+        assertNull(capped.getAuth("validAuthToken"), "The least recently used session should end");
+        assertNotNull(capped.getAuth("second"));
+        assertNotNull(capped.getAuth("third"));
+    }
+
+    @Test
+    public void testExpiredSessionsAreSweptInBatches() throws Exception {
+        authDAO.createAuth(new AuthData("another", "testUser"));
+        long cutoff = System.currentTimeMillis() + 1;
+
+        assertEquals(1, authDAO.deleteExpiredAuths(cutoff, 1));
+        assertEquals(1, authDAO.deleteExpiredAuths(cutoff, 1));
+        assertEquals(0, authDAO.deleteExpiredAuths(cutoff, 1));
+        assertNull(authDAO.getAuth("another"));
+    }
+
     @Test
     public void testDeleteAuthNegative() {
         assertDoesNotThrow(() -> authDAO.deleteAuth("invalidAuthToken"), "Deleting non-existent auth token should not throw exception");
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 
 import chess.ChessGame;
 import dataaccess.auth.SqlAuthDAO;
+import dataaccess.game.GameQuery;
 import dataaccess.game.SqlGameDAO;
 import dataaccess.user.SqlUserDAO;
 import model.AuthData;
@@ -19,6 +20,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -134,4 +136,75 @@ public class SqlGameDAOTest {
         assertDoesNotThrow(() -> gameDAO.updateGame(invalidUpdate), "Updating non-existent game should throw exception");
     }
 
+    @Test
+    public void testTryUpdateGamePositive() throws DataAccessException {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Test Game", new ChessGame()));
+        GameData read = gameDAO.getGame(gameID);
+
+        assertTrue(gameDAO.tryUpdateGame(new GameData(gameID, null, null, "Renamed", read.game(), read.version())),
+                "A write against the current version should succeed");
+        GameData retrieved = gameDAO.getGame(gameID);
+        assertEquals("Renamed", retrieved.gameName());
+        assertEquals(read.version() + 1, retrieved.version(), "Each write should bump the version");
+    }
+
+    @Test
+    public void testTryUpdateGameNegative() throws DataAccessException {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Test Game", new ChessGame()));
+        GameData read = gameDAO.getGame(gameID);
+        gameDAO.updateGame(new GameData(gameID, null, null, "First", read.game(), read.version()));
+
+        assertFalse(gameDAO.tryUpdateGame(new GameData(gameID, null, null, "Second", read.game(), read.version())),
+                "A write against an old version should be rejected");
+        assertEquals("First", gameDAO.getGame(gameID).gameName());
+    }
+
+    @Test
+    public void testClaimSeatPositive() throws DataAccessException {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Test Game", new ChessGame()));
+        userDAO.createUser(new UserData("player1", "password", "p1@doink.com"));
+        int version = gameDAO.getGame(gameID).version();
+
+        assertTrue(gameDAO.claimSeat(gameID, ChessGame.TeamColor.BLACK, "player1"));
+        GameData retrieved = gameDAO.getGame(gameID);
+        assertEquals("player1", retrieved.blackUsername());
+        assertNull(retrieved.whiteUsername());
+        assertEquals(version + 1, retrieved.version(), "Claiming a seat should bump the version");
+    }
+
+    @Test
+    public void testClaimSeatNegative() throws DataAccessException {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "Test Game", new ChessGame()));
+        userDAO.createUser(new UserData("player1", "password", "p1@doink.com"));
+        userDAO.createUser(new UserData("player2", "password", "p2@doink.com"));
+        assertTrue(gameDAO.claimSeat(gameID, ChessGame.TeamColor.WHITE, "player1"));
+
+        assertFalse(gameDAO.claimSeat(gameID, ChessGame.TeamColor.WHITE, "player2"), "A taken seat should not be claimed");
+        assertFalse(gameDAO.claimSeat(999, ChessGame.TeamColor.WHITE, "player2"), "A missing game has no seats");
+        assertEquals("player1", gameDAO.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    public void testBackfillFinishedPositive() throws Exception {
+        ChessGame over = new ChessGame();
+        over.setGameOver(true);
+        int finishedID = gameDAO.createGame(new GameData(0, null, null, "Over", new ChessGame()));
+        GameData created = gameDAO.getGame(finishedID);
+        gameDAO.updateGame(new GameData(finishedID, null, null, "Over", over, created.version()));
+        int playingID = gameDAO.createGame(new GameData(0, null, null, "Playing", new ChessGame()));
+
+        // As the rows look right after the column is added to a table from an older version
+        try (var conn = DatabaseManager.getPublicConnection();
+            var statement = conn.prepareStatement("UPDATE games SET finished = FALSE")) {
+            statement.executeUpdate();
+        }
+        try (var conn = DatabaseManager.getPublicConnection()) {
+            SqlGameDAO.backfillFinished(conn);
+        }
+
+        var finished = gameDAO.listGames(new GameQuery(0, 0, GameQuery.Status.FINISHED, null, false));
+        assertEquals(List.of(finishedID), finished.stream().map(GameData::gameID).toList());
+        var open = gameDAO.listGames(new GameQuery(0, 0, GameQuery.Status.OPEN, null, false));
+        assertEquals(List.of(playingID), open.stream().map(GameData::gameID).toList());
+    }
 }
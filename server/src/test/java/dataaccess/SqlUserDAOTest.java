@@ -15,7 +15,9 @@ import model.UserData;
 import org.junit.jupiter.api.Test;
 import org.mindrot.jbcrypt.BCrypt;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -79,4 +81,39 @@ public class SqlUserDAOTest {
         UserData retrieved =  userDAO.getUser("doink");
         assertNull(retrieved, "User should be null for non-existent username");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateUserIfAbsentPositive() throws DataAccessException {
+        assertTrue(userDAO.createUserIfAbsent(new UserData("newUser", "hash", "nu@luke.com")));
+        assertNotNull(userDAO.getUser("newUser"), "User should exist after creation");
+    }
+
+    @Test
+    public void testCreateUserIfAbsentNegative() throws DataAccessException {
+        assertFalse(userDAO.createUserIfAbsent(new UserData("testUser", "anotherPassword", "other@luke.com")),
+                "A taken username should be reported, not thrown");
+        assertEquals("tu@luke.com", userDAO.getUser("testUser").email(), "The existing user should be unchanged");
+    }
+
+    @Test
+    public void testTransactionCommitsTogether() throws DataAccessException {
+        var authDAO = new SqlAuthDAO();
+        DatabaseManager.inTransaction(() -> {
+            userDAO.createUser(new UserData("newUser", "hash", "nu@luke.com"));
+            authDAO.createAuth(new AuthData("newToken", "newUser"));
+            return null;
+        });
+        assertNotNull(userDAO.getUser("newUser"));
+        assertEquals("newUser", authDAO.getAuth("newToken").username());
+    }
+
+    @Test
+    public void testTransactionRollsBackOnFailure() {
+        assertThrows(DataAccessException.class, () -> DatabaseManager.inTransaction(() -> {
+            userDAO.createUser(new UserData("newUser", "hash", "nu@luke.com"));
+            userDAO.createUser(new UserData("testUser", "hash", "tu@luke.com"));
+            return null;
+        }));
+        assertDoesNotThrow(() -> assertNull(userDAO.getUser("newUser"), "The first insert should be rolled back"));
+    }
+}
@@ -0,0 +1,98 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+import model.AuthData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthSweeperTest {
+
+    private AuthSweeper sweeper;
+
+    @AfterEach
+    public void tearDown() {
+        if (sweeper != null) {
+            sweeper.close();
+        }
+    }
+
+    @Test
+    public void unusedTokensExpire() throws Exception {
+        MemoryAuthDAO auths = new MemoryAuthDAO(new TokenPolicy(100, 10, 0));
+        auths.createAuth(new AuthData("token", "user"));
+        assertNotNull(auths.getAuth("token"));
+
+        Thread.sleep(150);
+        assertNull(auths.getAuth("token"), "A token unused for the TTL should stop working");
+    }
+
+    @Test
+    public void usingATokenKeepsItAlive() throws Exception {
+        MemoryAuthDAO auths = new MemoryAuthDAO(new TokenPolicy(400, 50, 0));
+        auths.createAuth(new AuthData("token", "user"));
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(100);
+            assertNotNull(auths.getAuth("token"), "A token in use should slide past its first TTL");
+        }
+    }
+
+    @Test
+    public void loginsPastTheCapEndTheLeastRecentlyUsedSessions() throws Exception {
+        MemoryAuthDAO auths = new MemoryAuthDAO(new TokenPolicy(60_000, 1, 2));
+        auths.createAuth(new AuthData("first", "user"));
+        Thread.sleep(5);
+        auths.createAuth(new AuthData("second", "user"));
+        Thread.sleep(5);
+        auths.getAuth("first");
+        auths.createAuth(new AuthData("third", "user"));
+        auths.createAuth(new AuthData("other", "someoneElse"));
+
+        assertNotNull(auths.getAuth("first"), "A recently used session should be kept");
+        assertNull(auths.getAuth("second"));
+        assertNotNull(auths.getAuth("third"), "The new session should always be kept");
+        assertNotNull(auths.getAuth("other"), "Other users should not be affected");
+    }
+
+    @Test
+    public void sweepDeletesExpiredTokensInBatches() throws Exception {
+        TokenPolicy policy = new TokenPolicy(50, 10, 0);
+        CountingSweeps auths = new CountingSweeps(policy);
+        for (int i = 0; i < 7; i++) {
+            auths.createAuth(new AuthData("old" + i, "user"));
+        }
+        Thread.sleep(100);
+        auths.createAuth(new AuthData("fresh", "user"));
+
+        sweeper = new AuthSweeper(auths, policy, new AuthSweeper.Settings(60_000, 3, 0));
+        assertEquals(7, sweeper.sweepOnce());
+        assertEquals(3, auths.batches, "Seven expired tokens should take three batches of three");
+        assertNotNull(auths.getAuth("fresh"));
+        assertEquals(7, sweeper.stats().deleted());
+        assertEquals(1, auths.deleteExpiredAuths(Long.MAX_VALUE, 10), "Only the fresh token should remain");
+    }
+
+    @Test
+    public void tokensWithoutExpiryAreNeverSwept() throws DataAccessException {
+        MemoryAuthDAO auths = new MemoryAuthDAO();
+        auths.createAuth(new AuthData("token", "user"));
+        sweeper = new AuthSweeper(auths, TokenPolicy.UNLIMITED, new AuthSweeper.Settings(60_000, 10, 0));
+        assertEquals(0, sweeper.sweepOnce());
+        assertNotNull(auths.getAuth("token"));
+    }
+
+    private static class CountingSweeps extends MemoryAuthDAO {
+        int batches;
+
+        CountingSweeps(TokenPolicy policy) {
+            super(policy);
+        }
+
+        @Override
+        public int deleteExpiredAuths(long usedBeforeMillis, int limit) throws DataAccessException {
+            batches++;
+            return super.deleteExpiredAuths(usedBeforeMillis, limit);
+        }
+    }
+}
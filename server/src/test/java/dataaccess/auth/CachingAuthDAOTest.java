@@ -0,0 +1,120 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+import model.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingAuthDAOTest {
+
+    private CountingAuthDAO store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new CountingAuthDAO();
+    }
+
+    @Test
+    public void repeatedLookupsHitMemory() throws DataAccessException {
+        store.createAuth(new AuthData("token", "user"));
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 10));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("user", cache.getAuth("token").username());
+        }
+
+        assertEquals(1, store.lookups, "Only the first lookup should reach the store");
+        assertEquals(4, cache.stats().hits());
+    }
+
+    @Test
+    public void deleteInvalidatesImmediately() throws DataAccessException {
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 10));
+        cache.createAuth(new AuthData("token", "user"));
+        assertNotNull(cache.getAuth("token"));
+
+        cache.deleteAuth("token");
+
+        assertNull(cache.getAuth("token"));
+    }
+
+    @Test
+    public void clearInvalidatesEverything() throws DataAccessException {
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 10));
+        cache.createAuth(new AuthData("a", "user"));
+        cache.createAuth(new AuthData("b", "user"));
+
+        cache.clear();
+
+        assertNull(cache.getAuth("a"));
+        assertNull(cache.getAuth("b"));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    public void unknownTokensAreNotCached() throws DataAccessException {
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 10));
+        assertNull(cache.getAuth("token"));
+
+        // Created behind the cache's back, as another server would
+        store.createAuth(new AuthData("token", "user"));
+
+        assertNotNull(cache.getAuth("token"));
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        store.createAuth(new AuthData("token", "user"));
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(1, 10));
+        cache.getAuth("token");
+
+        Thread.sleep(5);
+        cache.getAuth("token");
+
+        assertEquals(2, store.lookups, "An expired entry should be looked up again");
+    }
+
+    @Test
+    public void sizeIsBounded() throws DataAccessException {
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 3));
+        for (int i = 0; i < 10; i++) {
+            cache.createAuth(new AuthData("token" + i, "user"));
+        }
+
+        assertTrue(cache.stats().size() <= 3);
+        assertTrue(cache.stats().evictions() > 0);
+        assertNotNull(cache.getAuth("token0"), "Evicted tokens should still be found in the store");
+    }
+
+    @Test
+    public void fullCacheIsTrimmedInBatches() throws DataAccessException {
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 100));
+        for (int i = 0; i < 1100; i++) {
+            cache.createAuth(new AuthData("token" + i, "user"));
+        }
+
+        CachingAuthDAO.Stats stats = cache.stats();
+        assertTrue(stats.size() <= 100);
+        assertEquals(100, stats.sweeps(), "Each sweep should free room for a tenth of the cache");
+        assertEquals(1000, stats.evictions());
+    }
+
+    @Test
+    public void nullTokenIsPassedThrough() throws DataAccessException {
+        CachingAuthDAO cache = new CachingAuthDAO(store, new CachingAuthDAO.Settings(60_000, 10));
+
+        assertNull(cache.getAuth(null));
+    }
+
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        private int lookups = 0;
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            lookups++;
+            return authToken == null ? null : super.getAuth(authToken);
+        }
+    }
+}
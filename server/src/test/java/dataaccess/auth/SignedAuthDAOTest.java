@@ -0,0 +1,146 @@
+package dataaccess.auth;
+
+import dataaccess.DataAccessException;
+import model.AuthData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignedAuthDAOTest {
+
+    private final List<SignedAuthDAO> opened = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        opened.forEach(SignedAuthDAO::close);
+    }
+
+    private static TokenSigner.Key key(String id, int fill) {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) fill);
+        return new TokenSigner.Key(id, secret);
+    }
+
+    private static TokenSigner.Settings settings(long ttlMillis, TokenSigner.Key... keys) {
+        return new TokenSigner.Settings(List.of(keys), ttlMillis, 60_000);
+    }
+
+    private SignedAuthDAO open(AuthDAO store, RevocationDAO revocations, TokenSigner.Settings settings)
+            throws DataAccessException {
+        SignedAuthDAO auths = new SignedAuthDAO(store, new TokenSigner(settings), revocations, settings);
+        opened.add(auths);
+        return auths;
+    }
+
+    @Test
+    public void signedTokensAreCheckedWithoutTheStore() throws DataAccessException {
+        CountingAuthDAO store = new CountingAuthDAO();
+        SignedAuthDAO auths = open(store, new MemoryRevocationDAO(), settings(60_000, key("a", 1)));
+
+        String token = auths.newToken("alice");
+        auths.createAuth(new AuthData(token, "alice"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("alice", auths.getAuth(token).username());
+        }
+
+        assertEquals(0, store.lookups, "Signed tokens should never reach the store");
+        assertEquals(3, auths.stats().verified());
+    }
+
+    @Test
+    public void storedTokensKeepWorking() throws DataAccessException {
+        CountingAuthDAO store = new CountingAuthDAO();
+        store.createAuth(new AuthData("old-uuid-token", "alice"));
+        SignedAuthDAO auths = open(store, new MemoryRevocationDAO(), settings(60_000, key("a", 1)));
+
+        assertEquals("alice", auths.getAuth("old-uuid-token").username());
+        auths.deleteAuth("old-uuid-token");
+        assertNull(auths.getAuth("old-uuid-token"));
+        assertEquals(2, store.lookups);
+    }
+
+    @Test
+    public void tamperedExpiredAndForeignTokensAreRejected() throws Exception {
+        SignedAuthDAO auths = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(50, key("a", 1)));
+        SignedAuthDAO other = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(60_000, key("a", 2)));
+
+        String token = auths.newToken("alice");
+        int dot = token.lastIndexOf('.');
+        char last = token.charAt(dot - 1);
+        String tampered = token.substring(0, dot - 1) + (last == 'A' ? 'B' : 'A') + token.substring(dot);
+        assertNull(auths.getAuth(tampered));
+        assertNull(auths.getAuth(token.substring(0, dot)));
+        assertNull(auths.getAuth("s1.not-a-token"));
+        assertNull(auths.getAuth(other.newToken("alice")), "A token signed with another secret should fail");
+
+        Thread.sleep(100);
+        assertNull(auths.getAuth(token), "An expired token should fail");
+    }
+
+    @Test
+    public void rotatedKeysStillVerifyUntilRemoved() throws DataAccessException {
+        TokenSigner.Key oldKey = key("old", 1);
+        TokenSigner.Key newKey = key("new", 2);
+        String oldToken = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(60_000, oldKey))
+                .newToken("alice");
+
+        SignedAuthDAO rotated = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(60_000, newKey, oldKey));
+        assertEquals("alice", rotated.getAuth(oldToken).username(), "The old key should still be accepted");
+        String newToken = rotated.newToken("alice");
+
+        SignedAuthDAO retired = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(60_000, newKey));
+        assertNull(retired.getAuth(oldToken), "Tokens from a removed key should fail");
+        assertEquals("alice", retired.getAuth(newToken).username());
+    }
+
+    @Test
+    public void logoutRevokesAcrossServers() throws DataAccessException {
+        TokenSigner.Settings settings = settings(60_000, key("a", 1));
+        RevocationDAO shared = new MemoryRevocationDAO();
+        SignedAuthDAO first = open(new MemoryAuthDAO(), shared, settings);
+        String token = first.newToken("alice");
+        String other = first.newToken("alice");
+
+        first.deleteAuth(token);
+        assertNull(first.getAuth(token), "Logout should take effect here at once");
+        assertNotNull(first.getAuth(other), "Only the logged-out token should be revoked");
+
+        SignedAuthDAO second = open(new MemoryAuthDAO(), shared, settings);
+        assertNull(second.getAuth(token), "Other servers should load the revocation");
+        assertEquals(1, shared.activeRevocations(System.currentTimeMillis()).size());
+    }
+
+    @Test
+    public void clearRejectsEarlierTokens() throws DataAccessException {
+        SignedAuthDAO auths = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(60_000, key("a", 1)));
+        String token = auths.newToken("alice");
+        auths.clear();
+        assertNull(auths.getAuth(token));
+    }
+
+    @Test
+    public void tokensIssuedRightAfterAClearAreAccepted() throws DataAccessException {
+        SignedAuthDAO auths = open(new MemoryAuthDAO(), new MemoryRevocationDAO(), settings(60_000, key("a", 1)));
+        // Enough rounds that some logins land in the same millisecond as their clear
+        for (int i = 0; i < 200; i++) {
+            auths.clear();
+            String token = auths.newToken("alice");
+            assertNotNull(auths.getAuth(token), "A login after a clear should be accepted, round " + i);
+        }
+    }
+
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        int lookups;
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            lookups++;
+            return super.getAuth(authToken);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActiveGameRegistryTest {
+
+    private ActiveGameRegistry registry;
+
+    @AfterEach
+    public void tearDown() {
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Test
+    public void attachedGamesAreServedFromMemory() throws DataAccessException {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+
+        GameData attached = registry.attach(gameID);
+        int readsAfterAttach = store.reads;
+        for (int i = 0; i < 10; i++) {
+            assertSame(attached, registry.getGame(gameID), "Reads should return the live game");
+        }
+
+        assertEquals(readsAfterAttach, store.reads, "Live reads should not reach the store");
+        assertEquals(1, registry.activeGames());
+    }
+
+    @Test
+    public void writesGoThroughAndReplaceLiveGame() throws Exception {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData live = registry.attach(gameID);
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        live.game().makeMove(move);
+        registry.appendMove(live, move);
+        GameData joined = new GameData(gameID, "white", null, "game", live.game());
+        registry.updateGame(joined);
+
+        assertEquals(2, store.writes);
+        assertEquals(joined.withVersion(1), registry.getGame(gameID), "The live game should be the one written");
+        assertEquals("white", store.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    public void lastDetachEvictsAfterGracePeriod() throws Exception {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 50);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+
+        registry.attach(gameID);
+        registry.attach(gameID);
+        registry.detach(gameID);
+        registry.detach(gameID);
+        assertEquals(1, registry.activeGames(), "The game should stay through the grace period");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.activeGames() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, registry.activeGames());
+    }
+
+    @Test
+    public void reattachCancelsEviction() throws Exception {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 50);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+
+        GameData first = registry.attach(gameID);
+        registry.detach(gameID);
+        GameData second = registry.attach(gameID);
+        Thread.sleep(150);
+
+        assertSame(first, second, "A reconnect within the grace period should reuse the live game");
+        assertEquals(1, registry.activeGames());
+    }
+
+    @Test
+    public void failedWriteDropsLiveGame() throws DataAccessException {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData live = registry.attach(gameID);
+
+        live.game().setGameOver(true);
+        store.failWrites = true;
+        assertThrows(DataAccessException.class, () -> registry.updateGame(live));
+        store.failWrites = false;
+
+        assertFalse(registry.getGame(gameID).game().isGameOver(), "Reads should fall back to the stored game");
+    }
+
+    @Test
+    public void staleConditionalWriteIsRejectedAndLiveGameReloaded() throws DataAccessException {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData live = registry.attach(gameID);
+
+        // Another server seats a player behind this one's back
+        store.updateGame(new GameData(gameID, null, "black", "game", live.game(), live.version()));
+        GameData stale = new GameData(gameID, "white", null, "game", live.game(), live.version());
+
+        assertFalse(registry.tryUpdateGame(stale), "A write based on an old version should be rejected");
+        GameData reloaded = registry.getGame(gameID);
+        assertEquals("black", reloaded.blackUsername(), "The live game should be reloaded after a conflict");
+
+        GameData retried = new GameData(gameID, "white", "black", "game", reloaded.game(), reloaded.version());
+        assertTrue(registry.tryUpdateGame(retried));
+        assertEquals(reloaded.version() + 1, registry.getGame(gameID).version());
+    }
+
+    @Test
+    public void unknownGameIsNotAttached() throws DataAccessException {
+        registry = new ActiveGameRegistry(new CountingGameDAO(), 0);
+
+        assertNull(registry.attach(42));
+        assertEquals(0, registry.activeGames());
+    }
+
+    @Test
+    public void claimingSeatInLiveGameUpdatesLiveCopy() throws Exception {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        registry.attach(gameID);
+        int readsAfterAttach = store.reads;
+
+        assertTrue(registry.claimSeat(gameID, ChessGame.TeamColor.WHITE, "white"));
+        assertFalse(registry.claimSeat(gameID, ChessGame.TeamColor.WHITE, "other"), "The seat should now be taken");
+
+        assertEquals(readsAfterAttach, store.reads, "Seating a live game should read the live copy");
+        assertEquals("white", registry.getGame(gameID).whiteUsername());
+        assertEquals("white", store.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    public void lateWriterCannotReplaceNewerLiveGame() throws Exception {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = registry.attach(gameID);
+
+        // The first writer stalls after its write lands, before the registry hears back
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        store.afterWrite = () -> {
+            store.afterWrite = null;
+            written.countDown();
+            awaitQuietly(release);
+        };
+        Thread slow = new Thread(() -> {
+            try {
+                registry.tryUpdateGame(new GameData(gameID, "white", null, "game", read.game(), read.version()));
+            } catch (DataAccessException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        slow.start();
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+
+        GameData current = store.getGame(gameID);
+        assertTrue(registry.tryUpdateGame(new GameData(gameID, "white", "black", "game", current.game(),
+                current.version())));
+        release.countDown();
+        slow.join(5000);
+
+        GameData live = registry.getGame(gameID);
+        assertEquals(current.version() + 1, live.version(), "The older write should not replace the newer one");
+        assertEquals("black", live.blackUsername());
+    }
+
+    @Test
+    public void failedAttachDoesNotKeepGameLive() throws DataAccessException {
+        CountingGameDAO store = new CountingGameDAO();
+        registry = new ActiveGameRegistry(store, 0);
+        int gameID = registry.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData live = registry.attach(gameID);
+
+        // Drop the live copy so the next attach has to reload it, then fail the reload
+        store.failWrites = true;
+        assertThrows(DataAccessException.class, () -> registry.updateGame(live));
+        store.failReads = true;
+        assertThrows(DataAccessException.class, () -> registry.attach(gameID));
+        store.failReads = false;
+
+        registry.detach(gameID);
+        assertEquals(0, registry.activeGames(), "The failed attach should not hold a connection");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A memory store that counts reads and writes and hands out copies, like a database would
+     */
+    private static class CountingGameDAO extends MemoryGameDAO {
+        private int reads = 0;
+        private int writes = 0;
+        private boolean failWrites = false;
+        private volatile boolean failReads = false;
+        private volatile Runnable afterWrite;
+
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            if (failReads) {
+                throw new DataAccessException("simulated outage");
+            }
+            reads++;
+            GameData game = super.getGame(gameID);
+            if (game == null) {
+                return null;
+            }
+            ChessGame copy = GameStateCodec.decode(GameStateCodec.encode(game.game()));
+            return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), copy,
+                    game.version());
+        }
+
+        @Override
+        public void updateGame(GameData game) throws DataAccessException {
+            if (failWrites) {
+                throw new DataAccessException("simulated outage");
+            }
+            writes++;
+            ChessGame copy = GameStateCodec.decode(GameStateCodec.encode(game.game()));
+            super.updateGame(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                    copy, game.version()));
+        }
+
+        @Override
+        public boolean tryUpdateGame(GameData game) throws DataAccessException {
+            ChessGame copy = GameStateCodec.decode(GameStateCodec.encode(game.game()));
+            boolean written = super.tryUpdateGame(new GameData(game.gameID(), game.whiteUsername(),
+                    game.blackUsername(), game.gameName(), copy, game.version()));
+            Runnable hook = afterWrite;
+            if (written && hook != null) {
+                hook.run();
+            }
+            return written;
+        }
+    }
+}
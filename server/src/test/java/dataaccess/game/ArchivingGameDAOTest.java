@@ -0,0 +1,179 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchivingGameDAOTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<ArchivingGameDAO> opened = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        opened.forEach(ArchivingGameDAO::close);
+    }
+
+    private ArchivingGameDAO open(GameDAO hot, long archiveAfterMillis, int gamesPerSegment)
+            throws DataAccessException {
+        var archiving = new ArchivingGameDAO(hot,
+                new ArchivingGameDAO.Settings(directory, archiveAfterMillis, 0, gamesPerSegment));
+        opened.add(archiving);
+        return archiving;
+    }
+
+    private static int createGame(GameDAO games, String name, boolean finished) throws Exception {
+        int gameID = games.createGame(new GameData(0, null, null, name, new ChessGame()));
+        GameData game = games.getGame(gameID);
+        game.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.game().setGameOver(finished);
+        games.updateGame(new GameData(gameID, "white", "black", name, game.game(), game.version()));
+        return gameID;
+    }
+
+    @Test
+    public void finishedGamesMoveToTheArchiveAndStayReadable() throws Exception {
+        MemoryGameDAO hot = new MemoryGameDAO();
+        ArchivingGameDAO archiving = open(hot, 0, 100);
+        int playing = createGame(archiving, "playing", false);
+        int over = createGame(archiving, "over", true);
+        GameData before = archiving.getGame(over);
+
+        assertEquals(1, archiving.archiveFinished());
+
+        assertEquals(List.of(playing), hot.listGames().stream().map(GameData::gameID).toList(),
+                "Only the game still in play should stay hot");
+        assertEquals(1, archiving.listGames().size(), "Listings should only cover the hot store");
+        GameData archived = archiving.getGame(over);
+        assertEquals(before.gameName(), archived.gameName());
+        assertEquals("white", archived.whiteUsername());
+        assertEquals("black", archived.blackUsername());
+        assertEquals(before.version(), archived.version());
+        assertEquals(before.game(), archived.game(), "The board should come back as it was stored");
+        assertTrue(archived.game().isGameOver());
+        assertEquals(1, archiving.stats().archive().reads());
+        assertNull(archiving.getGame(12345));
+    }
+
+    @Test
+    public void gamesStayHotUntilTheyHaveBeenOverLongEnough() throws Exception {
+        MemoryGameDAO hot = new MemoryGameDAO();
+        ArchivingGameDAO archiving = open(hot, 60 * 60 * 1000L, 100);
+        createGame(archiving, "over", true);
+
+        assertEquals(0, archiving.archiveFinished());
+        assertEquals(1, hot.listGames().size());
+        assertEquals(1, archiving.stats().waiting(), "The finished game should be waiting its turn");
+    }
+
+    @Test
+    public void gamesInUseStayHot() throws Exception {
+        MemoryGameDAO hot = new MemoryGameDAO();
+        ArchivingGameDAO archiving = open(hot, 0, 100);
+        int watched = createGame(archiving, "watched", true);
+        createGame(archiving, "over", true);
+        archiving.setInUse(gameID -> gameID == watched);
+
+        assertEquals(1, archiving.archiveFinished());
+        assertEquals(List.of(watched), hot.listGames().stream().map(GameData::gameID).toList());
+    }
+
+    @Test
+    public void gameSavedDuringTheSweepStaysHot() throws Exception {
+        LeavingGameDAO hot = new LeavingGameDAO();
+        ArchivingGameDAO archiving = open(hot, 0, 100);
+        int over = createGame(archiving, "over", true);
+        hot.leaveOnRead = over;
+
+        assertEquals(0, archiving.archiveFinished());
+
+        GameData current = archiving.getGame(over);
+        assertNotNull(hot.getGame(over), "A game written after it was read should not be deleted");
+        assertNull(current.whiteUsername(), "The player's leave should not be lost");
+        assertEquals(1, archiving.stats().waiting(), "The game should be tried again next sweep");
+
+        hot.leaveOnRead = -1;
+        assertEquals(1, archiving.archiveFinished());
+        assertNull(archiving.getGame(over).whiteUsername(), "The newer copy should be archived");
+    }
+
+    @Test
+    public void segmentsHoldAtMostTheConfiguredGames() throws Exception {
+        ArchivingGameDAO archiving = open(new MemoryGameDAO(), 0, 2);
+        for (int i = 0; i < 5; i++) {
+            createGame(archiving, "game" + i, true);
+        }
+
+        assertEquals(5, archiving.archiveFinished());
+        assertEquals(3, archiving.stats().archive().segments());
+        assertEquals(5, archiving.stats().archive().games());
+    }
+
+    @Test
+    public void archiveIsReadableAfterReopening() throws Exception {
+        ArchivingGameDAO archiving = open(new MemoryGameDAO(), 0, 100);
+        int over = createGame(archiving, "over", true);
+        archiving.archiveFinished();
+        archiving.close();
+
+        ArchivingGameDAO reopened = open(new MemoryGameDAO(), 0, 100);
+        assertEquals("over", reopened.getGame(over).gameName());
+    }
+
+    @Test
+    public void archivedGamesCannotBeChanged() throws Exception {
+        ArchivingGameDAO archiving = open(new MemoryGameDAO(), 0, 100);
+        int over = createGame(archiving, "over", true);
+        archiving.archiveFinished();
+
+        GameData archived = archiving.getGame(over);
+        assertFalse(archiving.tryUpdateGame(new GameData(over, "other", "black", "over", archived.game(),
+                archived.version())));
+        assertFalse(archiving.claimSeat(over, ChessGame.TeamColor.WHITE, "other"));
+        assertEquals("white", archiving.getGame(over).whiteUsername());
+    }
+
+    @Test
+    public void clearEmptiesBothTiers() throws Exception {
+        ArchivingGameDAO archiving = open(new MemoryGameDAO(), 0, 100);
+        int over = createGame(archiving, "over", true);
+        archiving.archiveFinished();
+        createGame(archiving, "playing", false);
+
+        archiving.clear();
+        assertNull(archiving.getGame(over));
+        assertTrue(archiving.listGames().isEmpty());
+        assertEquals(0, archiving.stats().archive().segments());
+    }
+
+    /**
+     * Has the white player leave right after the sweep reads their game
+     */
+    private static class LeavingGameDAO extends MemoryGameDAO {
+        private int leaveOnRead = -1;
+
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            GameData game = super.getGame(gameID);
+            if (gameID == leaveOnRead && game != null) {
+                leaveOnRead = -1;
+                updateGame(new GameData(gameID, null, game.blackUsername(), game.gameName(), game.game(),
+                        game.version()));
+            }
+            return game;
+        }
+    }
+}
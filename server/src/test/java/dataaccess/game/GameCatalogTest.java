@@ -0,0 +1,49 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameCatalogTest {
+
+    @Test
+    public void summaryChangesBumpVersion() throws DataAccessException {
+        GameCatalog catalog = new GameCatalog(new MemoryGameDAO());
+        long start = catalog.version();
+
+        int gameID = catalog.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        assertEquals(start + 1, catalog.version(), "Creating a game should change the catalog");
+
+        GameData game = catalog.getGame(gameID);
+        catalog.updateGame(new GameData(gameID, "white", null, "game", game.game()));
+        assertEquals(start + 2, catalog.version(), "Seating a player should change the catalog");
+
+        catalog.clear();
+        assertEquals(start + 3, catalog.version(), "Clearing should change the catalog");
+    }
+
+    @Test
+    public void onlyGameEndingMovesBumpVersion() throws Exception {
+        GameCatalog catalog = new GameCatalog(new MemoryGameDAO());
+        int gameID = catalog.createGame(new GameData(0, "white", "black", "game", new ChessGame()));
+        GameData game = catalog.getGame(gameID);
+        long before = catalog.version();
+        String tagBefore = catalog.versionTag();
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.game().makeMove(move);
+        catalog.appendMove(game, move);
+        assertEquals(before, catalog.version(), "A normal move leaves the summary unchanged");
+        assertEquals(tagBefore, catalog.versionTag());
+
+        game.game().setGameOver(true);
+        catalog.appendMove(game, move);
+        assertEquals(before + 1, catalog.version(), "A move that ends the game changes its status");
+        assertNotEquals(tagBefore, catalog.versionTag());
+    }
+}
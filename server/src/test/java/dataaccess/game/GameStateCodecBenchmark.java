@@ -0,0 +1,67 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+
+/**
+ * Compares encode and decode cost of the binary game codec against the Gson JSON it replaced.
+ * <p>
+ * The server pom pins exec:java to Main, so run this from the test classpath, e.g.
+ * {@code java -cp target/test-classes:target/classes:<test dependencies> dataaccess.game.GameStateCodecBenchmark}
+ */
+public class GameStateCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+
+        Gson gson = new Gson();
+        byte[] bytes = GameStateCodec.encode(game);
+        String json = gson.toJson(game);
+        System.out.printf("size: binary %d bytes, json %d bytes%n", bytes.length, json.length());
+
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += GameStateCodec.encode(game)[1];
+            checksum += GameStateCodec.decode(bytes).getHalfmoveClock();
+            checksum += gson.toJson(game).length();
+            checksum += gson.fromJson(json, ChessGame.class).getHalfmoveClock();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += GameStateCodec.encode(game)[1];
+        }
+        report("binary encode", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += GameStateCodec.decode(bytes).getHalfmoveClock();
+        }
+        report("binary decode", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += gson.toJson(game).length();
+        }
+        report("json encode", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += gson.fromJson(json, ChessGame.class).getHalfmoveClock();
+        }
+        report("json decode", System.nanoTime() - start);
+        System.out.println("checksum " + checksum);
+    }
+
+    private static void report(String name, long nanos) {
+        System.out.printf("%-14s %.0f ns/op%n", name, (double) nanos / MEASURED_ITERATIONS);
+    }
+}
@@ -0,0 +1,94 @@
+package dataaccess.game;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateCodecTest {
+
+    @Test
+    public void newGameRoundTrips() {
+        ChessGame game = new ChessGame();
+
+        byte[] bytes = GameStateCodec.encode(game);
+
+        assertEquals(GameStateCodec.ENCODED_LENGTH, bytes.length);
+        assertEquals(game, GameStateCodec.decode(bytes));
+    }
+
+    @Test
+    public void gameInProgressRoundTrips() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+
+        ChessGame decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+
+        assertEquals(game.getBoard(), decoded.getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        assertEquals(2, decoded.getHalfmoveClock());
+        assertFalse(decoded.isGameOver());
+    }
+
+    @Test
+    public void flagsAndClockRoundTrip() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.setGameOver(true);
+        game.setHalfmoveClock(300);
+
+        ChessGame decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+
+        assertEquals(board, decoded.getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        assertTrue(decoded.isGameOver());
+        assertEquals(300, decoded.getHalfmoveClock());
+    }
+
+    @Test
+    public void rejectsUnknownVersion() {
+        byte[] bytes = GameStateCodec.encode(new ChessGame());
+        bytes[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(bytes));
+    }
+
+    @Test
+    public void rejectsTruncatedState() {
+        byte[] bytes = new byte[10];
+        bytes[0] = GameStateCodec.VERSION;
+
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(bytes));
+    }
+
+    @Test
+    public void movesRoundTrip() {
+        ChessMove quiet = new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 8), new ChessPosition(8, 8), ChessPiece.PieceType.KNIGHT);
+        ChessMove corner = new ChessMove(new ChessPosition(8, 8), new ChessPosition(1, 1), ChessPiece.PieceType.PAWN);
+
+        for (ChessMove move : new ChessMove[]{quiet, promotion, corner}) {
+            short packed = GameStateCodec.packMove(move);
+            assertTrue(packed >= 0, "Packed moves should fit in 15 bits");
+            assertEquals(move, GameStateCodec.unpackMove(packed));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidPackedMove() {
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.unpackMove(7 << 12));
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.unpackMove(-1));
+    }
+}
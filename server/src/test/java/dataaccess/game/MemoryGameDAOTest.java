@@ -0,0 +1,87 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryGameDAOTest {
+
+    @Test
+    public void concurrentCreatesGetUniqueIDs() throws Exception {
+        MemoryGameDAO gameDAO = new MemoryGameDAO();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        ids.add(gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame())));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(4000, ids.size(), "Every create should get its own ID");
+        assertEquals(4000, gameDAO.listGames().size());
+        assertEquals(1, gameDAO.listGames().get(0).gameID(), "Games should list in ID order");
+    }
+
+    @Test
+    public void onlyOneConcurrentConditionalWriteWins() throws Exception {
+        MemoryGameDAO gameDAO = new MemoryGameDAO();
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData read = gameDAO.getGame(gameID);
+        AtomicInteger wins = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String player = "player" + t;
+                futures.add(pool.submit(() -> {
+                    GameData seated = new GameData(gameID, player, null, "game", read.game(), read.version());
+                    if (gameDAO.tryUpdateGame(seated)) {
+                        wins.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, wins.get(), "Writers that read the same version should not all succeed");
+        assertEquals(read.version() + 1, gameDAO.getGame(gameID).version());
+    }
+
+    @Test
+    public void updatingUnknownGameDoesNothing() throws DataAccessException {
+        MemoryGameDAO gameDAO = new MemoryGameDAO();
+
+        gameDAO.updateGame(new GameData(42, null, null, "ghost", new ChessGame()));
+
+        assertNull(gameDAO.getGame(42));
+        assertFalse(gameDAO.tryUpdateGame(new GameData(42, null, null, "ghost", new ChessGame())));
+    }
+}
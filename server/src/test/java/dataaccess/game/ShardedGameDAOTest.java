@@ -0,0 +1,141 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedGameDAOTest {
+
+    private ShardedGameDAO sharded;
+    private List<MemoryGameDAO> shards;
+
+    @AfterEach
+    public void tearDown() {
+        if (sharded != null) {
+            sharded.close();
+        }
+    }
+
+    private void open(int count) {
+        shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add(new MemoryGameDAO());
+        }
+        sharded = new ShardedGameDAO(new ArrayList<>(shards));
+    }
+
+    @Test
+    public void gamesSpreadAcrossShardsWithUniqueIDs() throws DataAccessException {
+        open(3);
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 9; i++) {
+            int gameID = sharded.createGame(new GameData(0, null, null, "game" + i, new ChessGame()));
+            assertTrue(ids.add(gameID), "IDs should be unique across shards");
+            assertEquals("game" + i, sharded.getGame(gameID).gameName());
+            assertEquals(gameID, sharded.getGame(gameID).gameID(), "Games should come back with their global ID");
+        }
+        for (MemoryGameDAO shard : shards) {
+            assertEquals(3, shard.listGames().size(), "New games should go to the shards in turn");
+        }
+        assertEquals(List.of(3L, 3L, 3L), sharded.stats().created());
+    }
+
+    @Test
+    public void firstShardKeepsItsIDs() throws DataAccessException {
+        open(2);
+        int gameID = sharded.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        assertEquals(shards.get(0).listGames().get(0).gameID(), gameID,
+                "An existing store should be able to become shard 0 without renumbering");
+    }
+
+    @Test
+    public void writesReachTheGamesShard() throws DataAccessException {
+        open(2);
+        sharded.createGame(new GameData(0, null, null, "first", new ChessGame()));
+        int gameID = sharded.createGame(new GameData(0, null, null, "second", new ChessGame()));
+
+        GameData game = sharded.getGame(gameID);
+        assertTrue(sharded.tryUpdateGame(new GameData(gameID, "white", null, "second", game.game(), game.version())));
+        assertFalse(sharded.tryUpdateGame(new GameData(gameID, "other", null, "second", game.game(), game.version())),
+                "A write against an old version should still be rejected");
+        assertTrue(sharded.claimSeat(gameID, ChessGame.TeamColor.BLACK, "black"));
+
+        GameData stored = shards.get(1).listGames().get(0);
+        assertEquals("white", stored.whiteUsername());
+        assertEquals("black", stored.blackUsername());
+        assertNull(shards.get(0).listGames().get(0).whiteUsername(), "The other shard should be untouched");
+    }
+
+    @Test
+    public void unknownShardsHaveNoGames() throws DataAccessException {
+        open(2);
+        int gameID = sharded.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        int onMissingShard = gameID | (5 << 27);
+        assertNull(sharded.getGame(onMissingShard));
+        assertFalse(sharded.claimSeat(onMissingShard, ChessGame.TeamColor.WHITE, "white"));
+        assertNull(sharded.getGame(-1));
+    }
+
+    @Test
+    public void listingsMergeShardsInIDOrder() throws DataAccessException {
+        open(3);
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(sharded.createGame(new GameData(0, null, null, "game" + i, new ChessGame())));
+        }
+        List<Integer> expected = created.stream().sorted().toList();
+
+        assertEquals(expected, sharded.listGames().stream().map(GameData::gameID).toList());
+
+        // Page through four at a time and get every game exactly once, in order
+        List<Integer> paged = new ArrayList<>();
+        int after = 0;
+        while (true) {
+            List<GameData> page = sharded.listGames(new GameQuery(after, 4, null, null, false));
+            if (page.isEmpty()) {
+                break;
+            }
+            assertTrue(page.size() <= 4);
+            page.forEach(game -> assertNull(game.game(), "Summaries should not carry boards"));
+            page.forEach(game -> paged.add(game.gameID()));
+            after = page.get(page.size() - 1).gameID();
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void listingsApplyFiltersOnEveryShard() throws DataAccessException {
+        open(2);
+        for (int i = 0; i < 6; i++) {
+            int gameID = sharded.createGame(new GameData(0, null, null, "game" + i, new ChessGame()));
+            if (i % 2 == 0) {
+                sharded.claimSeat(gameID, ChessGame.TeamColor.WHITE, "alice");
+            }
+        }
+
+        List<GameData> alices = sharded.listGames(new GameQuery(0, 0, null, "alice", false));
+        assertEquals(3, alices.size());
+        alices.forEach(game -> assertEquals("alice", game.whiteUsername()));
+    }
+
+    @Test
+    public void clearEmptiesEveryShard() throws DataAccessException {
+        open(2);
+        sharded.createGame(new GameData(0, null, null, "first", new ChessGame()));
+        sharded.createGame(new GameData(0, null, null, "second", new ChessGame()));
+        sharded.clear();
+        assertTrue(sharded.listGames().isEmpty());
+        for (MemoryGameDAO shard : shards) {
+            assertTrue(shard.listGames().isEmpty());
+        }
+    }
+}
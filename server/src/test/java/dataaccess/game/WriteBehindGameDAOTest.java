@@ -0,0 +1,294 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.DataAccessException;
+import dataaccess.IoExecutor;
+import dataaccess.UnitOfWork;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindGameDAOTest {
+
+    private WriteBehindGameDAO writeBehind;
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
+    @Test
+    public void movesAreCoalescedIntoOneWrite() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, true));
+        GameData game = createGame(store);
+
+        play(game, move(2, 5, 4, 5));
+        play(game, move(7, 5, 5, 5));
+        play(game, move(1, 7, 3, 6));
+
+        assertTrue(store.appended.isEmpty(), "Nothing should be written before a flush");
+        assertEquals(game.game(), writeBehind.getGame(game.gameID()).game(), "Reads should see pending moves");
+        assertEquals(1, writeBehind.stats().pendingGames());
+        assertEquals(3, writeBehind.stats().pendingMoves());
+
+        writeBehind.flush();
+
+        assertEquals(List.of(3), store.batchSizes, "All three moves should go in one batch");
+        assertEquals(game.game(), store.getGame(game.gameID()).game());
+        assertEquals(0, writeBehind.stats().pendingGames());
+    }
+
+    @Test
+    public void pendingStateIsACopy() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, true));
+        GameData game = createGame(store);
+        play(game, move(2, 5, 4, 5));
+
+        // Changing the caller's game after the write must not change what was queued
+        game.game().makeMove(move(7, 5, 5, 5));
+
+        assertEquals(ChessGame.TeamColor.BLACK, writeBehind.getGame(game.gameID()).game().getTeamTurn());
+    }
+
+    @Test
+    public void gameEndFlushesImmediately() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, true));
+        GameData game = createGame(store);
+
+        game.game().setGameOver(true);
+        writeBehind.updateGame(game);
+
+        assertTrue(store.awaitUpdates(1), "A finished game should be written without waiting for a flush");
+        assertTrue(store.getGame(game.gameID()).game().isGameOver());
+    }
+
+    @Test
+    public void moveCountTriggersFlush() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 2, false));
+        GameData game = createGame(store);
+
+        play(game, move(2, 5, 4, 5));
+        play(game, move(7, 5, 5, 5));
+
+        assertTrue(store.awaitAppends(1), "Reaching the move threshold should trigger a write");
+    }
+
+    @Test
+    public void closeDrainsPendingWrites() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, false));
+        GameData game = createGame(store);
+        play(game, move(2, 5, 4, 5));
+
+        writeBehind.close();
+
+        assertEquals(ChessGame.TeamColor.BLACK, store.getGame(game.gameID()).game().getTeamTurn());
+        assertThrows(DataAccessException.class, () -> writeBehind.updateGame(game));
+    }
+
+    @Test
+    public void failedWritesAreRetried() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, false));
+        GameData game = createGame(store);
+        play(game, move(2, 5, 4, 5));
+
+        store.failNext = true;
+        writeBehind.flush();
+        assertEquals(1, writeBehind.stats().failedFlushes());
+        assertEquals(1, writeBehind.stats().pendingMoves(), "The failed move should still be pending");
+
+        play(game, move(7, 5, 5, 5));
+        writeBehind.flush();
+
+        assertEquals(List.of(2), store.batchSizes, "The retry should carry both moves in order");
+        assertEquals(0, writeBehind.stats().pendingGames());
+    }
+
+    @Test
+    public void movesWrittenBeforeAFailureAreNotWrittenAgain() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, false));
+        GameData game = seatAndPlay(store);
+
+        store.failNextUpdate = true;
+        writeBehind.flush();
+        assertEquals(1, writeBehind.stats().failedFlushes());
+        assertEquals(0, writeBehind.stats().pendingMoves(), "The appended move should not be queued again");
+        assertEquals(1, writeBehind.stats().pendingGames(), "The seat change should still be pending");
+
+        writeBehind.flush();
+        assertEquals(List.of(move(2, 5, 4, 5)), store.appended, "Each move should be logged once");
+        assertEquals("white", store.getGame(game.gameID()).whiteUsername());
+        assertEquals(0, writeBehind.stats().pendingGames());
+    }
+
+    @Test
+    public void rolledBackMovesAreWrittenAgain() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        UnitOfWork rollsBack = new UnitOfWork() {
+            @Override
+            public <T> T run(IoExecutor.Call<T> work) throws DataAccessException {
+                int mark = store.appended.size();
+                try {
+                    return work.call();
+                } catch (DataAccessException e) {
+                    store.appended.subList(mark, store.appended.size()).clear();
+                    throw e;
+                }
+            }
+        };
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, false), rollsBack);
+        GameData game = seatAndPlay(store);
+
+        store.failNextUpdate = true;
+        writeBehind.flush();
+        assertTrue(store.appended.isEmpty());
+        assertEquals(1, writeBehind.stats().pendingMoves(), "A rolled back move should be queued again");
+
+        writeBehind.flush();
+        assertEquals(List.of(move(2, 5, 4, 5)), store.appended, "Each move should be logged once");
+        assertEquals("white", store.getGame(game.gameID()).whiteUsername());
+    }
+
+    @Test
+    public void conditionalWritesCheckPendingVersion() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, true));
+        GameData game = createGame(store);
+
+        GameData read = writeBehind.getGame(game.gameID());
+        GameData white = new GameData(game.gameID(), "white", null, "game", read.game(), read.version());
+        assertTrue(writeBehind.tryUpdateGame(white), "The first write against the stored version should be queued");
+
+        GameData black = new GameData(game.gameID(), null, "black", "game", read.game(), read.version());
+        assertFalse(writeBehind.tryUpdateGame(black), "A write against the version before the pending one should fail");
+
+        GameData current = writeBehind.getGame(game.gameID());
+        assertEquals(read.version() + 1, current.version());
+        assertTrue(writeBehind.tryUpdateGame(new GameData(game.gameID(), "white", "black", "game", current.game(),
+                current.version())));
+
+        writeBehind.flush();
+        GameData stored = store.getGame(game.gameID());
+        assertEquals("black", stored.blackUsername());
+        assertEquals(read.version() + 2, stored.version(), "Flushing should store the version readers were shown");
+    }
+
+    @Test
+    public void conditionalDeletesCheckPendingVersion() throws Exception {
+        RecordingGameDAO store = new RecordingGameDAO();
+        writeBehind = new WriteBehindGameDAO(store, new WriteBehindGameDAO.Settings(0, 0, true));
+        GameData game = createGame(store);
+
+        GameData read = writeBehind.getGame(game.gameID());
+        writeBehind.updateGame(new GameData(game.gameID(), "white", null, "game", read.game(), read.version()));
+        assertFalse(writeBehind.tryDeleteGame(read), "A game with a newer pending write should not be deleted");
+
+        GameData current = writeBehind.getGame(game.gameID());
+        assertTrue(writeBehind.tryDeleteGame(current));
+        writeBehind.flush();
+        assertNull(store.getGame(game.gameID()), "The pending write should not bring the game back");
+        assertNull(writeBehind.getGame(game.gameID()));
+        assertEquals(0, writeBehind.stats().pendingGames());
+    }
+
+    private GameData createGame(RecordingGameDAO store) throws DataAccessException {
+        int gameID = writeBehind.createGame(new GameData(0, null, null, "game", new ChessGame()));
+        return store.getGame(gameID);
+    }
+
+    /**
+     * Queues a move and a seat change for the same game, so a flush needs both kinds of write
+     */
+    private GameData seatAndPlay(RecordingGameDAO store) throws Exception {
+        GameData game = createGame(store);
+        play(game, move(2, 5, 4, 5));
+        GameData seated = new GameData(game.gameID(), "white", null, "game", game.game(), game.version());
+        writeBehind.updateGame(seated);
+        return seated;
+    }
+
+    private void play(GameData game, ChessMove move) throws InvalidMoveException, DataAccessException {
+        game.game().makeMove(move);
+        writeBehind.appendMove(game, move);
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    /**
+     * A memory store that records what reaches it
+     */
+    private static class RecordingGameDAO extends MemoryGameDAO {
+        private final List<ChessMove> appended = new ArrayList<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private int updates = 0;
+        private volatile boolean failNext = false;
+        private volatile boolean failNextUpdate = false;
+
+        @Override
+        public synchronized void appendMoves(GameData game, List<ChessMove> moves) throws DataAccessException {
+            failIfAsked();
+            appended.addAll(moves);
+            batchSizes.add(moves.size());
+            super.updateGame(game);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void updateGame(GameData game) throws DataAccessException {
+            failIfAsked();
+            if (failNextUpdate) {
+                failNextUpdate = false;
+                throw new DataAccessException("simulated outage");
+            }
+            updates++;
+            super.updateGame(game);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized GameData getGame(int gameID) throws DataAccessException {
+            return super.getGame(gameID);
+        }
+
+        private void failIfAsked() throws DataAccessException {
+            if (failNext) {
+                failNext = false;
+                throw new DataAccessException("simulated outage");
+            }
+        }
+
+        private synchronized boolean awaitUpdates(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (updates < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            return updates >= count;
+        }
+
+        private synchronized boolean awaitAppends(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (batchSizes.size() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            return batchSizes.size() >= count;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package server;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares move throughput and latency between {@link ThreadMode#PLATFORM} and
+ * {@link ThreadMode#VIRTUAL}.
+ * <p>
+ * Each simulated game is a white and a black WebSocket shuffling knights back and forth, so
+ * every command blocks its handler on a synced write to the file store. Latency runs from
+ * sending a move to the mover receiving the updated board. Both modes run in this process
+ * against a fresh store in a temporary directory; no database is needed.
+ * <p>
+ * The server pom pins exec:java to Main, so run this from the test classpath, e.g.
+ * {@code java -cp target/test-classes:target/classes:<test dependencies> server.ThreadModeLoadBenchmark [games] [seconds] [mode]}
+ */
+public class ThreadModeLoadBenchmark {
+
+    private static final Gson GSON = new Gson();
+    // Stays well clear of the fifty-move rule, then the pair starts a new game
+    private static final int PLIES_PER_GAME = 80;
+    private static final int REGISTRATION_THREADS = 4;
+    // Opening every game's connections at once can overflow the listen backlog on a small
+    // machine, which resets connections; that measures the harness, not the server
+    private static final Semaphore SETUP_GATE = new Semaphore(16);
+    private static final ChessMove[] SHUFFLE = {
+            move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7), move(6, 6, 8, 7),
+    };
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        ThreadMode[] modes = args.length > 2 ? new ThreadMode[] {ThreadMode.valueOf(args[2])} : ThreadMode.values();
+        for (ThreadMode mode : modes) {
+            run(mode, games, seconds);
+        }
+        System.exit(0);
+    }
+
+    private static void run(ThreadMode mode, int games, int seconds) throws Exception {
+        Path directory = Files.createTempDirectory("thread-mode-load");
+        System.setProperty("chess.storage.dir", directory.toString());
+        System.setProperty("chess.storage.sync", "true");
+        Server server = new Server(StorageMode.FILE, mode);
+        int port = server.run(0);
+        ExecutorService players = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // Warm up briefly, then measure a fresh run
+            drive(port, players, Math.min(games, 50), 2, 0);
+            Result result = drive(port, players, games, seconds, 1000 * games);
+            long[] latencies = result.latencies();
+            Arrays.sort(latencies);
+            System.out.printf("%-8s games=%-5d %,8.0f moves/s  p50 %6.2f ms  p99 %7.2f ms  errors %d%n",
+                    mode, games, latencies.length / (double) seconds,
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6, result.errors());
+        } finally {
+            players.shutdownNow();
+            server.stop();
+        }
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+    private static Result drive(int port, ExecutorService players, int games, int seconds, int userOffset)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        // Registration hashes passwords, so it happens a few at a time before the clock starts
+        List<String[]> tokens = new ArrayList<>();
+        ExecutorService registrations = Executors.newFixedThreadPool(REGISTRATION_THREADS);
+        try {
+            List<Future<String[]>> accounts = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                int pair = userOffset + i;
+                accounts.add(registrations.submit(() -> new String[] {
+                        register(client, port, "white" + pair), register(client, port, "black" + pair)}));
+            }
+            for (Future<String[]> account : accounts) {
+                tokens.add(account.get());
+            }
+        } finally {
+            registrations.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            int pair = userOffset + i;
+            String[] sides = tokens.get(i);
+            futures.add(players.submit(() -> playUntil(client, port, pair, sides[0], sides[1], deadline)));
+        }
+        List<long[]> all = new ArrayList<>();
+        long errors = 0;
+        int total = 0;
+        for (Future<Result> future : futures) {
+            Result result = future.get();
+            all.add(result.latencies());
+            total += result.latencies().length;
+            errors += result.errors();
+        }
+        long[] latencies = new long[total];
+        int at = 0;
+        for (long[] part : all) {
+            System.arraycopy(part, 0, latencies, at, part.length);
+            at += part.length;
+        }
+        return new Result(latencies, errors);
+    }
+
+    private static Result playUntil(HttpClient client, int port, int pair, String white, String black,
+                                    long deadline) throws Exception {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        while (System.nanoTime() < deadline) {
+            int gameID;
+            Player[] sides;
+            SETUP_GATE.acquire();
+            try {
+                gameID = createGame(client, port, white, "load" + pair);
+                join(client, port, white, "WHITE", gameID);
+                join(client, port, black, "BLACK", gameID);
+                sides = new Player[] {new Player(client, port, white, gameID), new Player(client, port, black, gameID)};
+            } finally {
+                SETUP_GATE.release();
+            }
+            try {
+                for (int ply = 0; ply < PLIES_PER_GAME && System.nanoTime() < deadline; ply++) {
+                    Player mover = sides[ply % 2];
+                    long start = System.nanoTime();
+                    mover.send(new MakeMoveCommand(SHUFFLE[ply % SHUFFLE.length], mover.authToken, gameID));
+                    // The connect and every move so far each sent this socket one board
+                    if (!mover.awaitBoards(ply + 2)) {
+                        errors++;
+                        break;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+            } finally {
+                for (Player side : sides) {
+                    side.close();
+                }
+            }
+        }
+        return new Result(Arrays.copyOf(latencies, count), errors);
+    }
+
+    /**
+     * One side's socket, counting the boards it has been sent
+     */
+    private static final class Player implements WebSocket.Listener {
+        private final String authToken;
+        private final LinkedBlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        private final StringBuilder partial = new StringBuilder();
+        private final WebSocket socket;
+        private int boards = 0;
+
+        private Player(HttpClient client, int port, String authToken, int gameID) throws Exception {
+            this.authToken = authToken;
+            socket = client.newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + port + "/ws"), this)
+                    .get(30, TimeUnit.SECONDS);
+            send(new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID));
+            if (!awaitBoards(1)) {
+                throw new IllegalStateException("Failed to connect to game " + gameID);
+            }
+        }
+
+        private void send(UserGameCommand command) throws Exception {
+            socket.sendText(GSON.toJson(command), true).get(30, TimeUnit.SECONDS);
+        }
+
+        /**
+         * @return false if the server sent an error first
+         */
+        private boolean awaitBoards(int target) throws InterruptedException {
+            while (boards < target) {
+                String message = messages.poll(30, TimeUnit.SECONDS);
+                if (message == null) {
+                    return false;
+                }
+                String type = GSON.fromJson(message, JsonObject.class).get("serverMessageType").getAsString();
+                if (type.equals("LOAD_GAME")) {
+                    boards++;
+                } else if (type.equals("ERROR")) {
+                    System.err.println(message);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void close() {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                messages.add(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+
+    private static String register(HttpClient client, int port, String username) throws Exception {
+        var body = GSON.toJson(new JsonBody(username, "password", username + "@example.com"));
+        JsonObject result = call(client, HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        return result.get("authToken").getAsString();
+    }
+
+    private static int createGame(HttpClient client, int port, String authToken, String name) throws Exception {
+        JsonObject result = call(client, HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game"))
+                .header("Authorization", authToken)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"gameName\":\"" + name + "\"}")));
+        return result.get("gameID").getAsInt();
+    }
+
+    private static void join(HttpClient client, int port, String authToken, String color, int gameID) throws Exception {
+        call(client, HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game"))
+                .header("Authorization", authToken)
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"playerColor\":\"" + color + "\",\"gameID\":" + gameID + "}")));
+    }
+
+    private static JsonObject call(HttpClient client, HttpRequest.Builder request) throws Exception {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Request failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body().isEmpty() ? new JsonObject() : GSON.fromJson(response.body(), JsonObject.class);
+    }
+
+    private record JsonBody(String username, String password, String email) {
+    }
+
+    private static ChessMove move(int fromRow, int fromColumn, int toRow, int toColumn) {
+        return new ChessMove(new ChessPosition(fromRow, fromColumn), new ChessPosition(toRow, toColumn), null);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
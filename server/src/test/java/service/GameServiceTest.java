@@ -1,5 +1,7 @@
 package service;
 
+import dataaccess.DataAccessException;
+import dataaccess.IoExecutor;
 import dataaccess.auth.AuthDAO;
 import dataaccess.auth.MemoryAuthDAO;
 import dataaccess.game.GameDAO;
@@ -11,12 +13,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import requests.CreateGameRequest;
 import requests.JoinGameRequest;
+import requests.ListGamesRequest;
 import requests.RegisterRequest;
 import requests.LoginRequest;
 import results.CreateGameResult;
 import results.ListGamesResult;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -111,6 +116,75 @@ public class GameServiceTest {
     }
 
 
+    @Test
+    public void testListGamesOmitsBoards() throws Exception {
+        gameService.createGame(new CreateGameRequest("Game 1"), validAuthToken);
+
+        ListGamesResult summaries = gameService.listGames(validAuthToken);
+        assertNull(summaries.games().get(0).game());
+        assertNull(summaries.nextCursor());
+
+        ListGamesResult full = gameService.listGames(
+                new ListGamesRequest(null, null, null, null, true), validAuthToken);
+        assertNotNull(full.games().get(0).game());
+    }
+
+    @Test
+    public void testListGamesPages() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            gameService.createGame(new CreateGameRequest("Game " + i), validAuthToken);
+        }
+
+        ListGamesResult first = gameService.listGames(new ListGamesRequest(null, 2, null, null, null), validAuthToken);
+        assertEquals(List.of("Game 1", "Game 2"), first.games().stream().map(GameData::gameName).toList());
+        assertNotNull(first.nextCursor());
+
+        ListGamesResult second = gameService.listGames(
+                new ListGamesRequest(first.nextCursor(), 2, null, null, null), validAuthToken);
+        assertEquals(List.of("Game 3", "Game 4"), second.games().stream().map(GameData::gameName).toList());
+
+        ListGamesResult last = gameService.listGames(
+                new ListGamesRequest(second.nextCursor(), 2, null, null, null), validAuthToken);
+        assertEquals(List.of("Game 5"), last.games().stream().map(GameData::gameName).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    public void testListGamesFilters() throws Exception {
+        userService.register(new RegisterRequest("other", "pass", "other@example.com"));
+        String otherToken = userService.login(new LoginRequest("other", "pass")).authToken();
+        int open = gameService.createGame(new CreateGameRequest("Open"), validAuthToken).gameID();
+        int full = gameService.createGame(new CreateGameRequest("Full"), validAuthToken).gameID();
+        int finished = gameService.createGame(new CreateGameRequest("Finished"), validAuthToken).gameID();
+        gameService.joinGame(new JoinGameRequest("WHITE", open), otherToken);
+        gameService.joinGame(new JoinGameRequest("WHITE", full), validAuthToken);
+        gameService.joinGame(new JoinGameRequest("BLACK", full), otherToken);
+        GameData done = gameDAO.getGame(finished);
+        done.game().setGameOver(true);
+        gameDAO.updateGame(done);
+
+        assertEquals(List.of(open), idsFor(new ListGamesRequest(null, null, "open", null, null)));
+        assertEquals(List.of(full), idsFor(new ListGamesRequest(null, null, "in_progress", null, null)));
+        assertEquals(List.of(finished), idsFor(new ListGamesRequest(null, null, "FINISHED", null, null)));
+        assertEquals(List.of(open, full), idsFor(new ListGamesRequest(null, null, null, "other", null)));
+    }
+
+    @Test
+    public void testListGamesNegativeBadRequest() {
+        for (var request : List.of(
+                new ListGamesRequest(null, -1, null, null, null),
+                new ListGamesRequest(-5, null, null, null, null),
+                new ListGamesRequest(null, null, "abandoned", null, null))) {
+            ServiceException e = assertThrows(ServiceException.class,
+                    () -> gameService.listGames(request, validAuthToken));
+            assertTrue(e.getMessage().contains("bad request"));
+        }
+    }
+
+    private List<Integer> idsFor(ListGamesRequest request) throws ServiceException {
+        return gameService.listGames(request, validAuthToken).games().stream().map(GameData::gameID).toList();
+    }
+
     @Test
     public void testJoinGamePositiveBothPlayers() throws Exception {
         userService.register(new RegisterRequest("hello", "pass1", "user1@example.com"));
@@ -129,6 +203,39 @@ public class GameServiceTest {
         assertEquals("there", game.blackUsername());
     }
 
+    @Test
+    public void testJoinGameRetriesAfterConcurrentJoin() throws Exception {
+        userService.register(new RegisterRequest("rival", "pass", "rival@example.com"));
+        int gameID = gameService.createGame(new CreateGameRequest("Contested"), validAuthToken).gameID();
+        // Seats the rival as black between this join's read and its write
+        GameDAO racingDAO = new MemoryGameDAO() {
+            private boolean raced = false;
+
+            @Override
+            public boolean tryUpdateGame(GameData game) throws DataAccessException {
+                if (!raced) {
+                    raced = true;
+                    GameData current = gameDAO.getGame(game.gameID());
+                    gameDAO.updateGame(new GameData(current.gameID(), current.whiteUsername(), "rival",
+                            current.gameName(), current.game(), current.version()));
+                }
+                return gameDAO.tryUpdateGame(game);
+            }
+
+            @Override
+            public GameData getGame(int gameID) throws DataAccessException {
+                return gameDAO.getGame(gameID);
+            }
+        };
+        GameService racingService = new GameService(racingDAO, authDAO);
+
+        racingService.joinGame(new JoinGameRequest("WHITE", gameID), validAuthToken);
+
+        GameData game = gameDAO.getGame(gameID);
+        assertEquals("testuser", game.whiteUsername());
+        assertEquals("rival", game.blackUsername(), "The concurrent join should not be overwritten");
+    }
+
     @Test
     public void testJoinGameNegativeUnauthorized() throws Exception {
         CreateGameResult createResult = gameService.createGame(new CreateGameRequest("Test Game"), validAuthToken);
@@ -159,4 +266,38 @@ public class GameServiceTest {
         }
     }
 
+    @Test
+    public void testAsyncJoinRunsOffCallerThread() throws Exception {
+        CreateGameResult createResult = gameService.createGame(new CreateGameRequest("Test Game"), validAuthToken);
+        Thread caller = Thread.currentThread();
+        Thread[] writer = new Thread[1];
+        GameDAO recordingDAO = new MemoryGameDAO() {
+            @Override
+            public boolean tryUpdateGame(GameData game) throws DataAccessException {
+                writer[0] = Thread.currentThread();
+                return gameDAO.tryUpdateGame(game);
+            }
+
+            @Override
+            public GameData getGame(int gameID) throws DataAccessException {
+                return gameDAO.getGame(gameID);
+            }
+        };
+
+        try (IoExecutor io = new IoExecutor(new IoExecutor.Settings(2, 10))) {
+            GameService asyncService = new GameService(recordingDAO, authDAO, io);
+            CompletableFuture<Void> join = asyncService.joinGameAsync(
+                    new JoinGameRequest("BLACK", createResult.gameID()), validAuthToken);
+            join.get(5, TimeUnit.SECONDS);
+
+            CompletableFuture<Void> taken = asyncService.joinGameAsync(
+                    new JoinGameRequest("BLACK", createResult.gameID()), validAuthToken);
+            ServiceException e = ServiceException.from(assertThrows(Exception.class, () -> taken.get(5, TimeUnit.SECONDS)));
+            assertTrue(e.getMessage().contains("already taken"));
+        }
+
+        assertEquals("testuser", gameDAO.getGame(createResult.gameID()).blackUsername());
+        assertNotNull(writer[0]);
+        assertNotSame(caller, writer[0], "The write should run on an I/O thread");
+    }
 }
@@ -0,0 +1,62 @@
+package service;
+
+import dataaccess.IoExecutor;
+import dataaccess.UnitOfWork;
+import dataaccess.auth.MemoryAuthDAO;
+import dataaccess.user.MemoryUserDAO;
+import org.junit.jupiter.api.Test;
+import requests.RegisterRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+
+    @Test
+    public void hashesUseTheConfiguredCost() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(5, 1, 10))) {
+            String hash = hasher.hash("secret").get(5, TimeUnit.SECONDS);
+            assertTrue(hash.startsWith("$2a$05$"), "Expected cost 5 in " + hash);
+            assertTrue(hasher.verify("secret", hash).get(5, TimeUnit.SECONDS));
+            assertFalse(hasher.verify("wrong", hash).get(5, TimeUnit.SECONDS));
+            assertEquals(3, hasher.stats().completed());
+        }
+    }
+
+    @Test
+    public void hashesPastTheQueueAreRejected() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(10, 1, 1))) {
+            // Each hash takes far longer than submitting them all, so one runs, one waits and the rest are turned away
+            List<CompletableFuture<String>> hashes = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                hashes.add(hasher.hash("secret"));
+            }
+
+            CompletableFuture<String> last = hashes.get(hashes.size() - 1);
+            ExecutionException e = assertThrows(ExecutionException.class, last::get);
+            assertInstanceOf(ServiceException.class, e.getCause());
+            assertTrue(e.getCause().getMessage().contains(IoExecutor.BUSY_MESSAGE));
+            assertTrue(hasher.stats().rejected() > 0);
+
+            hashes.get(0).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void busyHasherFailsRegistration() throws Exception {
+        var userService = new UserService(new MemoryUserDAO(), new MemoryAuthDAO(),
+                IoExecutor.direct(), new PasswordHasher(new PasswordHasher.Settings(10, 1, 1)), UnitOfWork.NONE);
+        List<CompletableFuture<?>> registrations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            registrations.add(userService.registerAsync(new RegisterRequest("user" + i, "password", "e@mail.com")));
+        }
+        ExecutionException e = assertThrows(ExecutionException.class, () -> registrations.get(9).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains(IoExecutor.BUSY_MESSAGE));
+        registrations.get(0).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,131 @@
+package websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.Test;
+import websocket.messages.NotificationMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTest {
+
+    private final List<Connection> removed = new ArrayList<>();
+    private final ConnectionManager connections = new ConnectionManager(removed::add);
+
+    @Test
+    public void broadcastReachesOnlyTheGamesSubscribers() {
+        FakeSession alice = new FakeSession();
+        FakeSession bob = new FakeSession();
+        FakeSession carol = new FakeSession();
+        connections.add("alice", 1, alice.proxy());
+        connections.add("bob", 1, bob.proxy());
+        connections.add("carol", 2, carol.proxy());
+
+        connections.broadcast("alice", new NotificationMessage("move"), 1);
+
+        assertEquals(0, alice.received.size(), "The excluded user should not be sent the message");
+        assertEquals(1, bob.received.size());
+        assertEquals(0, carol.received.size(), "Other games should not be touched");
+    }
+
+    @Test
+    public void aUserCanConnectFromSeveralSessions() {
+        FakeSession phone = new FakeSession();
+        FakeSession laptop = new FakeSession();
+        FakeSession bob = new FakeSession();
+        connections.add("alice", 1, phone.proxy());
+        connections.add("alice", 1, laptop.proxy());
+        connections.add("bob", 1, bob.proxy());
+
+        connections.broadcast("bob", new NotificationMessage("move"), 1);
+        assertEquals(1, phone.received.size());
+        assertEquals(1, laptop.received.size(), "A second session should not replace the first");
+
+        connections.remove(phone.proxy(), 1);
+        connections.broadcast("bob", new NotificationMessage("move"), 1);
+        assertEquals(1, phone.received.size(), "A session that left should get nothing more");
+        assertEquals(2, laptop.received.size(), "Leaving on one session should keep the others");
+    }
+
+    @Test
+    public void aSessionCanWatchSeveralGames() {
+        FakeSession alice = new FakeSession();
+        connections.add("alice", 1, alice.proxy());
+        connections.add("alice", 2, alice.proxy());
+
+        connections.broadcast("", new NotificationMessage("one"), 1);
+        connections.broadcast("", new NotificationMessage("two"), 2);
+        assertEquals(2, alice.received.size());
+
+        connections.removeSession(alice.proxy());
+        assertEquals(2, removed.size(), "Closing the socket should end both connections");
+        assertEquals(0, connections.subscribers(1));
+        assertEquals(0, connections.subscribers(2));
+    }
+
+    @Test
+    public void reconnectingToTheSameGameReplacesTheConnection() {
+        FakeSession alice = new FakeSession();
+        connections.add("alice", 1, alice.proxy());
+        connections.add("alice", 1, alice.proxy());
+
+        assertEquals(1, connections.subscribers(1));
+        assertEquals(1, removed.size());
+        connections.broadcast("", new NotificationMessage("move"), 1);
+        assertEquals(1, alice.received.size(), "The session should be sent each message once");
+    }
+
+    @Test
+    public void closedAndFailingSessionsAreDropped() {
+        FakeSession closed = new FakeSession();
+        FakeSession failing = new FakeSession();
+        FakeSession healthy = new FakeSession();
+        connections.add("closed", 1, closed.proxy());
+        connections.add("failing", 1, failing.proxy());
+        connections.add("healthy", 1, healthy.proxy());
+        closed.open = false;
+        failing.failSends = true;
+
+        connections.broadcast("", new NotificationMessage("move"), 1);
+
+        assertEquals(1, healthy.received.size(), "One bad session should not stop the others");
+        assertEquals(1, connections.subscribers(1));
+        assertEquals(2, removed.size());
+    }
+
+    private static class FakeSession {
+        final List<String> received = new ArrayList<>();
+        boolean open = true;
+        boolean failSends = false;
+        private Session proxy;
+
+        Session proxy() {
+            if (proxy == null) {
+                RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                        new Class<?>[]{RemoteEndpoint.class}, (endpoint, method, args) -> {
+                            if (method.getName().equals("sendString")) {
+                                if (failSends) {
+                                    throw new IOException("Socket gone");
+                                }
+                                received.add((String) args[0]);
+                            }
+                            return null;
+                        });
+                proxy = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                        new Class<?>[]{Session.class}, (session, method, args) -> switch (method.getName()) {
+                            case "isOpen" -> open;
+                            case "getRemote" -> remote;
+                            case "hashCode" -> System.identityHashCode(session);
+                            case "equals" -> session == args[0];
+                            default -> null;
+                        });
+            }
+            return proxy;
+        }
+    }
+}
@@ -2,7 +2,11 @@ package chess;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -16,6 +20,12 @@ public class ChessGame {
     private ChessBoard board;
     private TeamColor teamTurn;
     private boolean gameOver = false;
+    // Half-moves since the last capture or pawn move, for the fifty-move rule
+    private int halfmoveClock = 0;
+
+    // Not part of the game state, so left out of serialization and equality
+    private transient boolean moveCacheEnabled = true;
+    private transient LegalMoveCache moveCache;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -23,6 +33,28 @@ public class ChessGame {
         this.teamTurn = TeamColor.WHITE;
     }
 
+    /**
+     * Creates a game around an existing board without setting up the starting position
+     *
+     * @param board    the board to play on, used directly rather than copied
+     * @param teamTurn the team to move next
+     */
+    public ChessGame(ChessBoard board, TeamColor teamTurn) {
+        this.board = board;
+        this.teamTurn = teamTurn;
+    }
+
+    /**
+     * Creates an independent copy of a game, so a move can be tried without changing the original
+     */
+    public ChessGame(ChessGame other) {
+        this.board = new ChessBoard(other.board);
+        this.teamTurn = other.teamTurn;
+        this.gameOver = other.gameOver;
+        this.halfmoveClock = other.halfmoveClock;
+        this.moveCacheEnabled = other.moveCacheEnabled;
+    }
+
     @Override
     public String toString() {
         return "ChessGame{" +
@@ -113,6 +145,28 @@ public class ChessGame {
         return gameOver;
     }
 
+    /**
+     * @return the number of half-moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Fifty moves by each side without a capture or pawn move let either player claim a draw.
+     * The game goes on unless someone does; only {@link GameStatus#DRAW_SEVENTY_FIVE_MOVE}
+     * ends it on its own.
+     *
+     * @return True if a draw can be claimed under the fifty-move rule
+     */
+    public boolean canClaimFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -121,6 +175,29 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Enum identifying the state of the game for the team whose turn it is
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        DRAW_INSUFFICIENT_MATERIAL,
+        /**
+         * Seventy-five moves by each side without a capture or pawn move, which ends the game
+         * without anyone claiming it
+         */
+        DRAW_SEVENTY_FIVE_MOVE;
+
+        /**
+         * @return True if no more moves can be played from this status
+         */
+        public boolean isGameOver() {
+            return this != ONGOING && this != CHECK;
+        }
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -133,6 +210,14 @@ public class ChessGame {
         if(piece == null){
             return null;
         }
+        LegalMoveCache cache = currentMoveCache();
+        if (cache == null) {
+            return computeValidMoves(startPosition, piece);
+        }
+        return cachedMovesForTeam(cache, piece.getTeamColor()).getOrDefault(startPosition, List.of());
+    }
+
+    private List<ChessMove> computeValidMoves(ChessPosition startPosition, ChessPiece piece) {
         Collection<ChessMove> possibleMoves = piece.pieceMoves(board, startPosition);
         List<ChessMove> valid = new ArrayList<>();
 
@@ -152,7 +237,7 @@ public class ChessGame {
             }
         }
         return valid;
-    };
+    }
 
     /**
      * Makes a move in a chess game
@@ -169,6 +254,12 @@ public class ChessGame {
         if(getTeamTurn() != piece.getTeamColor()){
             throw new InvalidMoveException("Not your turn");
         }
+        boolean capture = board.getPiece(move.getEndPosition()) != null;
+        if (capture || piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
         board.addPiece(move.getEndPosition(), piece);
         board.addPiece(move.getStartPosition(), null);
 
@@ -178,7 +269,7 @@ public class ChessGame {
         }
 
         teamTurn = teamTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
-
+        moveCache = null;
     }
 
     /**
@@ -188,7 +279,11 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        return isInCheck(board, teamColor);
+        LegalMoveCache cache = currentMoveCache();
+        if (cache == null) {
+            return isInCheck(board, teamColor);
+        }
+        return cache.inCheck.computeIfAbsent(teamColor, team -> isInCheck(board, team));
     }
 
     /**
@@ -198,27 +293,161 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        return isInCheck(teamColor) && validMovesForTeam(teamColor).isEmpty();
+        return isInCheck(teamColor) && !hasValidMoves(teamColor);
+    }
+
+    private boolean hasValidMoves(TeamColor team) {
+        LegalMoveCache cache = currentMoveCache();
+        if (cache != null) {
+            return !cachedMovesForTeam(cache, team).isEmpty();
+        }
+        return anyPieceCanMove(team);
     }
 
-    private Collection<ChessMove> validMovesForTeam(TeamColor team) {
-        List<ChessMove> allValid = new ArrayList<>();
+    private boolean anyPieceCanMove(TeamColor team) {
         for (int row = 1; row <= 8; row++) {
             for (int col = 1; col <= 8; col++) {
                 ChessPosition position = new ChessPosition(row, col);
                 ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == team) {
-                    Collection<ChessMove> moves = validMoves(position);
-                    if (moves != null) {
-                        allValid.addAll(moves);
-                    }
+                if (piece != null && piece.getTeamColor() == team && !computeValidMoves(position, piece).isEmpty()) {
+                    return true;
                 }
             }
         }
-        return allValid;
+        return false;
     }
 
+    /**
+     * Generates every legal move for a team once per board and keeps them in the cache.
+     * Only pieces with at least one legal move get an entry.
+     */
+    private Map<ChessPosition, List<ChessMove>> cachedMovesForTeam(LegalMoveCache cache, TeamColor team) {
+        Map<ChessPosition, List<ChessMove>> moves = cache.moves.get(team);
+        if (moves != null) {
+            return moves;
+        }
+        moves = new HashMap<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null || piece.getTeamColor() != team) {
+                    continue;
+                }
+                List<ChessMove> pieceMoves = computeValidMoves(position, piece);
+                if (!pieceMoves.isEmpty()) {
+                    moves.put(position, Collections.unmodifiableList(pieceMoves));
+                }
+            }
+        }
+        cache.moves.put(team, moves);
+        return moves;
+    }
+
+    /**
+     * @return the cache for the current board and turn, or null when caching is off
+     */
+    private LegalMoveCache currentMoveCache() {
+        if (!moveCacheEnabled) {
+            return null;
+        }
+        // The board is handed out by getBoard(), so check it has not been edited since
+        if (moveCache == null || !moveCache.matches(board, teamTurn)) {
+            moveCache = new LegalMoveCache(new ChessBoard(board), teamTurn);
+        }
+        return moveCache;
+    }
+
+    /**
+     * Turns the legal move cache on or off. It is on by default; turning it off
+     * recomputes legal moves on every query.
+     *
+     * @param enabled whether to cache legal moves per position
+     */
+    public void setMoveCacheEnabled(boolean enabled) {
+        moveCacheEnabled = enabled;
+        moveCache = null;
+    }
+
+    /**
+     * Legal moves and check state computed for one board contents and side to move.
+     */
+    private static final class LegalMoveCache {
+        private final ChessBoard board;
+        private final TeamColor teamTurn;
+        private final Map<TeamColor, Map<ChessPosition, List<ChessMove>>> moves = new EnumMap<>(TeamColor.class);
+        private final Map<TeamColor, Boolean> inCheck = new EnumMap<>(TeamColor.class);
+
+        private LegalMoveCache(ChessBoard board, TeamColor teamTurn) {
+            this.board = board;
+            this.teamTurn = teamTurn;
+        }
+
+        private boolean matches(ChessBoard currentBoard, TeamColor currentTurn) {
+            return teamTurn == currentTurn && board.equals(currentBoard);
+        }
+    }
 
+    /**
+     * Works out the status of the game for the team whose turn it is in a single pass.
+     * Check is computed once, and move generation stops at the first legal move found.
+     *
+     * @return the current game status
+     */
+    public GameStatus status() {
+        boolean inCheck = isInCheck(teamTurn);
+        if (!hasAnyValidMove(teamTurn)) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (hasInsufficientMaterial()) {
+            return GameStatus.DRAW_INSUFFICIENT_MATERIAL;
+        }
+        if (halfmoveClock >= 150) {
+            return GameStatus.DRAW_SEVENTY_FIVE_MOVE;
+        }
+        return inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+    }
+
+    private boolean hasAnyValidMove(TeamColor team) {
+        LegalMoveCache cache = currentMoveCache();
+        if (cache != null && cache.moves.containsKey(team)) {
+            return !cache.moves.get(team).isEmpty();
+        }
+        return anyPieceCanMove(team);
+    }
+
+    /**
+     * Neither side can mate with only kings plus a single minor piece, or with
+     * bishops that all stand on squares of the same color.
+     */
+    private boolean hasInsufficientMaterial() {
+        int knights = 0;
+        int bishops = 0;
+        int bishopSquareColors = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    continue;
+                }
+                switch (piece.getPieceType()) {
+                    case KING -> { }
+                    case KNIGHT -> knights++;
+                    case BISHOP -> {
+                        bishops++;
+                        bishopSquareColors |= 1 << ((row + col) % 2);
+                    }
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        }
+        if (knights + bishops <= 1) {
+            return true;
+        }
+        return knights == 0 && Integer.bitCount(bishopSquareColors) == 1;
+    }
 
     /**
      * Determines if the given team is in stalemate, which here is defined as having
@@ -228,7 +457,7 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        return !isInCheck(teamColor) && validMovesForTeam(teamColor).isEmpty();
+        return !isInCheck(teamColor) && !hasValidMoves(teamColor);
     }
 
     /**
@@ -238,6 +467,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        moveCache = null;
     }
 
     /**
@@ -0,0 +1,272 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of a chess game packed into bitboards.
+ * <p>
+ * Each side keeps one bitboard per piece type (bit 0 is a1, bit 63 is h8). A position is
+ * never modified once built, so it can be cached and handed between threads freely.
+ * {@link #play(ChessMove)} returns a new position and reuses the untouched side's
+ * bitboards, so a quiet move only copies the mover's six longs.
+ */
+public final class Position {
+
+    private static final int TYPES = ChessPiece.PieceType.values().length;
+    private static final ChessPiece[][] PIECES = new ChessPiece[2][TYPES];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[color.ordinal()][type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private static final Position INITIAL = of(new ChessGame());
+
+    // Indexed by PieceType ordinal; the arrays are shared between positions and never written
+    private final long[] white;
+    private final long[] black;
+    private final ChessGame.TeamColor teamTurn;
+    private final boolean gameOver;
+    private final int halfmoveClock;
+
+    private Position(long[] white, long[] black, ChessGame.TeamColor teamTurn, boolean gameOver, int halfmoveClock) {
+        this.white = white;
+        this.black = black;
+        this.teamTurn = teamTurn;
+        this.gameOver = gameOver;
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return the standard starting position with white to move
+     */
+    public static Position initial() {
+        return INITIAL;
+    }
+
+    /**
+     * Packs the current state of a game
+     *
+     * @param game the game to copy, which is left untouched
+     * @return a position matching the game's board, turn, game-over flag and halfmove clock
+     */
+    public static Position of(ChessGame game) {
+        long[] white = new long[TYPES];
+        long[] black = new long[TYPES];
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    continue;
+                }
+                long[] side = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? white : black;
+                side[piece.getPieceType().ordinal()] |= 1L << square(row, col);
+            }
+        }
+        return new Position(white, black, game.getTeamTurn(), game.isGameOver(), game.getHalfmoveClock());
+    }
+
+    /**
+     * Builds a new mutable game in this position
+     */
+    public ChessGame toGame() {
+        ChessBoard board = new ChessBoard();
+        placePieces(board, ChessGame.TeamColor.WHITE, white);
+        placePieces(board, ChessGame.TeamColor.BLACK, black);
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(teamTurn);
+        game.setGameOver(gameOver);
+        game.setHalfmoveClock(halfmoveClock);
+        return game;
+    }
+
+    /**
+     * Applies a move and returns the resulting position. Legality is not checked here;
+     * validate the move with {@link ChessGame#validMoves(ChessPosition)} first.
+     *
+     * @param move the move to play for the side to move
+     * @return the position after the move, with the turn passed to the other side
+     * @throws IllegalArgumentException if the side to move has no piece on the start square
+     */
+    public Position play(ChessMove move) {
+        int from = square(move.getStartPosition());
+        int to = square(move.getEndPosition());
+        long fromBit = 1L << from;
+        long toBit = 1L << to;
+
+        long[] mover = teamTurn == ChessGame.TeamColor.WHITE ? white : black;
+        long[] opponent = teamTurn == ChessGame.TeamColor.WHITE ? black : white;
+
+        int movingType = typeAt(mover, fromBit);
+        if (movingType < 0) {
+            throw new IllegalArgumentException("No " + teamTurn + " piece at " + move.getStartPosition());
+        }
+
+        long[] newMover = mover.clone();
+        newMover[movingType] &= ~fromBit;
+        int placedType = move.getPromotionPiece() != null ? move.getPromotionPiece().ordinal() : movingType;
+        newMover[placedType] |= toBit;
+
+        // Only copy the opponent's boards when something of theirs is captured
+        long[] newOpponent = opponent;
+        int capturedType = typeAt(opponent, toBit);
+        if (capturedType >= 0) {
+            newOpponent = opponent.clone();
+            newOpponent[capturedType] &= ~toBit;
+        }
+
+        boolean resetsClock = capturedType >= 0 || movingType == ChessPiece.PieceType.PAWN.ordinal();
+        int nextClock = resetsClock ? 0 : halfmoveClock + 1;
+        ChessGame.TeamColor nextTurn = teamTurn == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if (teamTurn == ChessGame.TeamColor.WHITE) {
+            return new Position(newMover, newOpponent, nextTurn, gameOver, nextClock);
+        }
+        return new Position(newOpponent, newMover, nextTurn, gameOver, nextClock);
+    }
+
+    /**
+     * @return this position with the game-over flag set as given
+     */
+    public Position withGameOver(boolean gameOver) {
+        if (gameOver == this.gameOver) {
+            return this;
+        }
+        return new Position(white, black, teamTurn, gameOver, halfmoveClock);
+    }
+
+    /**
+     * @return the piece on a square, or null if the square is empty
+     */
+    public ChessPiece getPiece(ChessPosition position) {
+        long bit = 1L << square(position);
+        int type = typeAt(white, bit);
+        if (type >= 0) {
+            return PIECES[ChessGame.TeamColor.WHITE.ordinal()][type];
+        }
+        type = typeAt(black, bit);
+        if (type >= 0) {
+            return PIECES[ChessGame.TeamColor.BLACK.ordinal()][type];
+        }
+        return null;
+    }
+
+    /**
+     * @return the bitboard of one side's pieces of one type
+     */
+    public long getBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return side(color)[type.ordinal()];
+    }
+
+    /**
+     * @return the bitboard of every square one side occupies
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        long occupied = 0;
+        for (long board : side(color)) {
+            occupied |= board;
+        }
+        return occupied;
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return teamTurn;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Position that = (Position) o;
+        return teamTurn == that.teamTurn && gameOver == that.gameOver && halfmoveClock == that.halfmoveClock &&
+                Arrays.equals(white, that.white) && Arrays.equals(black, that.black);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(white);
+        result = 31 * result + Arrays.hashCode(black);
+        result = 31 * result + teamTurn.hashCode();
+        result = 31 * result + Boolean.hashCode(gameOver);
+        return 31 * result + halfmoveClock;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder placement = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = getPiece(new ChessPosition(row, col));
+                placement.append(piece == null ? '.' : pieceLetter(piece));
+            }
+            if (row > 1) {
+                placement.append('/');
+            }
+        }
+        return "Position{" +
+                "board=" + placement +
+                ", teamTurn=" + teamTurn +
+                ", gameOver=" + gameOver +
+                ", halfmoveClock=" + halfmoveClock +
+                '}';
+    }
+
+    private static char pieceLetter(ChessPiece piece) {
+        char letter = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter;
+    }
+
+    private long[] side(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? white : black;
+    }
+
+    private static int typeAt(long[] side, long bit) {
+        for (int type = 0; type < TYPES; type++) {
+            if ((side[type] & bit) != 0) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    private static void placePieces(ChessBoard board, ChessGame.TeamColor color, long[] side) {
+        for (int type = 0; type < TYPES; type++) {
+            long bits = side[type];
+            while (bits != 0) {
+                int square = Long.numberOfTrailingZeros(bits);
+                board.addPiece(new ChessPosition(square / 8 + 1, square % 8 + 1), PIECES[color.ordinal()][type]);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    private static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+}
@@ -0,0 +1,233 @@
+package chess.evaluation;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.util.Arrays;
+
+/**
+ * Static evaluation of positions from material and piece-square tables.
+ * <p>
+ * Scores are in centipawns from white's point of view. The batch path works over a
+ * {@link PositionBatch} one piece kind at a time, with plain loops over its arrays. A Vector
+ * API kernel that gives identical scores can be turned on with
+ * {@code -Dchess.evaluation.vector=true} on a JVM started with
+ * {@code --add-modules jdk.incubator.vector}. It is off by default because it measured
+ * slower than the loops, which the JIT already vectorizes. The single-board path walks the board square by square and is the
+ * reference the batch path has to agree with.
+ */
+public final class BatchEvaluator {
+
+    private static final int[] PIECE_VALUES = {
+            0,   // KING
+            900, // QUEEN
+            330, // BISHOP
+            320, // KNIGHT
+            500, // ROOK
+            100  // PAWN
+    };
+
+    // Tables are written the way a board is printed, a8 in the top left, from white's side
+    private static final int[][] PIECE_SQUARE_TABLES = {
+            { // KING
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                     20,  20,   0,   0,   0,   0,  20,  20,
+                     20,  30,  10,   0,   0,  10,  30,  20
+            },
+            { // QUEEN
+                    -20, -10, -10,  -5,  -5, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,   5,   5,   5,   0, -10,
+                     -5,   0,   5,   5,   5,   5,   0,  -5,
+                      0,   0,   5,   5,   5,   5,   0,  -5,
+                    -10,   5,   5,   5,   5,   5,   0, -10,
+                    -10,   0,   5,   0,   0,   0,   0, -10,
+                    -20, -10, -10,  -5,  -5, -10, -10, -20
+            },
+            { // BISHOP
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,  10,  10,   5,   0, -10,
+                    -10,   5,   5,  10,  10,   5,   5, -10,
+                    -10,   0,  10,  10,  10,  10,   0, -10,
+                    -10,  10,  10,  10,  10,  10,  10, -10,
+                    -10,   5,   0,   0,   0,   0,   5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            { // KNIGHT
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20,   0,   0,   0,   0, -20, -40,
+                    -30,   0,  10,  15,  15,  10,   0, -30,
+                    -30,   5,  15,  20,  20,  15,   5, -30,
+                    -30,   0,  15,  20,  20,  15,   0, -30,
+                    -30,   5,  10,  15,  15,  10,   5, -30,
+                    -40, -20,   0,   5,   5,   0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            { // ROOK
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                      5,  10,  10,  10,  10,  10,  10,   5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                      0,   0,   0,   5,   5,   0,   0,   0
+            },
+            { // PAWN
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                     50,  50,  50,  50,  50,  50,  50,  50,
+                     10,  10,  20,  30,  30,  20,  10,  10,
+                      5,   5,  10,  25,  25,  10,   5,   5,
+                      0,   0,   0,  20,  20,   0,   0,   0,
+                      5,  -5, -10,   0,   0, -10,  -5,   5,
+                      5,  10,  10, -20, -20,  10,  10,   5,
+                      0,   0,   0,   0,   0,   0,   0,   0
+            }
+    };
+
+    /**
+     * Adds the scores for a batch into an array that starts out zeroed
+     */
+    interface Kernel {
+        void score(PositionBatch batch, int[] scores);
+    }
+
+    // Signed material value and square bonus for each piece kind, indexed by bitboard square
+    static final int[] MATERIAL = new int[PositionBatch.PIECE_KINDS];
+    static final int[][] SQUARE_SCORES = new int[PositionBatch.PIECE_KINDS][64];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int sign = color == ChessGame.TeamColor.WHITE ? 1 : -1;
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                int kind = PositionBatch.pieceKind(color, type);
+                MATERIAL[kind] = sign * PIECE_VALUES[type.ordinal()];
+                for (int square = 0; square < 64; square++) {
+                    // White reads the table flipped vertically, black reads it as printed
+                    int tableIndex = color == ChessGame.TeamColor.WHITE ? square ^ 56 : square;
+                    SQUARE_SCORES[kind][square] = sign * PIECE_SQUARE_TABLES[type.ordinal()][tableIndex];
+                }
+            }
+        }
+    }
+
+    static final Kernel SCALAR = BatchEvaluator::scoreScalar;
+    // Null when the Vector API is not available to this JVM
+    static final Kernel VECTOR = loadVectorKernel();
+    private static final Kernel KERNEL =
+            VECTOR != null && Boolean.getBoolean("chess.evaluation.vector") ? VECTOR : SCALAR;
+
+    private BatchEvaluator() {
+    }
+
+    /**
+     * @return whether batches are scored with the Vector API
+     */
+    public static boolean isVectorized() {
+        return KERNEL == VECTOR;
+    }
+
+    /**
+     * The vector kernel is only loaded by name, since linking against the incubator module
+     * fails on a JVM that was not started with it
+     */
+    private static Kernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName("chess.evaluation.VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Scores every position in the batch
+     *
+     * @return one score per position, in batch order
+     */
+    public static int[] evaluate(PositionBatch batch) {
+        int[] scores = new int[batch.size()];
+        evaluate(batch, scores);
+        return scores;
+    }
+
+    /**
+     * Scores every position in the batch into an existing array
+     *
+     * @param scores array with room for at least {@code batch.size()} scores
+     */
+    public static void evaluate(PositionBatch batch, int[] scores) {
+        evaluate(batch, scores, KERNEL);
+    }
+
+    static void evaluate(PositionBatch batch, int[] scores, Kernel kernel) {
+        int count = batch.size();
+        if (scores.length < count) {
+            throw new IllegalArgumentException("Score array is smaller than the batch");
+        }
+        Arrays.fill(scores, 0, count, 0);
+        kernel.score(batch, scores);
+    }
+
+    private static void scoreScalar(PositionBatch batch, int[] scores) {
+        int count = batch.size();
+
+        // Material is a multiply-accumulate across every position for each piece kind
+        for (int kind = 0; kind < PositionBatch.PIECE_KINDS; kind++) {
+            int value = MATERIAL[kind];
+            if (value == 0) {
+                continue;
+            }
+            int[] counts = batch.pieceCounts(kind);
+            for (int i = 0; i < count; i++) {
+                scores[i] += counts[i] * value;
+            }
+        }
+
+        // Placement only visits occupied squares, so it walks the set bits of each board
+        for (int kind = 0; kind < PositionBatch.PIECE_KINDS; kind++) {
+            int[] table = SQUARE_SCORES[kind];
+            long[] boards = batch.bitboards(kind);
+            for (int i = 0; i < count; i++) {
+                long bits = boards[i];
+                int placement = 0;
+                while (bits != 0) {
+                    placement += table[Long.numberOfTrailingZeros(bits)];
+                    bits &= bits - 1;
+                }
+                scores[i] += placement;
+            }
+        }
+    }
+
+    /**
+     * Scores a single board square by square
+     *
+     * @return the score in centipawns from white's point of view
+     */
+    public static int evaluate(ChessBoard board) {
+        int score = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null) {
+                    continue;
+                }
+                int kind = PositionBatch.pieceKind(piece.getTeamColor(), piece.getPieceType());
+                score += MATERIAL[kind] + SQUARE_SCORES[kind][PositionBatch.square(position)];
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,146 @@
+package chess.evaluation;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Position;
+
+import java.util.Arrays;
+
+/**
+ * A batch of positions laid out structure-of-arrays so they can be scored together.
+ * <p>
+ * Every piece kind (color + type) gets its own primitive array of bitboards and piece
+ * counts, indexed by the position's slot in the batch. Square 0 is a1 and square 63 is h8.
+ */
+public class PositionBatch {
+
+    public static final int PIECE_KINDS = 12;
+
+    private long[][] bitboards;
+    private int[][] pieceCounts;
+    private int size = 0;
+
+    public PositionBatch() {
+        this(64);
+    }
+
+    public PositionBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        bitboards = new long[PIECE_KINDS][capacity];
+        pieceCounts = new int[PIECE_KINDS][capacity];
+    }
+
+    /**
+     * @return the index used for a piece kind in the batch arrays
+     */
+    public static int pieceKind(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    /**
+     * @return the bitboard square index for a position, a1 = 0 through h8 = 63
+     */
+    public static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    /**
+     * Adds a board to the end of the batch
+     *
+     * @return the slot the board was stored in
+     */
+    public int add(ChessBoard board) {
+        ensureCapacity(size + 1);
+        int slot = size++;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null) {
+                    continue;
+                }
+                int kind = pieceKind(piece.getTeamColor(), piece.getPieceType());
+                bitboards[kind][slot] |= 1L << square(position);
+                pieceCounts[kind][slot]++;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Adds an immutable position to the end of the batch
+     *
+     * @return the slot the position was stored in
+     */
+    public int add(Position position) {
+        ensureCapacity(size + 1);
+        int slot = size++;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                int kind = pieceKind(color, type);
+                long board = position.getBitboard(color, type);
+                bitboards[kind][slot] = board;
+                pieceCounts[kind][slot] = Long.bitCount(board);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a position that is already packed into bitboards, one per piece kind
+     *
+     * @return the slot the position was stored in
+     */
+    public int add(long[] pieceBitboards) {
+        if (pieceBitboards.length != PIECE_KINDS) {
+            throw new IllegalArgumentException("Expected " + PIECE_KINDS + " bitboards");
+        }
+        ensureCapacity(size + 1);
+        int slot = size++;
+        for (int kind = 0; kind < PIECE_KINDS; kind++) {
+            bitboards[kind][slot] = pieceBitboards[kind];
+            pieceCounts[kind][slot] = Long.bitCount(pieceBitboards[kind]);
+        }
+        return slot;
+    }
+
+    public void clear() {
+        for (int kind = 0; kind < PIECE_KINDS; kind++) {
+            Arrays.fill(bitboards[kind], 0, size, 0L);
+            Arrays.fill(pieceCounts[kind], 0, size, 0);
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the bitboards for one piece kind, valid up to {@link #size()}
+     */
+    long[] bitboards(int kind) {
+        return bitboards[kind];
+    }
+
+    /**
+     * @return the piece counts for one piece kind, valid up to {@link #size()}
+     */
+    int[] pieceCounts(int kind) {
+        return pieceCounts[kind];
+    }
+
+    private void ensureCapacity(int needed) {
+        int capacity = bitboards[0].length;
+        if (needed <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(needed, capacity * 2);
+        for (int kind = 0; kind < PIECE_KINDS; kind++) {
+            bitboards[kind] = Arrays.copyOf(bitboards[kind], newCapacity);
+            pieceCounts[kind] = Arrays.copyOf(pieceCounts[kind], newCapacity);
+        }
+    }
+}
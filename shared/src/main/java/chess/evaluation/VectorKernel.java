@@ -0,0 +1,81 @@
+package chess.evaluation;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scores a batch with the Vector API, one lane per position.
+ * <p>
+ * Each piece kind's material value and piece-square table are folded into one row per rank
+ * holding the total score of every pattern of that kind's pieces on the rank. A position's
+ * score is then eight lookups per piece kind however many pieces it has, and the lookups for
+ * a vector of positions are one gather each. Positions past the last full vector are scored
+ * from the same rows one at a time.
+ * <p>
+ * Only {@link BatchEvaluator} loads this class, and only when the module is present.
+ */
+final class VectorKernel implements BatchEvaluator.Kernel {
+
+    private static final VectorSpecies<Long> BOARDS = LongVector.SPECIES_PREFERRED;
+    // Same lane count as BOARDS, so a position's pattern and its score share a lane
+    private static final VectorSpecies<Integer> SCORES =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(BOARDS.vectorBitSize() / 2));
+    private static final int PATTERNS = 256;
+
+    // For each piece kind, the score of each rank pattern, indexed rank * PATTERNS + pattern
+    private final int[][] rankScores = new int[PositionBatch.PIECE_KINDS][8 * PATTERNS];
+
+    VectorKernel() {
+        if (BOARDS.length() < 2) {
+            throw new UnsupportedOperationException("No SIMD lanes for bitboards");
+        }
+        for (int kind = 0; kind < PositionBatch.PIECE_KINDS; kind++) {
+            int[] table = BatchEvaluator.SQUARE_SCORES[kind];
+            for (int rank = 0; rank < 8; rank++) {
+                for (int pattern = 0; pattern < PATTERNS; pattern++) {
+                    int score = Integer.bitCount(pattern) * BatchEvaluator.MATERIAL[kind];
+                    for (int file = 0; file < 8; file++) {
+                        if ((pattern & (1 << file)) != 0) {
+                            score += table[rank * 8 + file];
+                        }
+                    }
+                    rankScores[kind][rank * PATTERNS + pattern] = score;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void score(PositionBatch batch, int[] scores) {
+        int count = batch.size();
+        for (int kind = 0; kind < PositionBatch.PIECE_KINDS; kind++) {
+            addKind(batch.bitboards(kind), rankScores[kind], scores, count);
+        }
+    }
+
+    private static void addKind(long[] boards, int[] rows, int[] scores, int count) {
+        // Gathers take their indexes from an array
+        int[] patterns = new int[SCORES.length()];
+        int upper = BOARDS.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += BOARDS.length()) {
+            LongVector bits = LongVector.fromArray(BOARDS, boards, i);
+            IntVector score = IntVector.fromArray(SCORES, scores, i);
+            for (int rank = 0; rank < 8; rank++) {
+                IntVector pattern = (IntVector) bits.lanewise(VectorOperators.LSHR, rank * 8).and(PATTERNS - 1)
+                        .convertShape(VectorOperators.L2I, SCORES, 0);
+                pattern.intoArray(patterns, 0);
+                score = score.add(IntVector.fromArray(SCORES, rows, rank * PATTERNS, patterns, 0));
+            }
+            score.intoArray(scores, i);
+        }
+        for (; i < count; i++) {
+            for (int rank = 0; rank < 8; rank++) {
+                scores[i] += rows[rank * PATTERNS + (int) ((boards[i] >>> (rank * 8)) & (PATTERNS - 1))];
+            }
+        }
+    }
+}
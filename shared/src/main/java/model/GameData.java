@@ -2,4 +2,17 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {}
+/**
+ * @param version how many times the game has been saved, for detecting conflicting writes
+ */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                       int version) {
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, 0);
+    }
+
+    public GameData withVersion(int version) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, version);
+    }
+}
@@ -0,0 +1,13 @@
+package requests;
+
+/**
+ * Optional paging and filters for listing games. Any field may be null.
+ *
+ * @param after        the nextCursor from the previous page
+ * @param limit        the most games to return
+ * @param status       open, in_progress or finished
+ * @param player       only games this user is seated in
+ * @param includeState whether to include each game's board
+ */
+public record ListGamesRequest(Integer after, Integer limit, String status, String player, Boolean includeState) {
+}
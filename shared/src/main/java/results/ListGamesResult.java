@@ -3,5 +3,12 @@ package results;
 import model.GameData;
 import java.util.List;
 
-public record ListGamesResult(List<GameData> games) {
+/**
+ * @param nextCursor the {@code after} value for the next page, or null on the last page
+ */
+public record ListGamesResult(List<GameData> games, Integer nextCursor) {
+
+    public ListGamesResult(List<GameData> games) {
+        this(games, null);
+    }
 }
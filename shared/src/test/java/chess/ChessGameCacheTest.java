@@ -0,0 +1,81 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameCacheTest {
+
+    @Test
+    public void cachedAnswersMatchUncached() throws InvalidMoveException {
+        Random random = new Random(240);
+        ChessGame cached = new ChessGame();
+        ChessGame uncached = new ChessGame();
+        uncached.setMoveCacheEnabled(false);
+
+        for (int ply = 0; ply < 300; ply++) {
+            for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+                assertEquals(uncached.isInCheck(team), cached.isInCheck(team));
+                assertEquals(uncached.isInCheckmate(team), cached.isInCheckmate(team));
+                assertEquals(uncached.isInStalemate(team), cached.isInStalemate(team));
+            }
+            List<ChessMove> moves = new ArrayList<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition position = new ChessPosition(row, col);
+                    var expected = uncached.validMoves(position);
+                    var actual = cached.validMoves(position);
+                    if (expected == null) {
+                        assertNull(actual);
+                        continue;
+                    }
+                    assertEquals(new HashSet<>(expected), new HashSet<>(actual), "Moves differ at " + position);
+                    if (cached.getBoard().getPiece(position).getTeamColor() == cached.getTeamTurn()) {
+                        moves.addAll(actual);
+                    }
+                }
+            }
+            if (moves.isEmpty()) {
+                cached = new ChessGame();
+                uncached = new ChessGame();
+                uncached.setMoveCacheEnabled(false);
+                continue;
+            }
+            ChessMove move = moves.get(random.nextInt(moves.size()));
+            cached.makeMove(move);
+            uncached.makeMove(move);
+        }
+    }
+
+    @Test
+    public void editingTheBoardInvalidatesTheCache() {
+        ChessGame game = new ChessGame();
+        ChessPosition knight = new ChessPosition(1, 2);
+        assertEquals(2, game.validMoves(knight).size());
+
+        // A white pawn on c3 takes away one of the knight's two squares
+        game.getBoard().addPiece(new ChessPosition(3, 3),
+                new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+
+        assertEquals(1, game.validMoves(knight).size());
+    }
+
+    @Test
+    public void setBoardInvalidatesTheCache() {
+        ChessGame game = new ChessGame();
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(3, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        game.setBoard(board);
+
+        assertTrue(game.isInStalemate(ChessGame.TeamColor.WHITE));
+    }
+}
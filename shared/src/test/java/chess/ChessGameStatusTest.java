@@ -0,0 +1,132 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameStatusTest {
+
+    @Test
+    public void newGameIsOngoing() {
+        assertEquals(ChessGame.GameStatus.ONGOING, new ChessGame().status());
+    }
+
+    @Test
+    public void foolsMateIsCheckmate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+        game.makeMove(move(8, 4, 4, 8));
+
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.status());
+        assertTrue(game.status().isGameOver());
+    }
+
+    @Test
+    public void checkIsReportedWhenMovesRemain() {
+        ChessGame game = gameWith(
+                piece(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(5, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+
+        assertEquals(ChessGame.GameStatus.CHECK, game.status());
+        assertFalse(game.status().isGameOver());
+    }
+
+    @Test
+    public void stalemateIsReported() {
+        ChessGame game = gameWith(
+                piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(3, 2, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN),
+                piece(8, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.status());
+    }
+
+    @Test
+    public void loneMinorPieceIsInsufficientMaterial() {
+        ChessGame game = gameWith(
+                piece(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(4, 4, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                piece(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        assertEquals(ChessGame.GameStatus.DRAW_INSUFFICIENT_MATERIAL, game.status());
+    }
+
+    @Test
+    public void bishopsOnOppositeColorsCanStillMate() {
+        ChessGame game = gameWith(
+                piece(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(4, 4, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP),
+                piece(4, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP),
+                piece(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status());
+    }
+
+    @Test
+    public void fiftyQuietMovesOnlyAllowAClaim() throws InvalidMoveException {
+        ChessGame game = rooksAndKings();
+        game.setHalfmoveClock(98);
+
+        game.makeMove(move(1, 8, 2, 8));
+        assertFalse(game.canClaimFiftyMoveDraw());
+        game.makeMove(move(8, 8, 7, 8));
+
+        assertEquals(100, game.getHalfmoveClock());
+        assertTrue(game.canClaimFiftyMoveDraw());
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status(), "The game should go on until a draw is claimed");
+    }
+
+    @Test
+    public void seventyFiveQuietMovesIsADraw() throws InvalidMoveException {
+        ChessGame game = rooksAndKings();
+        game.setHalfmoveClock(148);
+
+        game.makeMove(move(1, 8, 2, 8));
+        assertEquals(ChessGame.GameStatus.ONGOING, game.status());
+        game.makeMove(move(8, 8, 7, 8));
+
+        assertEquals(ChessGame.GameStatus.DRAW_SEVENTY_FIVE_MOVE, game.status());
+        assertTrue(game.status().isGameOver());
+    }
+
+    @Test
+    public void pawnMovesResetTheHalfmoveClock() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(1, 2, 3, 3));
+        assertEquals(1, game.getHalfmoveClock());
+        game.makeMove(move(7, 5, 5, 5));
+        assertEquals(0, game.getHalfmoveClock());
+    }
+
+    private static ChessGame rooksAndKings() {
+        return gameWith(
+                piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(1, 8, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                piece(8, 1, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(8, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+    }
+
+    private record Placement(ChessPosition position, ChessPiece piece) {
+    }
+
+    private static ChessGame gameWith(Placement... placements) {
+        ChessBoard board = new ChessBoard();
+        for (Placement placement : placements) {
+            board.addPiece(placement.position(), placement.piece());
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        return game;
+    }
+
+    private static Placement piece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return new Placement(new ChessPosition(row, col), new ChessPiece(color, type));
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
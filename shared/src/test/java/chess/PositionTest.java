@@ -0,0 +1,78 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionTest {
+
+    @Test
+    public void roundTripsThroughChessGame() {
+        ChessGame game = new ChessGame();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.setGameOver(true);
+
+        ChessGame copy = Position.of(game).toGame();
+
+        assertEquals(game, copy);
+        assertEquals(ChessGame.TeamColor.BLACK, copy.getTeamTurn());
+        assertTrue(copy.isGameOver());
+    }
+
+    @Test
+    public void playMatchesMakeMove() throws InvalidMoveException {
+        ChessMove[] moves = {
+                move(2, 5, 4, 5), move(7, 4, 5, 4),
+                move(4, 5, 5, 4), move(8, 4, 5, 4),
+                move(1, 2, 3, 3), move(5, 4, 2, 1)
+        };
+        ChessGame game = new ChessGame();
+        Position position = Position.initial();
+
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+            position = position.play(move);
+            assertEquals(Position.of(game), position, "Diverged after " + move);
+        }
+        assertEquals(game, position.toGame());
+    }
+
+    @Test
+    public void playLeavesOriginalUntouched() {
+        Position start = Position.initial();
+        Position next = start.play(move(2, 5, 4, 5));
+
+        assertNotEquals(start, next);
+        assertEquals(Position.of(new ChessGame()), start);
+        assertEquals(ChessGame.TeamColor.BLACK, next.getTeamTurn());
+        assertNull(next.getPiece(new ChessPosition(2, 5)));
+        assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                next.getPiece(new ChessPosition(4, 5)));
+    }
+
+    @Test
+    public void playPromotesPawns() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(7, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(8, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+
+        Position promoted = Position.of(game).play(
+                new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT));
+
+        assertEquals(0L, promoted.getBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        assertEquals(0L, promoted.getOccupancy(ChessGame.TeamColor.BLACK));
+        assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                promoted.getPiece(new ChessPosition(8, 2)));
+    }
+
+    @Test
+    public void playRejectsMovesForTheWrongSide() {
+        assertThrows(IllegalArgumentException.class, () -> Position.initial().play(move(7, 5, 5, 5)));
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,75 @@
+package chess.evaluation;
+
+import chess.ChessBoard;
+
+import java.util.List;
+
+/**
+ * Reports evaluation throughput for the vector and scalar batch kernels and the single-board path.
+ * <p>
+ * Run with {@code MAVEN_OPTS="--add-modules jdk.incubator.vector" mvn -pl shared test-compile
+ * exec:java -Dexec.classpathScope=test -Dexec.mainClass=chess.evaluation.BatchEvaluatorBenchmark};
+ * without the module only the scalar kernels are measured.
+ */
+public class BatchEvaluatorBenchmark {
+
+    private static final int POSITIONS = 100_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    public static void main(String[] args) {
+        List<ChessBoard> boards = RandomGames.boards(POSITIONS, 42);
+        PositionBatch batch = new PositionBatch(POSITIONS);
+        for (ChessBoard board : boards) {
+            batch.add(board);
+        }
+        int[] scores = new int[POSITIONS];
+
+        long checksum = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            if (BatchEvaluator.VECTOR != null) {
+                BatchEvaluator.evaluate(batch, scores, BatchEvaluator.VECTOR);
+            }
+            BatchEvaluator.evaluate(batch, scores, BatchEvaluator.SCALAR);
+            checksum += scores[round];
+            checksum += scalarRound(boards);
+        }
+
+        if (BatchEvaluator.VECTOR != null) {
+            checksum += batchRounds("batch vector", batch, scores, BatchEvaluator.VECTOR);
+        }
+        checksum += batchRounds("batch scalar", batch, scores, BatchEvaluator.SCALAR);
+
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            checksum += scalarRound(boards);
+        }
+        report("single-board", System.nanoTime() - start);
+        System.out.println("checksum " + checksum);
+    }
+
+    private static long batchRounds(String name, PositionBatch batch, int[] scores, BatchEvaluator.Kernel kernel) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            BatchEvaluator.evaluate(batch, scores, kernel);
+            checksum += scores[round];
+        }
+        report(name, System.nanoTime() - start);
+        return checksum;
+    }
+
+    private static long scalarRound(List<ChessBoard> boards) {
+        long sum = 0;
+        for (ChessBoard board : boards) {
+            sum += BatchEvaluator.evaluate(board);
+        }
+        return sum;
+    }
+
+    private static void report(String name, long nanos) {
+        double positions = (double) POSITIONS * MEASURED_ROUNDS;
+        double perSecond = positions / (nanos / 1e9);
+        System.out.printf("%-13s %,.0f positions/sec%n", name, perSecond);
+    }
+}
@@ -0,0 +1,79 @@
+package chess.evaluation;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class BatchEvaluatorTest {
+
+    @Test
+    public void startingPositionIsBalanced() {
+        assertEquals(0, BatchEvaluator.evaluate(new ChessGame().getBoard()));
+    }
+
+    @Test
+    public void extraQueenFavorsItsSide() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+
+        // Queen value plus its d4 bonus, and the kings' squares mirror each other
+        assertEquals(-905, BatchEvaluator.evaluate(board));
+    }
+
+    @Test
+    public void batchMatchesSingleBoardEvaluation() {
+        List<ChessBoard> boards = RandomGames.boards(2000, 240);
+        PositionBatch batch = new PositionBatch(16);
+        for (ChessBoard board : boards) {
+            batch.add(board);
+        }
+
+        int[] scores = BatchEvaluator.evaluate(batch);
+
+        assertEquals(boards.size(), scores.length);
+        for (int i = 0; i < boards.size(); i++) {
+            assertEquals(BatchEvaluator.evaluate(boards.get(i)), scores[i], "Score mismatch at position " + i);
+        }
+    }
+
+    @Test
+    public void vectorKernelMatchesScalarKernel() {
+        assumeTrue(BatchEvaluator.VECTOR != null, "The vector kernel needs jdk.incubator.vector and a supported CPU");
+
+        // An odd size leaves positions past the last full vector for the tail loop
+        List<ChessBoard> boards = RandomGames.boards(2003, 99);
+        PositionBatch batch = new PositionBatch();
+        for (ChessBoard board : boards) {
+            batch.add(board);
+        }
+
+        int[] vector = new int[boards.size()];
+        int[] scalar = new int[boards.size()];
+        BatchEvaluator.evaluate(batch, vector, BatchEvaluator.VECTOR);
+        BatchEvaluator.evaluate(batch, scalar, BatchEvaluator.SCALAR);
+
+        assertArrayEquals(scalar, vector);
+    }
+
+    @Test
+    public void clearedBatchCanBeReused() {
+        PositionBatch batch = new PositionBatch();
+        batch.add(new ChessGame().getBoard());
+        batch.clear();
+
+        ChessBoard board = RandomGames.boards(50, 7).get(49);
+        batch.add(board);
+
+        assertEquals(1, batch.size());
+        assertEquals(BatchEvaluator.evaluate(board), BatchEvaluator.evaluate(batch)[0]);
+    }
+}
@@ -0,0 +1,60 @@
+package chess.evaluation;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays seeded random games to produce realistic boards for evaluation tests and benchmarks.
+ */
+final class RandomGames {
+
+    private RandomGames() {
+    }
+
+    static List<ChessBoard> boards(int count, long seed) {
+        Random random = new Random(seed);
+        List<ChessBoard> boards = new ArrayList<>(count);
+        ChessGame game = new ChessGame();
+        while (boards.size() < count) {
+            List<ChessMove> moves = legalMoves(game);
+            if (moves.isEmpty()) {
+                game = new ChessGame();
+                continue;
+            }
+            try {
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            } catch (InvalidMoveException e) {
+                throw new IllegalStateException(e);
+            }
+            boards.add(new ChessBoard(game.getBoard()));
+            if (random.nextInt(120) == 0) {
+                game = new ChessGame();
+            }
+        }
+        return boards;
+    }
+
+    private static List<ChessMove> legalMoves(ChessGame game) {
+        List<ChessMove> moves = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    Collection<ChessMove> pieceMoves = game.validMoves(position);
+                    moves.addAll(pieceMoves);
+                }
+            }
+        }
+        return moves;
+    }
+}